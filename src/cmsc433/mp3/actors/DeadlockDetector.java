@@ -0,0 +1,344 @@
+package cmsc433.mp3.actors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.messages.AccessRequestMsg;
+import cmsc433.mp3.messages.DeadlockDetectedMsg;
+import cmsc433.mp3.messages.DeadlockProbeMsg;
+import cmsc433.mp3.messages.WaitForEdgeMsg;
+import cmsc433.mp3.util.ResourceState;
+import cmsc433.mp3.util.WaitForEdge;
+import cmsc433.mp3.util.WaitForEdges;
+import cmsc433.mp3.util.WaitingRequest;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Deadlock detection for a resource manager, by edge chasing.  When a request is
+ * queued, a probe is sent for each user it waits for.  A probe goes first to the
+ * target user's directory manager, which knows every manager the user has a
+ * request queued at, and from there to each of those managers, which pass it on
+ * for the users that request waits for.  A probe that gets back to the user that
+ * started it has found a cycle, and one request on the cycle is denied.
+ *
+ * A probe can reach the directory manager before the report of the wait it is
+ * looking for, when the two requests of a cycle are queued at about the same time
+ * at different managers.  The directory manager therefore keeps the probes for
+ * each user for a while, and passes them on along any wait reported for the user
+ * meanwhile.
+ *
+ * Instances are owned by a single manager, and used only while it handles a
+ * message; they must never be shared between actors.
+ */
+class DeadlockDetector {
+	private static final int PROBED_EDGES_CAPACITY = 4096;		// Probe edges remembered for deduplication
+	private static final int RECENT_PROBE_TARGETS = 1024;		// Users whose recent probes are kept
+	private static final int RECENT_PROBES_PER_TARGET = 64;		// Probes kept per user
+	private static final long RECENT_PROBE_TTL_MS = 1000;		// How long probes are kept
+
+	private final ResourceManagerActor manager;
+	private final Set<ActorRef> remoteManagers;				// Manager's remote managers
+	private WaitForEdges waitForEdges = new WaitForEdges();	// Where users this manager is directory for wait
+	private ArrayList<ActorRef> allManagers;				// Every manager, sorted, or null if not yet known
+	private Set<List<WaitForEdge>> probedEdges = Collections.newSetFromMap(new LinkedHashMap<List<WaitForEdge>, Boolean>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<WaitForEdge>, Boolean> eldest) {
+			return size() > PROBED_EDGES_CAPACITY;
+		}
+	});	// (First edge of probe, edge followed) pairs already probed
+	private Map<ActorRef, ArrayList<RecentProbe>> recentProbes = new LinkedHashMap<ActorRef, ArrayList<RecentProbe>>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ActorRef, ArrayList<RecentProbe>> eldest) {
+			return size() > RECENT_PROBE_TARGETS;
+		}
+	};	// Probes for users this manager is directory for, oldest first, by target
+	private long reportDelayMs = 0;		// Delay before reporting waits, for testing
+
+	/**
+	 * Probe received by a directory manager, kept for waits reported later.
+	 */
+	private static class RecentProbe {
+		private final DeadlockProbeMsg probe;
+		private final long receivedMs;
+
+		RecentProbe(DeadlockProbeMsg probe, long receivedMs) {
+			this.probe = probe;
+			this.receivedMs = receivedMs;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param manager			Manager owning detector
+	 * @param remoteManagers	Manager's set of remote managers
+	 */
+	DeadlockDetector(ResourceManagerActor manager, Set<ActorRef> remoteManagers) {
+		this.manager = manager;
+		this.remoteManagers = remoteManagers;
+	}
+
+	/**
+	 * Note that the set of managers has changed, so that directory managers are
+	 * chosen afresh.
+	 */
+	void managersChanged() {
+		allManagers = null;
+	}
+
+	/**
+	 * Delay every report of a wait to a directory manager, so that probes overtake
+	 * them.  For testing only.
+	 *
+	 * @param delayMs	Delay in milliseconds, or 0 for none
+	 */
+	void setReportDelay(long delayMs) {
+		reportDelayMs = delayMs;
+	}
+
+	/**
+	 * Record that a user this manager is directory for has started or stopped waiting
+	 * at some manager.  A new wait is followed by the probes for the user that have
+	 * arrived lately, in case they arrived before the wait was reported.
+	 *
+	 * @param message	Edge message
+	 */
+	void handleWaitForEdge(WaitForEdgeMsg message) {
+		WaitForEdge edge = message.getEdge();
+
+		if (!message.isAdded()) {
+			waitForEdges.remove(edge);
+			return;
+		}
+		waitForEdges.add(edge);
+		ArrayList<RecentProbe> probes = recentProbes.get(edge.getWaiter());
+		if (probes == null) {
+			return;
+		}
+		dropExpired(probes, ResourceManagerActor.nowMs());
+		if (probes.isEmpty()) {
+			recentProbes.remove(edge.getWaiter());
+		}
+		for (RecentProbe recent : probes) {
+			DeadlockProbeMsg probe = recent.probe;
+			edge.getManager().tell(new DeadlockProbeMsg(probe.getPath(), probe.getTarget(), edge), manager.getSelf());
+		}
+	}
+
+	/**
+	 * Start a search for a wait-for cycle through a request that has just been
+	 * queued, by sending a probe for each user the request is blocked by.
+	 *
+	 * @param state		Lock-table entry for resource
+	 * @param message	Queued request
+	 */
+	void probe(ResourceState state, AccessRequestMsg message) {
+		ArrayList<WaitForEdge> path = new ArrayList<WaitForEdge>();
+		path.add(new WaitForEdge(message.getReplyTo(), message.getAccessRequest(), manager.managerRef()));
+
+		for (ActorRef blocker : blockersOf(state, message)) {
+			sendProbe(new DeadlockProbeMsg(path, blocker));
+		}
+	}
+
+	/**
+	 * Handle a probe.  Without an edge, this manager is the target's directory
+	 * manager, and passes the probe on to the manager of each request the target has
+	 * queued, keeping it for waits reported later.  With an edge, the request is queued here:  if it is blocked by the
+	 * user that started the search, a cycle has been found; otherwise the probe is
+	 * passed on for every blocking user not already on the path.  An edge is followed
+	 * at most once per search, so a dense wait-for graph costs one probe per edge
+	 * rather than one per path.
+	 *
+	 * @param message	Probe
+	 */
+	void handleProbe(DeadlockProbeMsg message) {
+		WaitForEdge edge = message.getEdge();
+
+		if (edge == null) {
+			for (WaitForEdge wait : waitForEdges.getWaits(message.getTarget())) {
+				wait.getManager().tell(new DeadlockProbeMsg(message.getPath(), message.getTarget(), wait), manager.getSelf());
+			}
+			keepProbe(message);
+			return;
+		}
+		WaitingRequest waiting = waitingFor(edge);
+		if (waiting == null || !probedEdges.add(Arrays.asList(message.getPath().get(0), edge))) {
+			return;
+		}
+		ArrayList<WaitForEdge> path = new ArrayList<WaitForEdge>(message.getPath());
+		path.add(edge);
+
+		for (ActorRef blocker : blockersOf(waiting.getState(), waiting.getMessage())) {
+			if (blocker.equals(message.getInitiator())) {
+				breakDeadlock(path);
+			}
+			else if (!isWaiterOnPath(path, blocker)) {
+				sendProbe(new DeadlockProbeMsg(path, blocker));
+			}
+		}
+	}
+
+	/**
+	 * Keep a probe that has reached its target's directory manager, for waits of the
+	 * target reported later.
+	 *
+	 * @param probe	Probe without edge
+	 */
+	private void keepProbe(DeadlockProbeMsg probe) {
+		long now = ResourceManagerActor.nowMs();
+		ArrayList<RecentProbe> probes = recentProbes.get(probe.getTarget());
+
+		if (probes == null) {
+			probes = new ArrayList<RecentProbe>();
+			recentProbes.put(probe.getTarget(), probes);
+		}
+		dropExpired(probes, now);
+		if (probes.size() == RECENT_PROBES_PER_TARGET) {
+			probes.remove(0);
+		}
+		probes.add(new RecentProbe(probe, now));
+	}
+
+	/**
+	 * Drop the probes kept too long.
+	 *
+	 * @param probes	Probes for a target, oldest first
+	 * @param now		Current time, in milliseconds
+	 */
+	private static void dropExpired(ArrayList<RecentProbe> probes, long now) {
+		int expired = 0;
+
+		while (expired < probes.size() && now - probes.get(expired).receivedMs > RECENT_PROBE_TTL_MS) {
+			expired++;
+		}
+		probes.subList(0, expired).clear();
+	}
+
+	/**
+	 * @param edge	Wait-for edge
+	 * @return		Request of edge, if it is still queued for a local resource (as a
+	 * 				pending upgrade or in the wait queue), and null otherwise
+	 */
+	WaitingRequest waitingFor(WaitForEdge edge) {
+		ResourceState state = manager.lookupLocalResource(edge.getResourceName());
+
+		if (state == null) {
+			return null;
+		}
+		WaitingRequest upgrade = state.getPendingUpgrade();
+		if (upgrade != null && upgrade.getMessage().getAccessRequest() == edge.getRequest()
+				&& upgrade.getMessage().getReplyTo().equals(edge.getWaiter())) {
+			return upgrade;
+		}
+		return state.getWaitQueue().get(edge.getWaiter(), edge.getRequest());
+	}
+
+	/**
+	 * Tell a user's directory manager that one of the user's requests has been
+	 * queued here, or has left its queue.
+	 *
+	 * @param waiting	Queued request
+	 * @param added		True if request has just been queued
+	 */
+	void reportWait(WaitingRequest waiting, boolean added) {
+		AccessRequestMsg message = waiting.getMessage();
+		WaitForEdge edge = new WaitForEdge(message.getReplyTo(), message.getAccessRequest(), manager.managerRef());
+		ActorRef directory = waitDirectoryOf(message.getReplyTo());
+
+		if (reportDelayMs > 0) {
+			manager.getContext().getSystem().scheduler().scheduleOnce(
+					Duration.create(reportDelayMs, TimeUnit.MILLISECONDS),
+					directory, new WaitForEdgeMsg(edge, added), manager.getContext().dispatcher(), manager.getSelf());
+		}
+		else {
+			directory.tell(new WaitForEdgeMsg(edge, added), manager.getSelf());
+		}
+	}
+
+	/**
+	 * Choose a victim on a wait-for cycle and tell its manager to deny it.  The
+	 * victim is the edge whose user has the greatest reference, so that every
+	 * manager detecting the same cycle picks the same victim.
+	 *
+	 * @param cycle	Edges of cycle
+	 */
+	private void breakDeadlock(ArrayList<WaitForEdge> cycle) {
+		WaitForEdge victim = cycle.get(0);
+
+		for (WaitForEdge edge : cycle) {
+			if (edge.getWaiter().compareTo(victim.getWaiter()) > 0) {
+				victim = edge;
+			}
+		}
+		victim.getManager().tell(new DeadlockDetectedMsg(victim), manager.getSelf());
+	}
+
+	/**
+	 * Send probe to its target's directory manager, which knows where the target
+	 * waits.
+	 *
+	 * @param probe	Probe to send
+	 */
+	private void sendProbe(DeadlockProbeMsg probe) {
+		waitDirectoryOf(probe.getTarget()).tell(probe, manager.getSelf());
+	}
+
+	/**
+	 * @param user	User
+	 * @return		Manager keeping the user's wait-for edges.  Every manager knows the
+	 * 				same set of managers, so every manager picks the same one.
+	 */
+	private ActorRef waitDirectoryOf(ActorRef user) {
+		if (allManagers == null) {
+			allManagers = new ArrayList<ActorRef>(remoteManagers);
+			allManagers.add(manager.managerRef());
+			Collections.sort(allManagers);
+		}
+		return allManagers.get(Math.floorMod(user.hashCode(), allManagers.size()));
+	}
+
+	private boolean isWaiterOnPath(ArrayList<WaitForEdge> path, ActorRef user) {
+		for (WaitForEdge edge : path) {
+			if (edge.getWaiter().equals(user)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param state		Lock-table entry for resource
+	 * @param message	Request queued for resource
+	 * @return			Users the request waits for:  current holders of the resource,
+	 * 					and users with requests queued ahead of it (a pending upgrade
+	 * 					waits only for the holders)
+	 */
+	private Set<ActorRef> blockersOf(ResourceState state, AccessRequestMsg message) {
+		Set<ActorRef> blockers = new HashSet<ActorRef>();
+		WaitingRequest upgrade = state.getPendingUpgrade();
+
+		if (state.getWriter() != null) {
+			blockers.add(state.getWriter());
+		}
+		blockers.addAll(state.getReaders().getHolders());
+		if (upgrade == null || upgrade.getMessage() != message) {
+			for (WaitingRequest queued : state.getWaitQueue()) {
+				if (queued.getMessage() == message) {
+					break;
+				}
+				blockers.add(queued.getMessage().getReplyTo());
+			}
+		}
+		blockers.remove(message.getReplyTo());
+		return blockers;
+	}
+}
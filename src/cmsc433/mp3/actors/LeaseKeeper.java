@@ -0,0 +1,126 @@
+package cmsc433.mp3.actors;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.messages.LogMsg;
+import cmsc433.mp3.util.AccessRelease;
+import cmsc433.mp3.util.Lease;
+import cmsc433.mp3.util.ResourceHandoff;
+import cmsc433.mp3.util.ResourceState;
+import cmsc433.mp3.util.TimerWheel;
+
+/**
+ * Leases on the grants of a resource manager.  A lease runs on the manager's
+ * timer wheel from the grant until the holder releases its access; if it expires
+ * first, the manager releases the access itself and grants waiting requests.
+ *
+ * Instances are owned by a single manager, and used only while it handles a
+ * message; they must never be shared between actors.
+ */
+class LeaseKeeper {
+	private final ResourceManagerActor manager;
+	private final TimerWheel<Object> timers;	// Manager's timer wheel
+
+	/**
+	 * Constructor
+	 *
+	 * @param manager	Manager owning leases
+	 * @param timers	Manager's timer wheel
+	 */
+	LeaseKeeper(ResourceManagerActor manager, TimerWheel<Object> timers) {
+		this.manager = manager;
+		this.timers = timers;
+	}
+
+	/**
+	 * Start a lease on access just granted.
+	 *
+	 * @param state		Lock-table entry for resource
+	 * @param holder	User granted access
+	 * @param type		Access granted
+	 * @param leaseMs	Length of lease, in milliseconds
+	 */
+	void start(ResourceState state, ActorRef holder, AccessType type, long leaseMs) {
+		Lease lease = new Lease(state, holder, type);
+		lease.setTimeout(manager.scheduleTimeout(lease, leaseMs));
+		state.getLeases().add(lease);
+	}
+
+	/**
+	 * Cancel the lease on a hold of access just released:  one lease, or all of them
+	 * once the user no longer holds the access at all.
+	 *
+	 * @param state	Lock-table entry for resource
+	 * @param user	User that released access
+	 * @param type	Access released
+	 */
+	void released(ResourceState state, ActorRef user, AccessType type) {
+		boolean stillHeld = (type == AccessType.CONCURRENT_READ) ? state.getReaders().isHeldBy(user) : false;
+		Iterator<Lease> leases = state.getLeases().iterator();
+
+		while (leases.hasNext()) {
+			Lease lease = leases.next();
+			if (lease.getHolder().equals(user) && lease.getType() == type) {
+				timers.cancel(lease.getTimeout());
+				leases.remove();
+				if (stillHeld) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Release the hold of access whose lease has run out, and grant waiting
+	 * requests.  The user's other holds keep their own leases.
+	 *
+	 * @param lease	Expired lease
+	 */
+	void expire(Lease lease) {
+		ResourceState state = lease.getState();
+
+		state.getLeases().remove(lease);
+		if (lease.getType() == AccessType.EXCLUSIVE_WRITE && lease.getHolder().equals(state.getWriter())) {
+			state.getPayload().discard();	// Writer may be midway through its update
+		}
+		if (manager.dropHold(state, lease.getHolder(), lease.getType())) {
+			if (manager.logs(LogMsg.EventType.ACCESS_RELEASED)) {
+				manager.log(LogMsg.makeAccessReleasedLogMsg(lease.getHolder(), manager.getSelf(), new AccessRelease(state.getName(), lease.getType())));
+			}
+			manager.handleBlockingAccessRequests(state);
+		}
+	}
+
+	/**
+	 * Stop the leases on a resource being handed over to another manager.
+	 *
+	 * @param state	Lock-table entry for resource
+	 * @param now	Current time, in milliseconds
+	 * @return		Leases with the time each had left, for the new manager to restart
+	 */
+	List<ResourceHandoff.HeldLease> handOff(ResourceState state, long now) {
+		ArrayList<ResourceHandoff.HeldLease> held = new ArrayList<ResourceHandoff.HeldLease>();
+
+		for (Lease lease : state.getLeases()) {
+			held.add(new ResourceHandoff.HeldLease(lease.getHolder(), lease.getType(), timers.remainingMs(lease.getTimeout(), now)));
+			timers.cancel(lease.getTimeout());
+		}
+		return held;
+	}
+
+	/**
+	 * Restart the leases on a resource handed over by another manager.
+	 *
+	 * @param state	Lock-table entry for resource
+	 * @param held	Leases with the time each had left
+	 */
+	void adopt(ResourceState state, List<ResourceHandoff.HeldLease> held) {
+		for (ResourceHandoff.HeldLease lease : held) {
+			start(state, lease.getHolder(), lease.getType(), lease.getRemainingMs());
+		}
+	}
+}
@@ -1,25 +1,40 @@
 package cmsc433.mp3.actors;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.AbstractActor.Receive;
+import cmsc433.mp3.enums.LogOverflowPolicy;
+import cmsc433.mp3.messages.LogBatchMsg;
 import cmsc433.mp3.messages.LogMsg;
 import cmsc433.mp3.messages.LogResultMsg;
+import cmsc433.mp3.messages.LogSnapshotRequestMsg;
+import cmsc433.mp3.messages.UserTerminatedMsg;
+import cmsc433.mp3.util.LogMerger;
+import cmsc433.mp3.util.LogRingBuffer;
+import cmsc433.mp3.util.LogSegmentWriter;
 import akka.actor.AbstractActor;
 
 /**
-
+ * Class of actors logging the events of one stripe of a simulated system.  Each
+ * node has a stripe of its own, to which its manager and users log; the simulation
+ * manager merges the stripes' logs by timestamp when the simulation is done.
  */
 public class LoggerActor extends AbstractActor {
 	
-	// Event log
-	private ArrayList<Object> log = new ArrayList<Object>();
-	
-	// Users who have started but not terminated.
-	private ArrayList<ActorRef> activeUsers = new ArrayList<ActorRef>();
+	// Default bound on number of events held, and what to do once it is reached
+	public static final int DEFAULT_CAPACITY = 1 << 18;
+	public static final LogOverflowPolicy DEFAULT_OVERFLOW_POLICY = LogOverflowPolicy.OVERWRITE_OLDEST;
+
+	// Event log, held off-heap as binary records
+	private final LogRingBuffer log;
+
+	// Sink streaming events to segment files, or null if there is none
+	private LogSegmentWriter segmentWriter;
 	
 	// Destination for eventual log.
 	
@@ -29,8 +44,8 @@ public class LoggerActor extends AbstractActor {
 	 * Props structure-generator for this class.
 	 * @return  Props structure
 	 */
-	static Props props (ActorRef simulationManager) {
-		return Props.create(LoggerActor.class, simulationManager);
+	static Props props (ActorRef simulationManager, int stripe, int capacity, LogOverflowPolicy policy, File segmentDirectory) {
+		return Props.create(LoggerActor.class, simulationManager, stripe, capacity, policy, segmentDirectory);
 	}
 	
 	/**
@@ -40,18 +55,54 @@ public class LoggerActor extends AbstractActor {
 	 * @return					Reference to new manager
 	 */
 	public static ActorRef makeLogger (ActorRef simulationManager, ActorSystem system) {
-		ActorRef newLogger = system.actorOf(props(simulationManager));
+		return makeLogger(simulationManager, system, 0, DEFAULT_CAPACITY, DEFAULT_OVERFLOW_POLICY, null);
+	}
+
+	/**
+	 * Factory method for creating log stripes holding a bounded number of events,
+	 * and optionally also streaming every event to segment files, which
+	 * LogSegmentReader decodes.
+	 * @param simulationManager	Actor to whom to report user terminations
+	 * @param system			Actor system in which logger will execute
+	 * @param stripe			Number of stripe, naming its segment files
+	 * @param capacity			Maximum number of events held
+	 * @param policy			What to do with new events once capacity is reached
+	 * @param segmentDirectory	Directory to write segments to, or null for none
+	 * @return					Reference to new logger
+	 */
+	public static ActorRef makeLogger (ActorRef simulationManager, ActorSystem system, int stripe, int capacity, LogOverflowPolicy policy, File segmentDirectory) {
+		ActorRef newLogger = system.actorOf(props(simulationManager, stripe, capacity, policy, segmentDirectory));
 		return newLogger;
 	}
 	
 	/**
 	 * Constructor
 	 * 
-	 * @param simulationManager	Actor to send result to when simulation is finished.
+	 * @param simulationManager	Actor to report user terminations to.
+	 * @param stripe			Number of stripe, naming its segment files
+	 * @param capacity			Maximum number of events held
+	 * @param policy			What to do with new events once capacity is reached
+	 * @param segmentDirectory	Directory to write segments to, or null for none
 	 */
-	private LoggerActor(ActorRef simulationManager) {
+	private LoggerActor(ActorRef simulationManager, int stripe, int capacity, LogOverflowPolicy policy, File segmentDirectory) {
 		super();
 		this.simulationManager = simulationManager;
+		this.log = new LogRingBuffer(capacity, policy);
+		if (segmentDirectory != null) {
+			try {
+				segmentWriter = new LogSegmentWriter(segmentDirectory, "events-" + stripe, LogSegmentWriter.DEFAULT_SEGMENT_SIZE);
+			}
+			catch (IOException e) {
+				System.err.println("Logger: cannot write segments to " + segmentDirectory + ": " + e);
+			}
+		}
+	}
+
+	@Override
+	public void postStop() {
+		if (segmentWriter != null) {
+			segmentWriter.close();
+		}
 	}
 
 	@Override
@@ -63,25 +114,53 @@ public class LoggerActor extends AbstractActor {
 	}
 	
 
+	/**
+	 * Log a single event.
+	 * 
+	 * @param lMsg	Event
+	 */
+	private void record(LogMsg lMsg) {
+		log.append(lMsg);
+		if (segmentWriter != null) {
+			try {
+				segmentWriter.append(lMsg);
+			}
+			catch (IOException e) {
+				// Keep logging in memory, but stop streaming to segments.
+				System.err.println("Logger: segment write failed, no longer writing segments: " + e);
+				segmentWriter.close();
+				segmentWriter = null;
+			}
+		}
+
+		// Check if event corresponds to user termination; if so, tell simulation
+		// manager, which knows when all users have terminated
+		if (lMsg.getType() == LogMsg.EventType.USER_TERMINATE) {
+			simulationManager.tell(new UserTerminatedMsg(lMsg.getUser()), getSelf());
+		}
+	}
+
 	public void onReceive(Object msg) throws Exception {
-		// TODO Auto-generated method stub
 		if (msg instanceof LogMsg) {  // Message is event to log.
-			log.add(msg);
-			LogMsg lMsg = (LogMsg)msg;
-
-			// Check if event corresponds to user start; if so, add to list of users
-			if (lMsg.getType() == LogMsg.EventType.USER_START) {
-				activeUsers.add(lMsg.getUser());
+			record((LogMsg) msg);
+		}
+		else if (msg instanceof LogBatchMsg) {  // Message is several events, in order.
+			for (LogMsg lMsg : ((LogBatchMsg) msg).getEvents()) {
+				record(lMsg);
+			}
+		}
+		else if (msg instanceof LogSnapshotRequestMsg) {
+			// Send out events held, in timestamp order, ready to be merged with the
+			// other stripes
+			if (segmentWriter != null) {
+				segmentWriter.force();
 			}
-			
-			// Check if event corresponds to user termination; if so, remove from list
-			// of users.  If list becomes empty, send log out
-			else if (lMsg.getType() == LogMsg.EventType.USER_TERMINATE) {
-				activeUsers.remove(lMsg.getUser());
-				if (activeUsers.isEmpty()) {
-					simulationManager.tell(new LogResultMsg(log), getSelf());
-				}
+			if (log.getDropped() > 0) {
+				System.err.println("Logger: " + log.getDropped() + " events lost to overflow (capacity " + log.getCapacity() + ")");
 			}
+			ArrayList<Object> events = log.toList();
+			LogMerger.sort(events);
+			getSender().tell(new LogResultMsg(events), getSelf());
 		}
 		else {
 			throw new Exception ("Invalid message sent to logger");
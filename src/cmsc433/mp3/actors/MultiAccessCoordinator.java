@@ -0,0 +1,371 @@
+package cmsc433.mp3.actors;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessRequestDenialReason;
+import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.messages.AccessRequestMsg;
+import cmsc433.mp3.messages.LogMsg;
+import cmsc433.mp3.messages.MultiAccessDeniedMsg;
+import cmsc433.mp3.messages.MultiAccessGrantedMsg;
+import cmsc433.mp3.messages.MultiAccessRequestMsg;
+import cmsc433.mp3.messages.ReservationAbortMsg;
+import cmsc433.mp3.messages.ReservationCommitMsg;
+import cmsc433.mp3.messages.ReservationCommittedMsg;
+import cmsc433.mp3.messages.ReservationRequestMsg;
+import cmsc433.mp3.messages.ReservationResponseMsg;
+import cmsc433.mp3.messages.ReservationRetryMsg;
+import cmsc433.mp3.util.AccessRequest;
+import cmsc433.mp3.util.MultiAccessRequest;
+import cmsc433.mp3.util.PendingMultiAccess;
+import cmsc433.mp3.util.Reservation;
+import cmsc433.mp3.util.ResourcePool;
+import cmsc433.mp3.util.ResourceState;
+import cmsc433.mp3.util.TimerWheel;
+import cmsc433.mp3.util.WaitTimeStats;
+
+/**
+ * Multi-resource requests, on both sides.  As coordinator of a request made by
+ * one of its users, the manager reserves the resources one at a time, in the
+ * global order of their names, at the managers owning them; once all are reserved
+ * it commits them, and grants the request when every owner has acknowledged.  If a
+ * resource is busy, every reservation made so far is aborted, and the coordinator
+ * starts again from the first resource once the busy one changes, so a user never
+ * holds some of the resources while waiting for others.  As owner of a resource,
+ * the manager reserves it if the resource's scheduling policy would grant a
+ * blocking request for it right now, and turns the reservation into a grant (or
+ * drops it) when told to.
+ *
+ * The request's deadline bounds the whole request:  if it passes before the
+ * commits are sent, the reservations are aborted and the request is denied.
+ *
+ * Instances are owned by a single manager, and used only while it handles a
+ * message; they must never be shared between actors.
+ */
+class MultiAccessCoordinator {
+	private final ResourceManagerActor manager;
+	private final LeaseKeeper leases;			// Manager's leases
+	private final ReadDelegator delegator;		// Manager's read delegation
+	private final WaitTimeStats waitTimes;		// Manager's wait statistics
+	private final TimerWheel<Object> timers;	// Manager's timer wheel
+	private Map<Long, PendingMultiAccess> pending = new HashMap<Long, PendingMultiAccess>();	// Requests being coordinated, by id
+	private long nextId = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param manager	Manager owning coordinator
+	 * @param leases	Manager's leases
+	 * @param delegator	Manager's read delegation
+	 * @param waitTimes	Manager's wait statistics
+	 * @param timers	Manager's timer wheel
+	 */
+	MultiAccessCoordinator(ResourceManagerActor manager, LeaseKeeper leases, ReadDelegator delegator, WaitTimeStats waitTimes, TimerWheel<Object> timers) {
+		this.manager = manager;
+		this.leases = leases;
+		this.delegator = delegator;
+		this.waitTimes = waitTimes;
+		this.timers = timers;
+	}
+
+	/**
+	 * Start coordinating a multi-resource request from a user.  Pools are refused:
+	 * their members are chosen by their managers, so they have no place in the
+	 * global order.
+	 *
+	 * @param message	Request message
+	 */
+	void start(MultiAccessRequestMsg message) {
+		MultiAccessRequest request = message.getRequest();
+		PendingMultiAccess multi = new PendingMultiAccess(nextId++, request, message.getUser());
+
+		for (String resourceName : request.getResourceNames()) {
+			if (manager.logs(LogMsg.EventType.ACCESS_REQUEST_RECEIVED)) {
+				manager.log(LogMsg.makeAccessRequestReceivedLogMsg(multi.getUser(), manager.getSelf(), partOf(multi, resourceName)));
+			}
+		}
+		for (String resourceName : request.getResourceNames()) {
+			if (ResourcePool.isPattern(resourceName)) {
+				deny(multi, AccessRequestDenialReason.RESOURCE_NOT_FOUND);
+				return;
+			}
+		}
+		pending.put(multi.getId(), multi);
+		if (request.getDeadlineMs() > 0) {
+			multi.setDeadline(manager.scheduleTimeout(multi, request.getDeadlineMs()));
+		}
+		reserveNext(multi);
+	}
+
+	/**
+	 * Reserve the next resource of a request, or commit them all once every one is
+	 * reserved.
+	 *
+	 * @param multi	Request being coordinated
+	 */
+	private void reserveNext(PendingMultiAccess multi) {
+		String resourceName = multi.getNextResourceName();
+
+		if (resourceName != null) {
+			// Sent through the manager's front, which knows the shard owning a local resource
+			manager.managerRef().tell(new ReservationRequestMsg(reservationOf(multi, resourceName)), manager.getSelf());
+			return;
+		}
+		if (multi.getDeadline() != null) {
+			timers.cancel(multi.getDeadline());
+		}
+		multi.setCommitsOutstanding(multi.getOwners().size());
+		for (Map.Entry<String, ActorRef> owner : multi.getOwners().entrySet()) {
+			owner.getValue().tell(new ReservationCommitMsg(reservationOf(multi, owner.getKey())), manager.getSelf());
+		}
+	}
+
+	/**
+	 * Process an owner's answer to a reservation:  move on to the next resource if
+	 * it was made, and otherwise abort the reservations made so far, to wait for the
+	 * busy resource or deny the request.  A reservation made for a request that has
+	 * meanwhile been denied is aborted at once.
+	 *
+	 * @param message	Response message
+	 */
+	void handleResponse(ReservationResponseMsg message) {
+		Reservation reservation = message.getReservation();
+		PendingMultiAccess multi = pending.get(reservation.getRequestId());
+
+		if (multi == null) {
+			if (message.isReserved()) {
+				message.getOwner().tell(new ReservationAbortMsg(reservation), manager.getSelf());
+			}
+		}
+		else if (message.isReserved()) {
+			multi.reserved(reservation.getResourceName(), message.getOwner());
+			reserveNext(multi);
+		}
+		else if (message.getRefusal() == AccessRequestDenialReason.RESOURCE_BUSY) {
+			abortAll(multi);
+			multi.restart();
+			multi.setWaitingFor(reservation.getResourceName());
+		}
+		else {
+			abortAll(multi);
+			pending.remove(multi.getId());
+			deny(multi, message.getRefusal());
+		}
+	}
+
+	/**
+	 * Start again from the first resource of a request waiting for a busy resource,
+	 * once the resource has changed.  Notices for anything else the request is no
+	 * longer waiting for are ignored.
+	 *
+	 * @param message	Retry message
+	 */
+	void handleRetry(ReservationRetryMsg message) {
+		Reservation reservation = message.getReservation();
+		PendingMultiAccess multi = pending.get(reservation.getRequestId());
+
+		if (multi != null && reservation.getResourceName().equals(multi.getWaitingFor())) {
+			multi.setWaitingFor(null);
+			reserveNext(multi);
+		}
+	}
+
+	/**
+	 * Record an owner's acknowledgment of a commit, and grant the request once every
+	 * owner has acknowledged.  The grant names the owner of each resource, so the
+	 * user can send its releases there directly.
+	 *
+	 * @param message	Acknowledgment message
+	 */
+	void handleCommitted(ReservationCommittedMsg message) {
+		Reservation reservation = message.getReservation();
+		PendingMultiAccess multi = pending.get(reservation.getRequestId());
+
+		if (multi != null && multi.committed(reservation.getResourceName(), message.getOwner())) {
+			pending.remove(multi.getId());
+			waitTimes.record(multi.getRequest().getPriority(), System.nanoTime() - multi.getStartNanos());
+			manager.send(multi.getUser(), new MultiAccessGrantedMsg(multi.getRequest(), multi.getOwners()), manager.getSelf());
+		}
+	}
+
+	/**
+	 * Deny a request whose deadline has passed, aborting the reservations made for
+	 * it.  A request whose commits have been sent is about to be granted, and is left
+	 * alone.
+	 *
+	 * @param multi	Request whose deadline expired
+	 */
+	void expire(PendingMultiAccess multi) {
+		if (pending.get(multi.getId()) != multi || multi.isCommitting()) {
+			return;
+		}
+		abortAll(multi);
+		pending.remove(multi.getId());
+		deny(multi, AccessRequestDenialReason.REQUEST_TIMED_OUT);
+	}
+
+	/**
+	 * Reserve a resource for a coordinator, if it is local and could be granted
+	 * right now; otherwise pass the reservation on to the resource's manager, or look
+	 * the manager up.  A write reservation recalls read delegations, as a write
+	 * request would.
+	 *
+	 * @param message	Reservation message
+	 */
+	void handleRequest(ReservationRequestMsg message) {
+		Reservation reservation = message.getReservation();
+		ResourceState state = manager.lookupLocalResource(reservation.getResourceName());
+
+		if (state == null) {
+			if (!manager.forwardIfRemote(reservation.getResourceName(), message)) {
+				manager.findOwner(reservation);
+			}
+			return;
+		}
+		AccessRequestMsg hold = holdOf(reservation);
+
+		if (reservation.getType() == AccessType.EXCLUSIVE_WRITE) {
+			delegator.recall(state);
+		}
+		if (state.getPolicy().admitNow(state, hold)) {
+			manager.acquire(state, hold);
+			reply(reservation, null);
+		}
+		else {
+			state.getRefusedReservations().add(reservation);
+			reply(reservation, AccessRequestDenialReason.RESOURCE_BUSY);
+		}
+	}
+
+	/**
+	 * Refuse a reservation for a resource that is not local.
+	 *
+	 * @param reservation	Reservation refused
+	 * @param reason		Why it is refused
+	 */
+	void refuse(Reservation reservation, AccessRequestDenialReason reason) {
+		reply(reservation, reason);
+	}
+
+	/**
+	 * Turn a reservation into a grant:  start its lease, and log the grant before
+	 * acknowledging it to the coordinator.  A commit for a resource that has moved
+	 * is passed on to its new manager.
+	 *
+	 * @param message	Commit message
+	 */
+	void handleCommit(ReservationCommitMsg message) {
+		Reservation reservation = message.getReservation();
+		ResourceState state = manager.lookupLocalResource(reservation.getResourceName());
+
+		if (state == null && manager.forwardIfRemote(reservation.getResourceName(), message)) {
+			return;
+		}
+		if (state != null && isHeld(state, reservation) && reservation.getLeaseMs() > 0) {
+			leases.start(state, reservation.getUser(), reservation.getType(), reservation.getLeaseMs());
+		}
+		if (manager.logs(LogMsg.EventType.ACCESS_REQUEST_GRANTED)) {
+			manager.log(LogMsg.makeAccessRequestGrantedLogMsg(reservation.getUser(), manager.getSelf(), reservation.toAccessRequest()));
+		}
+		manager.send(reservation.getCoordinator(), new ReservationCommittedMsg(reservation, manager.getSelf()), manager.getSelf());
+	}
+
+	/**
+	 * Drop a reservation, and grant waiting requests.  An abort for a resource that
+	 * has moved is passed on to its new manager.
+	 *
+	 * @param message	Abort message
+	 */
+	void handleAbort(ReservationAbortMsg message) {
+		Reservation reservation = message.getReservation();
+		ResourceState state = manager.lookupLocalResource(reservation.getResourceName());
+
+		if (state == null) {
+			manager.forwardIfRemote(reservation.getResourceName(), message);
+		}
+		else if (manager.dropHold(state, reservation.getUser(), reservation.getType())) {
+			manager.handleBlockingAccessRequests(state);
+		}
+	}
+
+	/**
+	 * Tell the coordinators of reservations refused because a resource was busy that
+	 * it has changed.
+	 *
+	 * @param state	Lock-table entry for resource
+	 */
+	void resourceChanged(ResourceState state) {
+		if (state.getRefusedReservations().isEmpty()) {
+			return;
+		}
+		for (Reservation reservation : state.getRefusedReservations()) {
+			reservation.getCoordinator().tell(new ReservationRetryMsg(reservation), manager.getSelf());
+		}
+		state.getRefusedReservations().clear();
+	}
+
+	/**
+	 * Abort every reservation made for a request.
+	 *
+	 * @param multi	Request being coordinated
+	 */
+	private void abortAll(PendingMultiAccess multi) {
+		for (Map.Entry<String, ActorRef> owner : multi.getOwners().entrySet()) {
+			owner.getValue().tell(new ReservationAbortMsg(reservationOf(multi, owner.getKey())), manager.getSelf());
+		}
+	}
+
+	/**
+	 * Log and send denial of a request, which holds none of its resources.
+	 *
+	 * @param multi		Request being denied
+	 * @param reason	Why request is denied
+	 */
+	private void deny(PendingMultiAccess multi, AccessRequestDenialReason reason) {
+		if (manager.logs(LogMsg.EventType.ACCESS_REQUEST_DENIED)) {
+			for (String resourceName : multi.getRequest().getResourceNames()) {
+				manager.log(LogMsg.makeAccessRequestDeniedLogMsg(multi.getUser(), manager.getSelf(), partOf(multi, resourceName), reason));
+			}
+		}
+		manager.send(multi.getUser(), new MultiAccessDeniedMsg(multi.getRequest(), reason), manager.getSelf());
+	}
+
+	private void reply(Reservation reservation, AccessRequestDenialReason refusal) {
+		reservation.getCoordinator().tell(new ReservationResponseMsg(reservation, manager.getSelf(), refusal), manager.getSelf());
+	}
+
+	private Reservation reservationOf(PendingMultiAccess multi, String resourceName) {
+		MultiAccessRequest request = multi.getRequest();
+		return new Reservation(manager.getSelf(), multi.getId(), multi.getUser(), resourceName,
+				request.getType(), request.getLeaseMs(), request.getPriority());
+	}
+
+	/**
+	 * @param multi			Request being coordinated
+	 * @param resourceName	One of its resources
+	 * @return				Blocking request for the resource alone, as it is logged
+	 */
+	private AccessRequest partOf(PendingMultiAccess multi, String resourceName) {
+		return reservationOf(multi, resourceName).toAccessRequest();
+	}
+
+	/**
+	 * @param reservation	Reservation
+	 * @return				Request checked against the resource's scheduling policy,
+	 * 						and held, for the reservation:  the lease starts only on
+	 * 						commit
+	 */
+	private static AccessRequestMsg holdOf(Reservation reservation) {
+		AccessRequest request = reservation.toAccessRequest();
+		return new AccessRequestMsg(new AccessRequest(request.getResourceName(), request.getType(), 0, 0, request.getPriority()),
+				reservation.getUser());
+	}
+
+	private static boolean isHeld(ResourceState state, Reservation reservation) {
+		return (reservation.getType() == AccessType.CONCURRENT_READ)
+				? state.getReaders().isHeldBy(reservation.getUser())
+				: reservation.getUser().equals(state.getWriter());
+	}
+}
@@ -0,0 +1,207 @@
+package cmsc433.mp3.actors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessRequestType;
+import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.messages.AccessReleaseMsg;
+import cmsc433.mp3.messages.AccessRequestGrantedMsg;
+import cmsc433.mp3.messages.AccessRequestMsg;
+import cmsc433.mp3.messages.LogMsg;
+import cmsc433.mp3.messages.ReadDelegationGrantMsg;
+import cmsc433.mp3.messages.ReadDelegationRecallMsg;
+import cmsc433.mp3.messages.ReadDelegationReturnMsg;
+import cmsc433.mp3.util.AccessRelease;
+import cmsc433.mp3.util.AccessRequest;
+import cmsc433.mp3.util.ReadDelegation;
+import cmsc433.mp3.util.ResourceState;
+import cmsc433.mp3.util.WaitTimeStats;
+
+/**
+ * Read delegation, on both sides.  As owner of a resource, the manager grants a
+ * remote manager whose read it has just granted a delegation for the resource,
+ * and recalls every delegation as soon as a request might need the delegates'
+ * reads gone.  As delegate, the manager grants and releases its local users'
+ * reads of the resource itself until the delegation is recalled, when it hands
+ * them back to the owner.
+ *
+ * Instances are owned by a single manager, and used only while it handles a
+ * message; they must never be shared between actors.
+ */
+class ReadDelegator {
+	private final ResourceManagerActor manager;
+	private final Set<ActorRef> remoteManagers;	// Manager's remote managers
+	private final WaitTimeStats waitTimes;		// Manager's wait statistics
+	private Map<String, ReadDelegation> delegations = new HashMap<String, ReadDelegation>();	// Read delegations held for remote resources
+
+	/**
+	 * Constructor
+	 *
+	 * @param manager			Manager owning delegator
+	 * @param remoteManagers	Manager's set of remote managers
+	 * @param waitTimes			Manager's wait statistics
+	 */
+	ReadDelegator(ResourceManagerActor manager, Set<ActorRef> remoteManagers, WaitTimeStats waitTimes) {
+		this.manager = manager;
+		this.remoteManagers = remoteManagers;
+		this.waitTimes = waitTimes;
+	}
+
+	/**
+	 * After granting a read forwarded by a remote manager, grant that manager a read
+	 * delegation for the resource, if reads of it may be delegated and no writer is
+	 * waiting for it.
+	 *
+	 * @param state		Lock-table entry for resource
+	 * @param message	Read request just granted
+	 * @param source	Sender of request
+	 */
+	void delegateReads(ResourceState state, AccessRequestMsg message, ActorRef source) {
+		if (!state.isDelegatingReads() || !ResourceState.isRead(message) || !remoteManagers.contains(source)
+				|| state.getDelegates().contains(source) || state.isRecalling()
+				|| state.getWaitQueue().getQueuedWrites() > 0 || state.getPendingUpgrade() != null) {
+			return;
+		}
+		state.getDelegates().add(source);
+		state.getReaders().acquire(source);
+		source.tell(new ReadDelegationGrantMsg(state.getName(), manager.managerRef(), state.getPayload().view()), manager.getSelf());
+	}
+
+	/**
+	 * Recall all read delegations for a resource, unless they are already being
+	 * recalled.  Until every delegate has returned its delegation, the delegates
+	 * count as readers.
+	 *
+	 * @param state		Lock-table entry for resource
+	 */
+	void recall(ResourceState state) {
+		if (state.isRecalling() || state.getDelegates().isEmpty()) {
+			return;
+		}
+		state.setRecalling(true);
+		for (ActorRef delegate : state.getDelegates()) {
+			delegate.tell(new ReadDelegationRecallMsg(state.getName()), manager.getSelf());
+		}
+	}
+
+	/**
+	 * Take back a delegation returned by a delegate, with the reads granted under it,
+	 * and grant waiting requests.
+	 *
+	 * @param message	Return message
+	 */
+	void handleReturn(ReadDelegationReturnMsg message) {
+		ResourceState state = manager.lookupLocalResource(message.getResourceName());
+
+		if (state != null && state.getDelegates().remove(message.getDelegate())) {
+			state.getReaders().release(message.getDelegate());
+			for (Map.Entry<ActorRef, Integer> holds : message.getReadHolds().entrySet()) {
+				for (int i = 0; i < holds.getValue(); i++) {
+					state.getReaders().acquire(holds.getKey());
+				}
+				manager.watchUser(holds.getKey());
+			}
+			if (state.getDelegates().isEmpty()) {
+				state.setRecalling(false);
+			}
+			manager.handleBlockingAccessRequests(state);
+		}
+	}
+
+	/**
+	 * Accept a delegation granted by the manager of a remote resource.
+	 *
+	 * @param message	Grant message
+	 */
+	void handleGrant(ReadDelegationGrantMsg message) {
+		if (!delegations.containsKey(message.getResourceName())) {
+			delegations.put(message.getResourceName(),
+					new ReadDelegation(message.getResourceName(), message.getOwner(), message.getPayload()));
+		}
+	}
+
+	/**
+	 * Give up a delegation recalled by its owner, returning the reads granted under
+	 * it.
+	 *
+	 * @param message	Recall message
+	 * @param owner		Manager recalling delegation
+	 */
+	void handleRecall(ReadDelegationRecallMsg message, ActorRef owner) {
+		ReadDelegation delegation = delegations.remove(message.getResourceName());
+		Map<ActorRef, Integer> readHolds = new HashMap<ActorRef, Integer>();
+
+		if (delegation != null) {
+			for (ActorRef reader : delegation.getReaders().getHolders()) {
+				readHolds.put(reader, delegation.getReaders().getHoldCount(reader));
+			}
+		}
+		owner.tell(new ReadDelegationReturnMsg(message.getResourceName(), manager.managerRef(), readHolds), manager.getSelf());
+	}
+
+	/**
+	 * Grant a read of a remote resource under a read delegation held for it, if
+	 * there is one and the request asks for no lease.
+	 *
+	 * @param message	Request for remote resource
+	 * @return			True if request was granted
+	 */
+	boolean grantRead(AccessRequestMsg message) {
+		AccessRequest request = message.getAccessRequest();
+		ReadDelegation delegation = delegations.get(request.getResourceName());
+		ActorRef user = message.getReplyTo();
+
+		if (delegation == null || !ResourceState.isRead(message) || request.getLeaseMs() != 0) {
+			return false;
+		}
+		if (request.getType() == AccessRequestType.CONCURRENT_READ_BLOCKING) {
+			waitTimes.record(request.getPriority(), 0);
+		}
+		delegation.getReaders().acquire(user);
+		manager.watchUser(user);
+		if (manager.logs(LogMsg.EventType.ACCESS_REQUEST_GRANTED)) {
+			manager.log(LogMsg.makeAccessRequestGrantedLogMsg(user, manager.getSelf(), request));
+		}
+		manager.reply(user, new AccessRequestGrantedMsg(request, manager.getSelf(), request.getResourceName(), -1, delegation.getPayload()));
+		return true;
+	}
+
+	/**
+	 * Release a read of a remote resource granted under a read delegation, if the
+	 * user holds one.
+	 *
+	 * @param message	Release of remote resource
+	 * @return			True if read was released
+	 */
+	boolean release(AccessReleaseMsg message) {
+		AccessRelease accessRelease = message.getAccessRelease();
+		ReadDelegation delegation = delegations.get(accessRelease.getResourceName());
+
+		if (delegation == null || accessRelease.getType() != AccessType.CONCURRENT_READ
+				|| !delegation.getReaders().release(message.getSender())) {
+			return false;
+		}
+		if (manager.logs(LogMsg.EventType.ACCESS_RELEASED)) {
+			manager.log(LogMsg.makeAccessReleasedLogMsg(message.getSender(), manager.getSelf(), accessRelease));
+		}
+		return true;
+	}
+
+	/**
+	 * Release every read a stopped user holds under delegations.
+	 *
+	 * @param user	User that has stopped
+	 */
+	void reclaimFromUser(ActorRef user) {
+		for (ReadDelegation delegation : delegations.values()) {
+			while (delegation.getReaders().release(user)) {
+				if (manager.logs(LogMsg.EventType.ACCESS_RELEASED)) {
+					manager.log(LogMsg.makeAccessReleasedLogMsg(user, manager.getSelf(), new AccessRelease(delegation.getResourceName(), AccessType.CONCURRENT_READ)));
+				}
+			}
+		}
+	}
+}
@@ -1,42 +1,82 @@
 package cmsc433.mp3.actors;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
+import akka.actor.Terminated;
 import akka.actor.AbstractActor.Receive;
 import cmsc433.mp3.enums.*;
 import cmsc433.mp3.messages.*;
 import cmsc433.mp3.util.*;
 import akka.actor.AbstractActor;
+import scala.concurrent.duration.Duration;
 
 public class ResourceManagerActor extends AbstractActor {
 	
+	private static final int NEGATIVE_CACHE_CAPACITY = 1024;	// Unknown resource names remembered
+	private static final long NEGATIVE_CACHE_TTL_MS = 1000;		// How long they are remembered
+	private static final int TIMER_SLOTS = 256;					// Slots in timer wheel
+	private static final long TIMER_TICK_MS = 10;				// Resolution of timeouts
+	private static final int LOG_BATCH_SIZE = 64;				// Events buffered before sending to logger
+	
 	private ActorRef logger;					// Actor to send logging messages to
+	private final LogClock clock = new LogClock();	// Stamps events logged
+	private LogSampler logSampler;				// Decides which events are logged
+	private ArrayList<LogMsg> logBuffer = new ArrayList<LogMsg>();	// Events not yet sent to logger
+	private final int shardIndex;				// Index among shards of a ShardedResourceManagerActor, or -1
+	private final int shardCount;				// Number of shards in this manager's node
 	
 	private Set<ActorRef> remoteManagers = new HashSet<ActorRef>();
 	private Set<ActorRef> localUsers = new HashSet<ActorRef>();
-	private Map<String, Resource> localResources = new HashMap<String, Resource>();
-	private Map<String, Queue<AccessRequestMsg>> resourceQueue = new HashMap<String, Queue<AccessRequestMsg>>();
-	private Map<String, List<ActorRef>> resourceReads = new HashMap<String, List<ActorRef>>();
-	private Map<String, ActorRef> resourceWrites = new HashMap<String, ActorRef>();
-	private Map<ActorRef, Map<String, AccessRequestMsg>> resourceRequestMessages = new HashMap<ActorRef, Map<String, AccessRequestMsg>>();
+	private Map<String, Integer> resourceIds = new HashMap<String, Integer>();	// Local resource name -> dense id
+	private ResourceState[] resourceStates = new ResourceState[16];				// Lock table, indexed by id
+	private int resourceCount = 0;
+	private Map<String, ResourcePool> pools = new HashMap<String, ResourcePool>();	// Families of local resources, by pattern
+	private Map<String, Set<Integer>> poolHolders = new HashMap<String, Set<Integer>>();	// Sibling shards holding members, by pattern
+	private Map<String, Set<Integer>> poolWaiters = new HashMap<String, Set<Integer>>();	// Sibling shards with pool requests waiting, by pattern
+	private final DeadlockDetector deadlocks = new DeadlockDetector(this, remoteManagers);
 	private Map<String, ActorRef> remoteResourceList = new HashMap<String, ActorRef>();
-	private Map<AccessRequestMsg, Integer> potentialRemoteResourceList = new HashMap<AccessRequestMsg, Integer>();
+	private Map<String, ActorRef> movedResources = new HashMap<String, ActorRef>();	// Resources handed over, by name -> new manager
+	private Map<String, PendingLookup> pendingLookups = new HashMap<String, PendingLookup>();	// In-flight discovery, by resource name
+	private NegativeLookupCache unknownResources = new NegativeLookupCache(NEGATIVE_CACHE_CAPACITY, NEGATIVE_CACHE_TTL_MS);
+	
+	private final TimerWheel<Object> timers = new TimerWheel<Object>(TIMER_SLOTS, TIMER_TICK_MS, nowMs());	// Pending timeouts
+	private final LeaseKeeper leases = new LeaseKeeper(this, timers);
+	private final ResourceMigrator migrator = new ResourceMigrator(this, leases, deadlocks, timers);
+	private boolean timerTickScheduled = false;
+	private Set<ActorRef> watchedUsers = new HashSet<ActorRef>();	// Users watched for termination
+	private final WaitTimeStats waitTimes = new WaitTimeStats();	// Waits of granted blocking requests
+	private final ReadDelegator delegator = new ReadDelegator(this, remoteManagers, waitTimes);
+	private final MultiAccessCoordinator multiAccess = new MultiAccessCoordinator(this, leases, delegator, waitTimes, timers);
+	
+	private ActorRef batchUser;									// User whose AccessBatchMsg is being processed, if any
+	private ArrayList<Object> batchReplies;						// Replies to batch held back for a single reply
+	private Map<ActorRef, ArrayList<Object>> batchForwards;		// Accesses in batch to forward, by remote manager
+	private Map<ActorRef, ResourceBloomFilter[]> remoteSummaries = new HashMap<ActorRef, ResourceBloomFilter[]>();	// Published summary parts, by manager
 
 	/**
 	 * Props structure-generator for this class.
 	 * @return  Props structure
 	 */
-	static Props props (ActorRef logger) {
-		return Props.create(ResourceManagerActor.class, logger);
+	static Props props (ActorRef logger, LogFilter logFilter) {
+		return Props.create(ResourceManagerActor.class, logger, -1, 1, logFilter);
+	}
+	
+	/**
+	 * Props structure-generator for managers acting as one shard of a
+	 * ShardedResourceManagerActor.
+	 * @return  Props structure
+	 */
+	static Props shardProps (ActorRef logger, int shardIndex, int shardCount, LogFilter logFilter) {
+		return Props.create(ResourceManagerActor.class, logger, shardIndex, shardCount, logFilter);
 	}
 	
 	/**
@@ -46,32 +86,127 @@ public class ResourceManagerActor extends AbstractActor {
 	 * @return					Reference to new manager
 	 */
 	public static ActorRef makeResourceManager (ActorRef logger, ActorSystem system) {
-		ActorRef newManager = system.actorOf(props(logger));
+		ActorRef newManager = system.actorOf(props(logger, LogFilter.ALL));
+		return newManager;
+	}
+	
+	/**
+	 * Factory method for creating resource managers whose lock table is split
+	 * across several shard actors.  With one shard this is the same as an
+	 * ordinary manager.
+	 * @param logger			Actor to send logging messages to
+	 * @param system			Actor system in which manager will execute
+	 * @param shards			Number of shards to split manager into
+	 * @return					Reference to new manager
+	 */
+	public static ActorRef makeResourceManager (ActorRef logger, ActorSystem system, int shards) {
+		return makeResourceManager(logger, system, shards, LogFilter.ALL);
+	}
+	
+	/**
+	 * Factory method for creating resource managers, possibly sharded, that log only
+	 * the events a filter accepts.  The filter may be changed later with a
+	 * SetLogFilterMsg.
+	 * @param logger			Actor to send logging messages to
+	 * @param system			Actor system in which manager will execute
+	 * @param shards			Number of shards to split manager into
+	 * @param logFilter			Events to log
+	 * @return					Reference to new manager
+	 */
+	public static ActorRef makeResourceManager (ActorRef logger, ActorSystem system, int shards, LogFilter logFilter) {
+		Props props = (shards <= 1) ? props(logger, logFilter) : ShardedResourceManagerActor.props(logger, shards, logFilter);
+		ActorRef newManager = system.actorOf(props);
 		return newManager;
 	}
 	
 	/**
-	 * Sends a message to the Logger Actor
+	 * Buffers a message for the Logger Actor, stamped with the manager's clock.  The
+	 * buffer is sent when it is full and at the end of every message the manager
+	 * handles, so the logger gets each manager's events in order and at most one
+	 * turn late.
 	 * @param msg The message to be sent to the logger
 	 */
 	public void log (LogMsg msg) {
-		logger.tell(msg, getSelf());
+		logBuffer.add(msg.stamped(clock.tick()));
+		if (logBuffer.size() >= LOG_BATCH_SIZE) {
+			flushLog();
+		}
+	}
+
+	/**
+	 * @param type	Kind of event
+	 * @return		True if events of the kind are logged
+	 */
+	boolean logs(LogMsg.EventType type) {
+		return logSampler.accepts(type);
+	}
+
+	/**
+	 * Sends a message that carries causality between actors (see Timestamped),
+	 * stamped with the manager's clock.
+	 * @param to		Actor to send message to
+	 * @param msg		The message
+	 * @param sender	Sender the receiver sees
+	 */
+	void send (ActorRef to, Timestamped msg, ActorRef sender) {
+		to.tell(msg.stamped(clock.tick()), sender);
+	}
+
+	/**
+	 * Sends buffered messages to the Logger Actor, as one batch if there are several.
+	 */
+	private void flushLog () {
+		if (logBuffer.isEmpty()) {
+			return;
+		}
+		if (logBuffer.size() == 1) {
+			logger.tell(logBuffer.get(0), getSelf());
+			logBuffer.clear();
+		}
+		else {
+			logger.tell(new LogBatchMsg(logBuffer), getSelf());
+			logBuffer = new ArrayList<LogMsg>();
+		}
 	}
 	
 	/**
 	 * Constructor
 	 * 
 	 * @param logger			Actor to send logging messages to
+	 * @param shardIndex		Index of manager among shards of a ShardedResourceManagerActor, or -1
+	 * @param shardCount		Number of shards in manager's node (1 if manager is not a shard)
+	 * @param logFilter			Events to log
 	 */
-	private ResourceManagerActor(ActorRef logger) {
+	private ResourceManagerActor(ActorRef logger, int shardIndex, int shardCount, LogFilter logFilter) {
 		super();
 		this.logger = logger;
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+		this.logSampler = new LogSampler(logFilter);
+	}
+	
+	/**
+	 * @return	Reference by which other managers know this one:  the front actor for
+	 * 			a shard, and the manager itself otherwise
+	 */
+	ActorRef managerRef() {
+		return (shardIndex >= 0) ? getContext().getParent() : getSelf();
 	}
 	
 	@Override
 	public Receive createReceive() {
 		return receiveBuilder()
-				.match(Object.class, this::onReceive)
+				.match(Object.class, msg -> {
+					if (msg instanceof Timestamped) {
+						clock.receive(((Timestamped) msg).getTimestamp());
+					}
+					try {
+						onReceive(msg);
+					}
+					finally {
+						flushLog();
+					}
+				})
 				.build();
 	}
 
@@ -94,12 +229,25 @@ public class ResourceManagerActor extends AbstractActor {
 			ArrayList<ActorRef> managers = message.getManagerList();
 
 			for (ActorRef manager : managers) {
-				if (!manager.equals(getSelf())) {
+				if (!manager.equals(managerRef())) {
 					remoteManagers.add(manager);
 				}
 			}
+			deadlocks.managersChanged();
+			publishResourceSummary();
 			getSender().tell(new AddRemoteManagersResponseMsg(message), getSelf());
 		}
+		else if (msg instanceof ResourceSummaryMsg) {
+			ResourceSummaryMsg message = (ResourceSummaryMsg) msg;
+			ResourceBloomFilter[] parts = remoteSummaries.get(message.getManager());
+
+			if (parts == null || parts.length != message.getPartCount()) {
+				parts = new ResourceBloomFilter[message.getPartCount()];
+				remoteSummaries.put(message.getManager(), parts);
+			}
+			parts[message.getPart()] = message.getFilter();
+			unknownResources.clear();	// Resources may have appeared somewhere
+		}
 		else if (msg instanceof AddLocalUsersRequestMsg) {
 			AddLocalUsersRequestMsg message = (AddLocalUsersRequestMsg) msg;
 			ArrayList<ActorRef> users = message.getLocalUsers();
@@ -114,93 +262,254 @@ public class ResourceManagerActor extends AbstractActor {
 			ArrayList<Resource> resources = message.getLocalResources();
 
 			for (Resource resource : resources) {
-				log(LogMsg.makeLocalResourceCreatedLogMsg(getSelf(), resource.getName()));
-				localResources.put(resource.getName(), resource);
+				if (logSampler.accepts(LogMsg.EventType.LOCAL_RESOURCE_CREATED)) {
+					log(LogMsg.makeLocalResourceCreatedLogMsg(getSelf(), resource.getName()));
+				}
+				addLocalResource(resource);
+			}
+			if (!remoteManagers.isEmpty()) {
+				publishResourceSummary();
 			}
 			getSender().tell(new AddInitialLocalResourcesResponseMsg(message), getSelf());
 		}
 		else if (msg instanceof AccessRequestMsg) {
-			AccessRequestMsg message = (AccessRequestMsg) msg;
-			AccessRequest request = message.getAccessRequest();
-			ActorRef requestSender = message.getReplyTo();
-			String resourceName = request.getResourceName();
-			AccessRequestType requestType = request.getType();
+			handleAccessRequest((AccessRequestMsg) msg);
+			migrator.checkMigrations();
+		}
+		else if (msg instanceof AccessReleaseMsg) {
+			handleAccessRelease((AccessReleaseMsg) msg);
+		}
+		else if (msg instanceof WaitTimeStatsRequestMsg) {
+			// Events logged so far must reach the logger before the simulation
+			// manager, which collects the log once every manager has replied.
+			flushLog();
+			getSender().tell(new WaitTimeStatsResponseMsg(waitTimes.copy()), getSelf());
+		}
+		else if (msg instanceof SetSchedulingPolicyMsg) {
+			SetSchedulingPolicyMsg message = (SetSchedulingPolicyMsg) msg;
+			ResourceState state = lookupLocalResource(message.getResourceName());
 
-			Queue<AccessRequestMsg> accessRequests;
+			if (state != null) {
+				state.setPolicy(message.getPolicy());
+				handleBlockingAccessRequests(state);
+			}
+			else {
+				forwardIfRemote(message.getResourceName(), message);
+			}
+		}
+		else if (msg instanceof AccessCancelMsg) {
+			handleAccessCancel((AccessCancelMsg) msg);
+		}
+		else if (msg instanceof WritePayloadMsg) {
+			WritePayloadMsg message = (WritePayloadMsg) msg;
+			ResourceState state = lookupLocalResource(message.getResourceName());
 
-			log(LogMsg.makeAccessRequestReceivedLogMsg(requestSender, getSelf(), request));
+			if (state != null) {
+				if (message.getSender().equals(state.getWriter())) {
+					state.getPayload().stage(message.getData());
+				}
+			}
+			else {
+				forwardIfRemote(message.getResourceName(), message);
+			}
+		}
+		else if (msg instanceof ValidateReadRequestMsg) {
+			ValidateReadRequestMsg message = (ValidateReadRequestMsg) msg;
+			ResourceState state = lookupLocalResource(message.getResourceName());
 
-			if (localResources.containsKey(resourceName)) {
-				if (requestType == AccessRequestType.CONCURRENT_READ_BLOCKING || requestType == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) {
-					accessRequests = resourceQueue.get(resourceName);
-					if (accessRequests == null) {
-						accessRequests = new LinkedList<AccessRequestMsg>();
-					}
-					accessRequests.add(message);
-					resourceQueue.put(resourceName, accessRequests);
+			if (state != null) {
+				boolean valid = (state.getVersion() == message.getStamp());
+				message.getUser().tell(new ValidateReadResponseMsg(message.getValidation(), valid), getSelf());
+			}
+			else if (!forwardIfRemote(message.getResourceName(), message)) {
+				message.getUser().tell(new ValidateReadResponseMsg(message.getValidation(), false), getSelf());
+			}
+		}
+		else if (msg instanceof MigrateResourceMsg) {
+			MigrateResourceMsg message = (MigrateResourceMsg) msg;
+			ResourceState state = lookupLocalResource(message.getResourceName());
 
-					handleBlockingAccessRequests(resourceName);
+			if (state != null) {
+				if (!message.getTarget().equals(managerRef())) {
+					migrator.migrate(state, message.getTarget());
 				}
-				else {
-					if (resourceQueue.get(resourceName) == null || resourceQueue.get(resourceName).isEmpty()) {
-						handleNonBlockingAccessRequests(message);
-					} else {
-						log(LogMsg.makeAccessRequestDeniedLogMsg(requestSender, getSelf(), request, AccessRequestDenialReason.RESOURCE_BUSY));
-						requestSender.tell(new AccessRequestDeniedMsg(request, AccessRequestDenialReason.RESOURCE_BUSY), getSelf());
-					}
+			}
+			else {
+				forwardIfRemote(message.getResourceName(), message);
+			}
+		}
+		else if (msg instanceof ResourceHandoffMsg) {
+			migrator.adopt(((ResourceHandoffMsg) msg).getHandoff());
+		}
+		else if (msg instanceof ResourceMovedMsg) {
+			ResourceMovedMsg message = (ResourceMovedMsg) msg;
+			String resourceName = message.getResourceName();
+
+			if (!message.getNewManager().equals(managerRef()) && !resourceIds.containsKey(resourceName) && !pools.containsKey(resourceName)) {
+				remoteResourceList.put(resourceName, message.getNewManager());
+				if (movedResources.containsKey(resourceName)) {
+					movedResources.put(resourceName, message.getNewManager());
 				}
 			}
-			else if (remoteResourceList.containsKey(resourceName)) {
-				ActorRef remoteManager = remoteResourceList.get(resourceName);
+		}
+		else if (msg instanceof SetReadDelegationMsg) {
+			SetReadDelegationMsg message = (SetReadDelegationMsg) msg;
+			ResourceState state = lookupLocalResource(message.getResourceName());
 
-				log(LogMsg.makeAccessRequestForwardedLogMsg(getSelf(), remoteManager, request));
-				remoteManager.tell(message, getSelf());
+			if (state != null) {
+				state.setDelegatingReads(message.isEnabled());
+				if (!message.isEnabled()) {
+					delegator.recall(state);
+				}
 			}
 			else {
-				WhoHasResourceRequestMsg whoHasResourceRequestMessage = new WhoHasResourceRequestMsg(resourceName);
+				forwardIfRemote(message.getResourceName(), message);
+			}
+		}
+		else if (msg instanceof ReadDelegationGrantMsg) {
+			delegator.handleGrant((ReadDelegationGrantMsg) msg);
+		}
+		else if (msg instanceof ReadDelegationRecallMsg) {
+			delegator.handleRecall((ReadDelegationRecallMsg) msg, getSender());
+		}
+		else if (msg instanceof ReadDelegationReturnMsg) {
+			delegator.handleReturn((ReadDelegationReturnMsg) msg);
+		}
+		else if (msg instanceof SetLogFilterMsg) {
+			logSampler = new LogSampler(((SetLogFilterMsg) msg).getFilter());
+		}
+		else if (msg instanceof SetMigrationPolicyMsg) {
+			migrator.setPolicy(((SetMigrationPolicyMsg) msg).getPolicy());
+		}
+		else if (msg instanceof SetWaitReportDelayMsg) {
+			deadlocks.setReportDelay(((SetWaitReportDelayMsg) msg).getDelayMs());
+		}
+		else if (msg instanceof AccessBatchMsg) {
+			AccessBatchMsg message = (AccessBatchMsg) msg;
+			ActorRef user = message.getUser();
 
-				potentialRemoteResourceList.put(message, remoteManagers.size());
-				for (ActorRef manager : remoteManagers) {
-					if(!resourceRequestMessages.containsKey(manager)) {
-						resourceRequestMessages.put(manager, new HashMap<String, AccessRequestMsg>());
-					}
-					resourceRequestMessages.get(manager).put(resourceName, message);
-					manager.tell(whoHasResourceRequestMessage, getSelf());
+			// Process whole batch in this turn, collecting replies to the user and
+			// forwards to each remote manager so that each goes out as one message
+			batchUser = user;
+			batchReplies = new ArrayList<Object>();
+			batchForwards = new HashMap<ActorRef, ArrayList<Object>>();
+			for (Object access : message.getAccesses()) {
+				if (access instanceof AccessRequest) {
+					handleAccessRequest(new AccessRequestMsg((AccessRequest) access, user));
+				}
+				else if (access instanceof AccessRelease) {
+					handleAccessRelease(new AccessReleaseMsg((AccessRelease) access, user));
 				}
 			}
+			flushBatch();
+			migrator.checkMigrations();
 		}
-		else if (msg instanceof AccessReleaseMsg) {
-			AccessReleaseMsg message = (AccessReleaseMsg) msg;
-			AccessRelease accessRelease = message.getAccessRelease();
-			ActorRef releaseSender = message.getSender();
-			String resourceName = accessRelease.getResourceName();
+		else if (msg instanceof TimerTickMsg) {
+			timerTickScheduled = false;
+			for (Object expired : timers.advance(nowMs())) {
+				if (expired instanceof Lease) {
+					leases.expire((Lease) expired);
+				}
+				else if (expired instanceof WaitingRequest) {
+					expireWait((WaitingRequest) expired);
+				}
+				else if (expired instanceof PendingMultiAccess) {
+					multiAccess.expire((PendingMultiAccess) expired);
+				}
+			}
+			scheduleTimerTick();
+		}
+		else if (msg instanceof Terminated) {
+			reclaimFromUser(((Terminated) msg).getActor());
+		}
+		else if (msg instanceof DeadlockProbeMsg) {
+			deadlocks.handleProbe((DeadlockProbeMsg) msg);
+		}
+		else if (msg instanceof DeadlockDetectedMsg) {
+			// Deny exactly the request on the cycle, if it is still queued
+			WaitingRequest waiting = deadlocks.waitingFor(((DeadlockDetectedMsg) msg).getVictim());
 
-			log(LogMsg.makeAccessReleaseReceivedLogMsg(releaseSender, getSelf(), accessRelease));
+			if (waiting != null) {
+				ResourceState state = waiting.getState();
+				if (state.getPendingUpgrade() == waiting) {
+					state.setPendingUpgrade(null);
+				}
+				else {
+					state.getWaitQueue().remove(waiting);
+				}
+				dequeued(waiting);
+				denyAccess(waiting.getMessage(), AccessRequestDenialReason.DEADLOCK_DETECTED);
+				handleBlockingAccessRequests(state);
+			}
+		}
+		else if (msg instanceof WaitForEdgeMsg) {
+			deadlocks.handleWaitForEdge((WaitForEdgeMsg) msg);
+		}
+		else if (msg instanceof MultiAccessRequestMsg) {
+			multiAccess.start((MultiAccessRequestMsg) msg);
+		}
+		else if (msg instanceof ReservationRequestMsg) {
+			multiAccess.handleRequest((ReservationRequestMsg) msg);
+		}
+		else if (msg instanceof ReservationResponseMsg) {
+			multiAccess.handleResponse((ReservationResponseMsg) msg);
+		}
+		else if (msg instanceof ReservationRetryMsg) {
+			multiAccess.handleRetry((ReservationRetryMsg) msg);
+		}
+		else if (msg instanceof ReservationCommitMsg) {
+			multiAccess.handleCommit((ReservationCommitMsg) msg);
+		}
+		else if (msg instanceof ReservationCommittedMsg) {
+			multiAccess.handleCommitted((ReservationCommittedMsg) msg);
+		}
+		else if (msg instanceof ReservationAbortMsg) {
+			multiAccess.handleAbort((ReservationAbortMsg) msg);
+		}
+		else if (msg instanceof PoolStatusMsg) {
+			handlePoolStatus((PoolStatusMsg) msg);
+		}
+		else if (msg instanceof PoolWaiterRequestMsg) {
+			PoolWaiterRequestMsg message = (PoolWaiterRequestMsg) msg;
+			ResourcePool pool = pools.get(message.getPattern());
 
-			if (localResources.containsKey(resourceName)) {
-				handleRelease(message);
-				handleBlockingAccessRequests(resourceName);
+			// Hand over the request at the head of the queue, if any is still waiting
+			if (pool != null && !pool.getWaitQueue().isEmpty()) {
+				Iterator<WaitingRequest> queued = pool.getWaitQueue().iterator();
+				WaitingRequest waiting = queued.next();
+				ResourceHandoff.QueuedRequest request = migrator.handoffOf(waiting, nowMs());
+				queued.remove();
+				dequeued(waiting);
+				getContext().getParent().tell(new PoolTransferMsg(request, waiting.getEnqueuedNanos(), message.getFromShard()), getSelf());
 			}
-			else if (remoteResourceList.containsKey(resourceName)) {
-				ActorRef remoteManager = remoteResourceList.get(resourceName);
+		}
+		else if (msg instanceof PoolTransferMsg) {
+			PoolTransferMsg message = (PoolTransferMsg) msg;
+			AccessRequestMsg request = message.getRequest().getMessage();
+			ResourcePool pool = pools.get(request.getAccessRequest().getResourceName());
 
-				log(LogMsg.makeAccessReleaseForwardedLogMsg(getSelf(), remoteManager, accessRelease));
-				remoteManager.tell(message, getSelf());
+			if (pool != null) {
+				handlePoolRequest(pool, request, message.getRequest().getDeadlineMs(), message.getEnqueuedNanos());
 			}
 			else {
-				log(LogMsg.makeAccessReleaseIgnoredLogMsg(releaseSender, getSelf(), accessRelease));
+				send(managerRef(), request, getSelf());	// Members have gone since the offer; start over
 			}
 		}
 		else if (msg instanceof WhoHasResourceRequestMsg) {
 			WhoHasResourceRequestMsg message = (WhoHasResourceRequestMsg) msg;
 			String resourceName = message.getResourceName();
 
-			if (localResources.containsKey(resourceName)) {
-				WhoHasResourceResponseMsg responseMessage = new WhoHasResourceResponseMsg(resourceName, true, getSelf());
+			if (resourceIds.containsKey(resourceName) || pools.containsKey(resourceName)) {
+				WhoHasResourceResponseMsg responseMessage = new WhoHasResourceResponseMsg(resourceName, true, managerRef());
+				getSender().tell(responseMessage, getSelf());
+			}
+			else if (movedResources.containsKey(resourceName)) {
+				// Answer for new manager, in case asker has not yet heard of the move
+				WhoHasResourceResponseMsg responseMessage = new WhoHasResourceResponseMsg(resourceName, true, movedResources.get(resourceName));
 				getSender().tell(responseMessage, getSelf());
 			}
 			else {
-				WhoHasResourceResponseMsg responseMessage = new WhoHasResourceResponseMsg(resourceName, false, getSelf());
+				WhoHasResourceResponseMsg responseMessage = new WhoHasResourceResponseMsg(resourceName, false, managerRef());
 				getSender().tell(responseMessage, getSelf());
 			}
 		}
@@ -209,30 +518,39 @@ public class ResourceManagerActor extends AbstractActor {
 			String resourceName = message.getResourceName();
 			ActorRef sender = message.getSender();
 			Boolean result = message.getResult();
+			PendingLookup lookup = pendingLookups.get(resourceName);
 
-			AccessRequestMsg requestMessage = resourceRequestMessages.get(sender).get(resourceName);
-			AccessRequest request = requestMessage.getAccessRequest();
-			ActorRef requestSender = requestMessage.getReplyTo();
-
+			if (lookup == null) {
+				return;		// Lookup was already resolved by another manager
+			}
 			if (result) {
-				log(LogMsg.makeRemoteResourceDiscoveredLogMsg(getSelf(), sender, resourceName));
+				pendingLookups.remove(resourceName);
+				if (logSampler.accepts(LogMsg.EventType.REMOTE_RESOURCE_DISCOVERED)) {
+					log(LogMsg.makeRemoteResourceDiscoveredLogMsg(getSelf(), sender, resourceName));
+				}
 				remoteResourceList.put(resourceName, sender);
 
-				log(LogMsg.makeAccessRequestForwardedLogMsg(getSelf(), sender, request));
-				potentialRemoteResourceList.remove(requestMessage);
-				resourceRequestMessages.get(sender).remove(resourceName);
-				sender.tell(requestMessage, getSelf());
+				for (AccessRequestMsg requestMessage : lookup.getWaitingRequests()) {
+					if (logSampler.accepts(LogMsg.EventType.ACCESS_REQUEST_FORWARDED)) {
+						log(LogMsg.makeAccessRequestForwardedLogMsg(getSelf(), sender, requestMessage.getAccessRequest()));
+					}
+					send(sender, requestMessage, managerRef());
+				}
+				for (Reservation reservation : lookup.getWaitingReservations()) {
+					sender.tell(new ReservationRequestMsg(reservation), getSelf());
+				}
 			}
-			else {
-				Integer count = potentialRemoteResourceList.get(requestMessage);
-
-				if (count != 0) {
-					count--;
-					potentialRemoteResourceList.put(requestMessage, count);
+			else if (lookup.answeredNo(sender) && lookup.allAnswered()) {
+				// Every matching summary was a false positive; fall back to asking the rest
+				Set<ActorRef> remaining = new HashSet<ActorRef>();
+				for (ActorRef manager : remoteManagers) {
+					if (!lookup.hasAsked(manager)) {
+						remaining.add(manager);
+					}
 				}
-				if (count == 0) {
-					log(LogMsg.makeAccessRequestDeniedLogMsg(requestSender, getSelf(), request, AccessRequestDenialReason.RESOURCE_NOT_FOUND));
-					requestSender.tell(new AccessRequestDeniedMsg(request, AccessRequestDenialReason.RESOURCE_NOT_FOUND), getSelf());
+				if (!askWhoHasResource(resourceName, lookup, remaining)) {
+					pendingLookups.remove(resourceName);
+					resourceNotFound(resourceName, lookup);
 				}
 			}
 		}
@@ -240,137 +558,1154 @@ public class ResourceManagerActor extends AbstractActor {
 
 
 
-	private void handleBlockingAccessRequests(String resourceName) {
-		Queue<AccessRequestMsg> accessRequests = resourceQueue.get(resourceName);
-
-		List<ActorRef> users;
+	/**
+	 * Process an access request, either for a local resource or one to be
+	 * forwarded to (or discovered at) a remote manager.
+	 * 
+	 * @param message	Request message
+	 */
+	private void handleAccessRequest(AccessRequestMsg message) {
+		AccessRequest request = message.getAccessRequest();
+		ActorRef requestSender = message.getReplyTo();
+		String resourceName = request.getResourceName();
+		AccessRequestType requestType = request.getType();
+		ResourceState state = lookupLocalResource(resourceName);
+		ResourcePool pool = ResourcePool.isPattern(resourceName) ? pools.get(resourceName) : null;
 
-		while (!accessRequests.isEmpty()) {
-			AccessRequestMsg message = accessRequests.peek();
-			AccessRequest request = message.getAccessRequest();
-			ActorRef requestSender = message.getReplyTo();
-			AccessRequestType requestType = request.getType();
+		if (logSampler.accepts(LogMsg.EventType.ACCESS_REQUEST_RECEIVED)) {
+			log(LogMsg.makeAccessRequestReceivedLogMsg(requestSender, getSelf(), request));
+		}
 
-			if (requestType == AccessRequestType.CONCURRENT_READ_BLOCKING) {
-				if (exclusiveWriteAvailable(resourceName, requestSender)) {
-					users = resourceReads.get(resourceName);
-					if (users == null) {
-						users = new LinkedList<ActorRef>();
+		if (pool != null) {
+			if (isConversion(requestType)) {
+				denyAccess(message, AccessRequestDenialReason.NOT_HELD);	// Instances are held by their own names
+			}
+			else if (requestType == AccessRequestType.OPTIMISTIC_READ) {
+				denyAccess(message, AccessRequestDenialReason.RESOURCE_NOT_FOUND);	// Stamps are per instance
+			}
+			else {
+				handlePoolRequest(pool, message, request.getDeadlineMs(), System.nanoTime());
+			}
+		}
+		else if (state != null) {
+			migrator.recordRequest(resourceName, remoteManagers.contains(getSender()) ? getSender() : null);
+			if (!ResourceState.isRead(message) && requestType != AccessRequestType.OPTIMISTIC_READ) {
+				delegator.recall(state);	// Request may need the delegates' reads gone
+			}
+			if (isConversion(requestType)) {
+				handleConversion(state, message);
+			}
+			else if (requestType == AccessRequestType.OPTIMISTIC_READ) {
+				handleOptimisticRead(state, message);
+			}
+			else if (state.getPolicy().admitNow(state, message)) {
+				if (requestType == AccessRequestType.CONCURRENT_READ_BLOCKING || requestType == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) {
+					waitTimes.record(request.getPriority(), 0);
+				}
+				acquire(state, message);
+				grantAccess(message);
+				delegator.delegateReads(state, message, getSender());
+			}
+			else if (requestType == AccessRequestType.CONCURRENT_READ_BLOCKING || requestType == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) {
+				WaitingRequest waiting = new WaitingRequest(state, message);
+				if (!state.getWaitQueue().add(waiting)) {
+					denyAccess(message, AccessRequestDenialReason.ALREADY_QUEUED);
+				}
+				else {
+					deadlocks.reportWait(waiting, true);
+					if (request.getDeadlineMs() > 0) {
+						waiting.setDeadline(scheduleTimeout(waiting, request.getDeadlineMs()));
 					}
-					users.add(requestSender);
-					resourceReads.put(resourceName, users);
-					accessRequests.poll();
-					
-					log(LogMsg.makeAccessRequestGrantedLogMsg(requestSender, self(), request));
-					requestSender.tell(new AccessRequestGrantedMsg(message), getSelf());
+					deadlocks.probe(state, message);
 				}
 			}
-			else if (requestType == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING) {
-				if (exclusiveWriteAvailable(resourceName, requestSender) && concurrentReadAvailable(resourceName, requestSender)) {
-					resourceWrites.put(resourceName, requestSender);
-					accessRequests.poll();
+			else {
+				denyAccess(message, AccessRequestDenialReason.RESOURCE_BUSY);
+			}
+		}
+		else if (delegator.grantRead(message)) {
+			// Granted under read delegation
+		}
+		else if (remoteResourceList.containsKey(resourceName)) {
+			ActorRef remoteManager = remoteResourceList.get(resourceName);
 
-					log(LogMsg.makeAccessRequestGrantedLogMsg(requestSender, getSelf(), request));
-					requestSender.tell(new AccessRequestGrantedMsg(message), getSelf());
-				}
+			if (logSampler.accepts(LogMsg.EventType.ACCESS_REQUEST_FORWARDED)) {
+				log(LogMsg.makeAccessRequestForwardedLogMsg(getSelf(), remoteManager, request));
 			}
+			forwardAccess(remoteManager, request, message);
+		}
+		else if (pendingLookups.containsKey(resourceName)) {
+			pendingLookups.get(resourceName).addWaitingRequest(message);
+		}
+		else if (unknownResources.contains(resourceName)) {
+			denyResourceNotFound(message);
+		}
+		else {
+			PendingLookup lookup = new PendingLookup();
+			lookup.addWaitingRequest(message);
+			startLookup(resourceName, lookup);
 		}
 	}
 
-	private void handleNonBlockingAccessRequests(AccessRequestMsg message) {
-		AccessRequest request = message.getAccessRequest();
-		ActorRef requestSender = message.getReplyTo();
-		String resourceName = request.getResourceName();
-		AccessRequestType requestType = request.getType();
-
-		List<ActorRef> users;
+	/**
+	 * Process an access release, either for a local resource or one to be
+	 * forwarded to a remote manager.
+	 * 
+	 * @param message	Release message
+	 */
+	private void handleAccessRelease(AccessReleaseMsg message) {
+		AccessRelease accessRelease = message.getAccessRelease();
+		ActorRef releaseSender = message.getSender();
+		String resourceName = accessRelease.getResourceName();
+		ResourceState state = lookupLocalResource(resourceName);
 
-		if (requestType == AccessRequestType.CONCURRENT_READ_NONBLOCKING) {
-			if (exclusiveWriteAvailable(resourceName, requestSender)) {
-				users = resourceReads.get(resourceName);
-				if (users == null) {
-					users = new LinkedList<ActorRef>();
-				}
-				users.add(requestSender);
-				resourceReads.put(resourceName, users);
+		if (logSampler.accepts(LogMsg.EventType.ACCESS_RELEASE_RECEIVED)) {
+			log(LogMsg.makeAccessReleaseReceivedLogMsg(releaseSender, getSelf(), accessRelease));
+		}
 
-				log(LogMsg.makeAccessRequestGrantedLogMsg(requestSender, getSelf(), request));
-				requestSender.tell(new AccessRequestGrantedMsg(message), getSelf());
-			} else {
-				log(LogMsg.makeAccessRequestDeniedLogMsg(requestSender, getSelf(), request, AccessRequestDenialReason.RESOURCE_BUSY));
-				requestSender.tell(new AccessRequestDeniedMsg(request, AccessRequestDenialReason.RESOURCE_BUSY), getSelf());
+		if (state != null) {
+			if (handleRelease(state, message)) {
+				handleBlockingAccessRequests(state);
 			}
 		}
-		else if (requestType == AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING) {
-			if (exclusiveWriteAvailable(resourceName, requestSender) && concurrentReadAvailable(resourceName, requestSender)) {
-				resourceWrites.put(resourceName, requestSender);
+		else if (delegator.release(message)) {
+			// Released under read delegation
+		}
+		else if (remoteResourceList.containsKey(resourceName)) {
+			ActorRef remoteManager = remoteResourceList.get(resourceName);
 
-				log(LogMsg.makeAccessRequestGrantedLogMsg(requestSender, getSelf(), request));
-				requestSender.tell(new AccessRequestGrantedMsg(message), getSelf());
-			} else {
-				log(LogMsg.makeAccessRequestDeniedLogMsg(requestSender, getSelf(), request, AccessRequestDenialReason.RESOURCE_BUSY));
-				requestSender.tell(new AccessRequestDeniedMsg(request, AccessRequestDenialReason.RESOURCE_BUSY), getSelf());
+			if (logSampler.accepts(LogMsg.EventType.ACCESS_RELEASE_FORWARDED)) {
+				log(LogMsg.makeAccessReleaseForwardedLogMsg(getSelf(), remoteManager, accessRelease));
+			}
+			forwardAccess(remoteManager, accessRelease, message);
+		}
+		else {
+			if (logSampler.accepts(LogMsg.EventType.ACCESS_RELEASE_IGNORED)) {
+				log(LogMsg.makeAccessReleaseIgnoredLogMsg(releaseSender, getSelf(), accessRelease));
 			}
 		}
 	}
 
-	private boolean concurrentReadAvailable(String resourceName, ActorRef user) {
-		if (resourceReads.containsKey(resourceName)) {
-			for (ActorRef actor : resourceReads.get(resourceName)) {
-				if (!actor.equals(user))
-					return false;
-			}
+	/**
+	 * Send access request or release on to the remote manager of its resource.  While
+	 * a batch is being processed, everything for the same manager is collected and
+	 * sent on as one batch.  Forwards are sent on behalf of the whole manager (not
+	 * the shard), so that the receiver can tell which manager its requests come from.
+	 * 
+	 * @param remoteManager	Manager of resource
+	 * @param access		AccessRequest or AccessRelease being forwarded
+	 * @param message		Message carrying it
+	 */
+	private void forwardAccess(ActorRef remoteManager, Object access, Timestamped message) {
+		if (batchForwards == null) {
+			send(remoteManager, message, managerRef());
+			return;
 		}
-		return true;
+		ArrayList<Object> forwards = batchForwards.get(remoteManager);
+		if (forwards == null) {
+			forwards = new ArrayList<Object>();
+			batchForwards.put(remoteManager, forwards);
+		}
+		forwards.add(access);
 	}
 
-	private boolean exclusiveWriteAvailable(String resourceName, ActorRef user) {
-		if (resourceWrites.containsKey(resourceName)) {
-			if (!resourceWrites.get(resourceName).equals(user)) {
-				return false;
+	/**
+	 * Send the replies and forwards collected while processing a batch.  Single
+	 * items are sent as ordinary messages.
+	 */
+	private void flushBatch() {
+		if (batchReplies.size() == 1) {
+			send(batchUser, (Timestamped) batchReplies.get(0), getSelf());
+		}
+		else if (!batchReplies.isEmpty()) {
+			send(batchUser, new AccessResponseBatchMsg(batchReplies), getSelf());
+		}
+		for (Map.Entry<ActorRef, ArrayList<Object>> entry : batchForwards.entrySet()) {
+			ArrayList<Object> forwards = entry.getValue();
+			Object access = forwards.get(0);
+
+			if (forwards.size() > 1) {
+				send(entry.getKey(), new AccessBatchMsg(forwards, batchUser), managerRef());
+			}
+			else if (access instanceof AccessRequest) {
+				send(entry.getKey(), new AccessRequestMsg((AccessRequest) access, batchUser), managerRef());
+			}
+			else {
+				send(entry.getKey(), new AccessReleaseMsg((AccessRelease) access, batchUser), managerRef());
 			}
 		}
+		batchUser = null;
+		batchReplies = null;
+		batchForwards = null;
+	}
+
+	/**
+	 * Send reply to a user, or hold it back for a batched reply if it answers part
+	 * of the batch being processed.
+	 * 
+	 * @param user	User to reply to
+	 * @param reply	Grant or denial
+	 */
+	void reply(ActorRef user, Timestamped reply) {
+		if (batchReplies != null && user.equals(batchUser)) {
+			batchReplies.add(reply);
+		}
+		else {
+			send(user, reply, getSelf());
+		}
+	}
+
+	/**
+	 * Pass a message concerning a resource that is not local on to the remote manager
+	 * of the resource, if it is known.
+	 * 
+	 * @param resourceName	Name of resource
+	 * @param msg			Message to pass on
+	 * @return				True if message was passed on, false if the resource's
+	 * 						manager is not known
+	 */
+	boolean forwardIfRemote(String resourceName, Object msg) {
+		ActorRef remoteManager = remoteResourceList.get(resourceName);
+
+		if (remoteManager == null) {
+			return false;
+		}
+		remoteManager.tell(msg, getSelf());
 		return true;
 	}
 
-	private void handleRelease(AccessReleaseMsg message) {
-		AccessRelease accessRelease = message.getAccessRelease();
-		ActorRef releaseSender = message.getSender();
-		String resourceName = accessRelease.getResourceName();
-		AccessType accessType = accessRelease.getType();
+	/**
+	 * Send a summary of this manager's local resources to every remote manager.
+	 */
+	private void publishResourceSummary() {
+		Set<String> names = new HashSet<String>(resourceIds.keySet());
+		names.addAll(pools.keySet());		// So pool requests can be discovered too
+		ResourceBloomFilter filter = ResourceBloomFilter.of(names);
+		ResourceSummaryMsg summary = new ResourceSummaryMsg(managerRef(), Math.max(shardIndex, 0), shardCount, filter);
 
-		if (accessType == AccessType.CONCURRENT_READ) {
-			if (resourceReads.containsKey(resourceName)) {
-				List<ActorRef> users = resourceReads.get(resourceName);
+		for (ActorRef manager : remoteManagers) {
+			manager.tell(summary, getSelf());
+		}
+	}
 
-				if (users.contains(releaseSender)) {
-					log(LogMsg.makeAccessReleasedLogMsg(releaseSender, getSelf(), accessRelease));
-					users.remove(releaseSender);
-				}
-				else {
-					log(LogMsg.makeAccessReleaseIgnoredLogMsg(releaseSender, getSelf(), accessRelease));
-				}
-			}
-			else {
-				log(LogMsg.makeAccessReleaseIgnoredLogMsg(releaseSender, getSelf(), accessRelease));
+	/**
+	 * @param manager		Remote manager
+	 * @param resourceName	Name of resource
+	 * @return				False if manager's published summary rules out its managing
+	 * 						resource, true otherwise (including if no complete summary
+	 * 						has been received yet)
+	 */
+	private boolean mightManage(ActorRef manager, String resourceName) {
+		ResourceBloomFilter[] parts = remoteSummaries.get(manager);
+
+		if (parts == null) {
+			return true;
+		}
+		for (ResourceBloomFilter part : parts) {
+			if (part == null || part.mightContain(resourceName)) {
+				return true;
 			}
 		}
-		else if (accessType == AccessType.EXCLUSIVE_WRITE) {
-			if (resourceWrites.containsKey(resourceName)) {
-				ActorRef user = resourceWrites.get(resourceName);
+		return false;
+	}
 
-				if (user.equals(releaseSender)) {
-					log(LogMsg.makeAccessReleasedLogMsg(releaseSender, getSelf(), accessRelease));
-					resourceWrites.remove(resourceName);
-				}
-				else {
-					log(LogMsg.makeAccessReleaseIgnoredLogMsg(releaseSender, getSelf(), accessRelease));
-				}
-			}
-			else {
-				log(LogMsg.makeAccessReleaseIgnoredLogMsg(releaseSender, getSelf(), accessRelease));
+	/**
+	 * Look for the manager of a resource that is neither local nor known to be remote,
+	 * on behalf of a reservation for a multi-resource request.  The reservation is
+	 * refused if the resource is known not to exist.
+	 * 
+	 * @param reservation	Reservation for resource
+	 */
+	void findOwner(Reservation reservation) {
+		String resourceName = reservation.getResourceName();
+
+		if (pendingLookups.containsKey(resourceName)) {
+			pendingLookups.get(resourceName).addWaitingReservation(reservation);
+		}
+		else if (unknownResources.contains(resourceName)) {
+			multiAccess.refuse(reservation, AccessRequestDenialReason.RESOURCE_NOT_FOUND);
+		}
+		else {
+			PendingLookup lookup = new PendingLookup();
+			lookup.addWaitingReservation(reservation);
+			startLookup(resourceName, lookup);
+		}
+	}
+
+	/**
+	 * Start a lookup for an unknown resource, with whatever is waiting on it already
+	 * added.  Only managers whose published summary might contain the resource are
+	 * asked.
+	 * 
+	 * @param resourceName	Name of unknown resource
+	 * @param lookup		New lookup for resource
+	 */
+	private void startLookup(String resourceName, PendingLookup lookup) {
+		Set<ActorRef> candidates = new HashSet<ActorRef>();
+
+		for (ActorRef manager : remoteManagers) {
+			if (mightManage(manager, resourceName)) {
+				candidates.add(manager);
 			}
 		}
+		if (askWhoHasResource(resourceName, lookup, candidates)) {
+			pendingLookups.put(resourceName, lookup);
+		}
+		else {
+			resourceNotFound(resourceName, lookup);
+		}
+	}
+
+	/**
+	 * Ask given remote managers whether they manage an unknown resource.
+	 * 
+	 * @param resourceName	Name of unknown resource
+	 * @param lookup		Lookup in progress for resource
+	 * @param managers		Managers to ask
+	 * @return				False if there was nobody to ask
+	 */
+	private boolean askWhoHasResource(String resourceName, PendingLookup lookup, Set<ActorRef> managers) {
+		WhoHasResourceRequestMsg whoHasResourceRequestMessage = new WhoHasResourceRequestMsg(resourceName);
+
+		if (managers.isEmpty()) {
+			return false;
+		}
+		for (ActorRef manager : managers) {
+			lookup.asked(manager);
+			manager.tell(whoHasResourceRequestMessage, getSelf());
+		}
+		return true;
+	}
+
+	/**
+	 * Deny every request waiting on a lookup that found no manager, and remember
+	 * for a while that the resource does not exist.
+	 * 
+	 * @param resourceName	Name of resource
+	 * @param lookup		Completed lookup
+	 */
+	private void resourceNotFound(String resourceName, PendingLookup lookup) {
+		unknownResources.add(resourceName);
+		for (AccessRequestMsg message : lookup.getWaitingRequests()) {
+			denyResourceNotFound(message);
+		}
+		for (Reservation reservation : lookup.getWaitingReservations()) {
+			multiAccess.refuse(reservation, AccessRequestDenialReason.RESOURCE_NOT_FOUND);
+		}
+	}
+
+	private void denyResourceNotFound(AccessRequestMsg message) {
+		denyAccess(message, AccessRequestDenialReason.RESOURCE_NOT_FOUND);
+	}
+
+	/**
+	 * Log and send grant of an access request.  The grant names this manager as
+	 * the owner of the resource, so the user can send its release here directly.
+	 * 
+	 * @param message	Request being granted
+	 */
+	private void grantAccess(AccessRequestMsg message) {
+		ActorRef requestSender = message.getReplyTo();
+
+		AccessRequest request = message.getAccessRequest();
+		ResourceState state = lookupLocalResource(request.getResourceName());
+
+		if (logSampler.accepts(LogMsg.EventType.ACCESS_REQUEST_GRANTED)) {
+			log(LogMsg.makeAccessRequestGrantedLogMsg(requestSender, getSelf(), request));
+		}
+		reply(requestSender, new AccessRequestGrantedMsg(request, getSelf(), request.getResourceName(), -1, state.getPayload().view()));
+	}
+
+	/**
+	 * Log and send denial of an access request.
+	 * 
+	 * @param message	Request being denied
+	 * @param reason	Why request is denied
+	 */
+	private void denyAccess(AccessRequestMsg message, AccessRequestDenialReason reason) {
+		ActorRef requestSender = message.getReplyTo();
+
+		if (logSampler.accepts(LogMsg.EventType.ACCESS_REQUEST_DENIED)) {
+			log(LogMsg.makeAccessRequestDeniedLogMsg(requestSender, getSelf(), message.getAccessRequest(), reason));
+		}
+		reply(requestSender, new AccessRequestDeniedMsg(message, reason));
+	}
+
+	/**
+	 * Intern a new local resource, assigning it the next dense id and creating its
+	 * lock-table entry.
+	 * 
+	 * @param resource	Resource to add
+	 */
+	void addLocalResource(Resource resource) {
+		if (resourceIds.containsKey(resource.getName())) {
+			return;
+		}
+		if (resourceCount == resourceStates.length) {
+			resourceStates = Arrays.copyOf(resourceStates, resourceCount * 2);
+		}
+		int id = resourceCount++;
+		resourceStates[id] = new ResourceState(id, resource);
+		resourceIds.put(resource.getName(), id);
+
+		String pattern = ResourcePool.patternOf(resource.getName());
+		if (pattern != null) {
+			ResourcePool pool = pools.get(pattern);
+			if (pool == null) {
+				pool = new ResourcePool(pattern);
+				pools.put(pattern, pool);
+			}
+			pool.addMember(resourceStates[id]);
+			resourceStates[id].setPool(pool);
+			announcePool(pool, null);
+		}
+	}
+
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				Lock-table entry for resource, or null if resource is not local
+	 */
+	ResourceState lookupLocalResource(String resourceName) {
+		Integer id = resourceIds.get(resourceName);
+		return (id == null) ? null : resourceStates[id];
+	}
+
+	/**
+	 * Forget a local resource just handed over to another manager, and send
+	 * everything for it to the new manager from now on.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @param target	New manager
+	 */
+	void removeLocalResource(ResourceState state, ActorRef target) {
+		resourceIds.remove(state.getName());
+		resourceStates[state.getId()] = null;
+		movedAway(state.getName(), target);
+		multiAccess.resourceChanged(state);		// Coordinators retry at new manager
+		if (state.getPool() != null) {
+			// After the handoff, so that the new manager has the pool before its requests
+			ResourcePool pool = state.getPool();
+			pool.removeMember(state);
+			if (pool.getMembers().isEmpty()) {
+				poolEmptied(pool, target);
+			}
+		}
+		publishResourceSummary();
+	}
+
+	/**
+	 * Finish taking over a resource handed over by another manager:  requests for it
+	 * (or its pool) are no longer sent elsewhere, and the other managers are told it
+	 * is here.
+	 * 
+	 * @param state	Lock-table entry for resource
+	 */
+	void resourceAdopted(ResourceState state) {
+		remoteResourceList.remove(state.getName());
+		movedResources.remove(state.getName());
+		if (state.getPool() != null) {
+			remoteResourceList.remove(state.getPool().getPattern());
+			movedResources.remove(state.getPool().getPattern());
+		}
+		unknownResources.clear();
+		if (!remoteManagers.isEmpty()) {
+			publishResourceSummary();
+		}
+	}
+
+	/**
+	 * Record that a resource or pool has moved to another manager, and tell the other
+	 * managers to send requests for it there directly.
+	 * 
+	 * @param resourceName	Name of resource, or pattern of pool
+	 * @param target		New manager
+	 */
+	private void movedAway(String resourceName, ActorRef target) {
+		remoteResourceList.put(resourceName, target);
+		movedResources.put(resourceName, target);
+		for (ActorRef manager : remoteManagers) {
+			if (!manager.equals(target)) {
+				manager.tell(new ResourceMovedMsg(resourceName, target), getSelf());
+			}
+		}
+	}
+
+	/**
+	 * Grant as many queued blocking requests for a resource as its current state
+	 * allows, in the order chosen by the resource's scheduling policy.  Under FIFO
+	 * the pass stops at the first request that cannot be granted; a run of
+	 * compatible readers at the head of the queue is granted in a single pass.  Must
+	 * be called whenever the state of the resource changes in a way that could
+	 * unblock a queued request.
+	 * 
+	 * @param state	Lock-table entry for resource
+	 */
+	void handleBlockingAccessRequests(ResourceState state) {
+		WaitingRequest waiting = state.getPendingUpgrade();
+
+		if (waiting != null && state.canUpgrade(waiting.getMessage().getReplyTo())) {
+			state.setPendingUpgrade(null);
+			dequeued(waiting);
+			waitTimes.record(waiting.getMessage().getAccessRequest().getPriority(), System.nanoTime() - waiting.getEnqueuedNanos());
+			upgrade(state, waiting.getMessage());
+		}
+		while ((waiting = state.getPolicy().selectNext(state)) != null) {
+			state.getWaitQueue().remove(waiting);
+			dequeued(waiting);
+			waitTimes.record(waiting.getMessage().getAccessRequest().getPriority(), System.nanoTime() - waiting.getEnqueuedNanos());
+			acquire(state, waiting.getMessage());
+			grantAccess(waiting.getMessage());
+		}
+		if (state.getPool() != null) {
+			handleBlockingPoolRequests(state.getPool(), state);
+		}
+		multiAccess.resourceChanged(state);
+	}
+
+	/**
+	 * Process a request for any member of a pool:  grant it on the first member
+	 * that can take it, and otherwise queue it at the pool (if blocking) or deny it.
+	 * A request handed over by a sibling shard keeps the deadline it had left and the
+	 * time it was first queued.
+	 * 
+	 * @param pool			Pool requested
+	 * @param message		Request message
+	 * @param deadlineMs	Time request may wait, in milliseconds (0 if no limit)
+	 * @param enqueuedNanos	When request started waiting (System.nanoTime)
+	 */
+	private void handlePoolRequest(ResourcePool pool, AccessRequestMsg message, long deadlineMs, long enqueuedNanos) {
+		AccessRequest request = message.getAccessRequest();
+		AccessRequestType requestType = request.getType();
+		boolean blocking = (requestType == AccessRequestType.CONCURRENT_READ_BLOCKING || requestType == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING);
+
+		for (ResourceState member : pool.getMembers()) {
+			AccessRequestMsg memberMessage = memberRequest(member, message);
+			if (member.getPolicy().admitNow(member, memberMessage)) {
+				if (blocking) {
+					waitTimes.record(request.getPriority(), System.nanoTime() - enqueuedNanos);
+				}
+				grantPoolAccess(member, message, memberMessage);
+				return;
+			}
+		}
+		if (blocking) {
+			WaitingRequest waiting = new WaitingRequest(pool, message, enqueuedNanos);
+			if (!pool.getWaitQueue().add(waiting)) {
+				denyAccess(message, AccessRequestDenialReason.ALREADY_QUEUED);
+				return;
+			}
+			if (deadlineMs > 0) {
+				waiting.setDeadline(scheduleTimeout(waiting, deadlineMs));
+			}
+			announcePool(pool, null);
+		}
+		else {
+			denyAccess(message, AccessRequestDenialReason.RESOURCE_BUSY);
+		}
+	}
+
+	/**
+	 * Grant pool requests waiting for a member that may have become available, in
+	 * order, until one cannot be granted on it.  Called after the member's own
+	 * queue has been served.  If the member is left idle, it is offered to a sibling
+	 * shard with pool requests waiting.
+	 * 
+	 * @param pool		Pool
+	 * @param member	Member whose state has changed
+	 */
+	private void handleBlockingPoolRequests(ResourcePool pool, ResourceState member) {
+		Iterator<WaitingRequest> queued = pool.getWaitQueue().iterator();
+
+		while (queued.hasNext()) {
+			WaitingRequest waiting = queued.next();
+			AccessRequestMsg memberMessage = memberRequest(member, waiting.getMessage());
+			if (!member.getPolicy().admitNow(member, memberMessage)) {
+				return;
+			}
+			queued.remove();
+			dequeued(waiting);
+			waitTimes.record(waiting.getMessage().getAccessRequest().getPriority(), System.nanoTime() - waiting.getEnqueuedNanos());
+			grantPoolAccess(member, waiting.getMessage(), memberMessage);
+		}
+		Set<Integer> waitingShards = poolWaiters.get(pool.getPattern());
+		if (member.isIdle() && waitingShards != null && !waitingShards.isEmpty()) {
+			offerMember(pool, waitingShards.iterator().next());
+		}
+	}
+
+	/**
+	 * Ask a sibling shard to hand over a request waiting in its queue for a pool,
+	 * to be served by an idle member here.
+	 * 
+	 * @param pool	Pool
+	 * @param shard	Sibling shard with requests waiting
+	 */
+	private void offerMember(ResourcePool pool, int shard) {
+		getContext().getParent().tell(new PoolWaiterRequestMsg(pool.getPattern(), shardIndex, shard), getSelf());
+	}
+
+	/**
+	 * Tell sibling shards about a change in this shard's part of a pool:  whether
+	 * it holds members, and whether requests wait in its queue.  Nothing is sent
+	 * unless this manager is a shard and something has changed since last time, or
+	 * the pool's last member in the node has just moved to another manager.
+	 * 
+	 * @param pool		Pool
+	 * @param movedTo	Manager the pool's last member in the node has moved to, or null
+	 */
+	private void announcePool(ResourcePool pool, ActorRef movedTo) {
+		boolean hasMembers = !pool.getMembers().isEmpty();
+		boolean waiting = !pool.getWaitQueue().isEmpty();
+
+		if (shardIndex < 0 || (movedTo == null && hasMembers == pool.isAnnouncedMembers() && waiting == pool.isAnnouncedWaiting())) {
+			return;
+		}
+		pool.setAnnounced(hasMembers, waiting);
+		getContext().getParent().tell(new PoolStatusMsg(pool.getPattern(), shardIndex, hasMembers, waiting, movedTo), getSelf());
+	}
+
+	/**
+	 * Record a sibling shard's change of status for a pool.  Idle members here are
+	 * offered to a sibling that has requests waiting.  A pool kept here only as a
+	 * queue is dropped once no shard holds members any more.
+	 * 
+	 * @param message	Status message
+	 */
+	private void handlePoolStatus(PoolStatusMsg message) {
+		String pattern = message.getPattern();
+		ResourcePool pool = pools.get(pattern);
+
+		if (message.getShard() == shardIndex) {
+			return;
+		}
+		updateShards(poolHolders, pattern, message.getShard(), message.hasMembers());
+		updateShards(poolWaiters, pattern, message.getShard(), message.isWaiting());
+		if (pool == null) {
+			return;
+		}
+		if (!pool.getMembers().isEmpty()) {
+			if (message.isWaiting()) {
+				for (ResourceState member : pool.getMembers()) {
+					if (member.isIdle()) {
+						offerMember(pool, message.getShard());
+					}
+				}
+			}
+		}
+		else if (message.getMovedTo() != null || poolHolders.get(pattern).isEmpty()) {
+			dropPool(pool, message.getMovedTo());
+		}
+	}
+
+	private static void updateShards(Map<String, Set<Integer>> shards, String pattern, int shard, boolean present) {
+		Set<Integer> set = shards.get(pattern);
+		if (set == null) {
+			set = new HashSet<Integer>();
+			shards.put(pattern, set);
+		}
+		if (present) {
+			set.add(shard);
+		}
+		else {
+			set.remove(shard);
+		}
+	}
+
+	/**
+	 * Handle a pool that has just lost its last member here.  While sibling shards
+	 * still hold members, the pool is kept as a queue, served by their idle members.
+	 * Otherwise it is dropped, and its requests (and any that arrive later) go to the
+	 * manager its last member moved to.
+	 * 
+	 * @param pool		Pool without members
+	 * @param movedTo	Manager the pool's last member moved to, or null
+	 */
+	private void poolEmptied(ResourcePool pool, ActorRef movedTo) {
+		Set<Integer> holders = poolHolders.get(pool.getPattern());
+
+		if (holders != null && !holders.isEmpty()) {
+			announcePool(pool, null);
+		}
+		else {
+			dropPool(pool, movedTo);
+		}
+	}
+
+	/**
+	 * Forget a pool without members, and process its waiting requests again:  they
+	 * are forwarded to the manager its last member moved to, if known, and looked up
+	 * otherwise.
+	 * 
+	 * @param pool		Pool without members
+	 * @param movedTo	Manager the pool's last member moved to, or null
+	 */
+	private void dropPool(ResourcePool pool, ActorRef movedTo) {
+		String pattern = pool.getPattern();
+		ArrayList<AccessRequestMsg> requests = new ArrayList<AccessRequestMsg>();
+		Iterator<WaitingRequest> queued = pool.getWaitQueue().iterator();
+
+		while (queued.hasNext()) {
+			WaitingRequest waiting = queued.next();
+			queued.remove();
+			dequeued(waiting);
+			requests.add(waiting.getMessage());
+		}
+		pools.remove(pattern);
+		if (movedTo != null) {
+			announcePool(pool, movedTo);
+			movedAway(pattern, movedTo);
+		}
+		for (AccessRequestMsg request : requests) {
+			handleAccessRequest(request);
+		}
+	}
+
+	/**
+	 * @param member	Pool member
+	 * @param message	Pool request
+	 * @return			Same request for the given member
+	 */
+	private AccessRequestMsg memberRequest(ResourceState member, AccessRequestMsg message) {
+		AccessRequest request = message.getAccessRequest();
+		AccessRequest memberRequest = new AccessRequest(member.getName(), request.getType(),
+				request.getLeaseMs(), request.getDeadlineMs(), request.getPriority());
+		return new AccessRequestMsg(memberRequest, message.getReplyTo());
+	}
+
+	/**
+	 * Log and send grant of a pool request on one of its members.  The grant
+	 * answers the original request and names the member assigned.
+	 * 
+	 * @param member		Member assigned
+	 * @param message		Pool request
+	 * @param memberMessage	Same request for the member
+	 */
+	private void grantPoolAccess(ResourceState member, AccessRequestMsg message, AccessRequestMsg memberMessage) {
+		ActorRef requestSender = message.getReplyTo();
+
+		acquire(member, memberMessage);
+		if (logSampler.accepts(LogMsg.EventType.ACCESS_REQUEST_GRANTED)) {
+			log(LogMsg.makeAccessRequestGrantedLogMsg(requestSender, getSelf(), memberMessage.getAccessRequest()));
+		}
+		reply(requestSender, new AccessRequestGrantedMsg(message.getAccessRequest(), getSelf(), member.getName(), -1, member.getPayload().view()));
+	}
+
+	/**
+	 * Process an optimistic read, which is granted with the resource's write
+	 * version as stamp, and a view of the payload, unless a writer holds the
+	 * resource.  The reader does not become a holder, so it never releases the
+	 * resource and never delays writers.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @param message	Optimistic-read request
+	 */
+	private void handleOptimisticRead(ResourceState state, AccessRequestMsg message) {
+		ActorRef requestSender = message.getReplyTo();
+		AccessRequest request = message.getAccessRequest();
+
+		if (state.getVersion() % 2 != 0) {
+			denyAccess(message, AccessRequestDenialReason.RESOURCE_BUSY);
+			return;
+		}
+		if (logSampler.accepts(LogMsg.EventType.ACCESS_REQUEST_GRANTED)) {
+			log(LogMsg.makeAccessRequestGrantedLogMsg(requestSender, getSelf(), request));
+		}
+		reply(requestSender, new AccessRequestGrantedMsg(request, getSelf(), request.getResourceName(), state.getVersion(), state.getPayload().view()));
+	}
+
+	/**
+	 * Process an upgrade or downgrade of access the user already holds.  A downgrade
+	 * is granted at once.  An upgrade is granted at once if no other user holds the
+	 * resource; otherwise a blocking upgrade waits, ahead of all queued requests, for
+	 * the other readers to leave.  Only one upgrade may wait at a time:  two readers
+	 * each waiting for the other to leave would deadlock, so a second upgrade is
+	 * denied instead.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @param message	Upgrade or downgrade request
+	 */
+	private void handleConversion(ResourceState state, AccessRequestMsg message) {
+		AccessRequest request = message.getAccessRequest();
+		ActorRef user = message.getReplyTo();
+
+		if (request.getType() == AccessRequestType.DOWNGRADE) {
+			if (!user.equals(state.getWriter())) {
+				denyAccess(message, AccessRequestDenialReason.NOT_HELD);
+				return;
+			}
+			release(state, user, AccessType.EXCLUSIVE_WRITE);
+			acquire(state, message);
+			grantAccess(message);
+			handleBlockingAccessRequests(state);
+		}
+		else if (!state.getReaders().isHeldBy(user)) {
+			denyAccess(message, AccessRequestDenialReason.NOT_HELD);
+		}
+		else if (state.getPendingUpgrade() != null) {
+			denyAccess(message, AccessRequestDenialReason.UPGRADE_CONFLICT);
+		}
+		else if (state.canUpgrade(user)) {
+			if (request.getType() == AccessRequestType.UPGRADE_BLOCKING) {
+				waitTimes.record(request.getPriority(), 0);
+			}
+			upgrade(state, message);
+		}
+		else if (request.getType() == AccessRequestType.UPGRADE_BLOCKING) {
+			WaitingRequest waiting = new WaitingRequest(state, message);
+			state.setPendingUpgrade(waiting);
+			deadlocks.reportWait(waiting, true);
+			if (request.getDeadlineMs() > 0) {
+				waiting.setDeadline(scheduleTimeout(waiting, request.getDeadlineMs()));
+			}
+			deadlocks.probe(state, message);
+		}
+		else {
+			denyAccess(message, AccessRequestDenialReason.RESOURCE_BUSY);
+		}
+	}
+
+	/**
+	 * Turn one read hold into write access, and grant the upgrade.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @param message	Upgrade request
+	 */
+	private void upgrade(ResourceState state, AccessRequestMsg message) {
+		release(state, message.getReplyTo(), AccessType.CONCURRENT_READ);
+		acquire(state, message);
+		grantAccess(message);
+	}
+
+	/**
+	 * Process a release of a local resource.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @param message	Release message
+	 * @return			True if access was actually released
+	 */
+	private boolean handleRelease(ResourceState state, AccessReleaseMsg message) {
+		AccessRelease accessRelease = message.getAccessRelease();
+		ActorRef releaseSender = message.getSender();
+
+		if (release(state, releaseSender, accessRelease.getType())) {
+			if (logSampler.accepts(LogMsg.EventType.ACCESS_RELEASED)) {
+				log(LogMsg.makeAccessReleasedLogMsg(releaseSender, getSelf(), accessRelease));
+			}
+			return true;
+		}
+		if (logSampler.accepts(LogMsg.EventType.ACCESS_RELEASE_IGNORED)) {
+			log(LogMsg.makeAccessReleaseIgnoredLogMsg(releaseSender, getSelf(), accessRelease));
+		}
+		return false;
+	}
+
+	/**
+	 * Record a grant of access to a local resource.  If the request asks for a lease,
+	 * it is started; the holder is watched, so that its access can be reclaimed if
+	 * it stops without releasing it.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @param message	Request being granted
+	 */
+	void acquire(ResourceState state, AccessRequestMsg message) {
+		AccessRequest request = message.getAccessRequest();
+		ActorRef user = message.getReplyTo();
+		AccessType type = accessTypeOf(request.getType());
+
+		if (type == AccessType.CONCURRENT_READ) {
+			state.getReaders().acquire(user);
+		}
+		else {
+			state.setWriter(user);
+		}
+		if (request.getLeaseMs() > 0) {
+			leases.start(state, user, type, request.getLeaseMs());
+		}
+		watchUser(user);
+	}
+
+	/**
+	 * Watch a user for termination, unless it is already watched.
+	 * 
+	 * @param user	User
+	 */
+	void watchUser(ActorRef user) {
+		if (watchedUsers.add(user)) {
+			getContext().watch(user);
+		}
+	}
+
+	/**
+	 * Drop one hold of access to a local resource, cancelling the lease on it.
+	 * 
+	 * @param state	Lock-table entry for resource
+	 * @param user	User releasing access
+	 * @param type	Access being released
+	 * @return		True if user held access, false if release should be ignored
+	 */
+	boolean release(ResourceState state, ActorRef user, AccessType type) {
+		if (!dropHold(state, user, type)) {
+			return false;
+		}
+		leases.released(state, user, type);
+		return true;
+	}
+
+	/**
+	 * Drop one hold of access to a local resource, leaving leases alone.  Used
+	 * directly only by an expiring lease, which has already removed itself:  going
+	 * through release() would cancel another of the user's leases instead.
+	 * 
+	 * @param state	Lock-table entry for resource
+	 * @param user	User releasing access
+	 * @param type	Access being released
+	 * @return		True if user held access
+	 */
+	boolean dropHold(ResourceState state, ActorRef user, AccessType type) {
+		boolean held;
+
+		if (type == AccessType.CONCURRENT_READ) {
+			held = state.getReaders().release(user);
+		}
+		else {
+			held = user.equals(state.getWriter());
+			if (held) {
+				state.getPayload().publish();
+				state.setWriter(null);
+			}
+		}
+		return held;
+	}
+
+	/**
+	 * Release everything a stopped user holds here and drop its queued requests,
+	 * then grant waiting requests.
+	 * 
+	 * @param user	User that has stopped
+	 */
+	private void reclaimFromUser(ActorRef user) {
+		ArrayList<ResourcePool> changedPools = new ArrayList<ResourcePool>();
+
+		// Drop pool requests first, so that no member released below is granted to them
+		watchedUsers.remove(user);
+		for (ResourcePool pool : pools.values()) {
+			boolean changed = false;
+			while (removeWaiting(pool.getWaitQueue(), user) != null) {
+				changed = true;
+			}
+			if (changed) {
+				changedPools.add(pool);
+			}
+		}
+		for (int id = 0; id < resourceCount; id++) {
+			ResourceState state = resourceStates[id];
+			boolean changed = false;
+
+			if (state == null) {
+				continue;	// Resource has moved to another manager
+			}
+			if (user.equals(state.getWriter())) {
+				state.getPayload().discard();	// Writer may have stopped midway through its update
+			}
+
+			for (AccessType type : AccessType.values()) {
+				while (release(state, user, type)) {
+					if (logSampler.accepts(LogMsg.EventType.ACCESS_RELEASED)) {
+						log(LogMsg.makeAccessReleasedLogMsg(user, getSelf(), new AccessRelease(state.getName(), type)));
+					}
+					changed = true;
+				}
+			}
+			if (removeUpgrade(state, user) != null) {
+				changed = true;
+			}
+			while (removeWaiting(state.getWaitQueue(), user) != null) {
+				changed = true;
+			}
+			if (changed) {
+				handleBlockingAccessRequests(state);
+			}
+		}
+		for (ResourcePool pool : changedPools) {
+			for (ResourceState member : pool.getMembers()) {
+				handleBlockingPoolRequests(pool, member);	// Requests behind the user's may fit now
+			}
+		}
+		delegator.reclaimFromUser(user);
+	}
+
+	/**
+	 * Remove a user's first request from a wait queue.
+	 * 
+	 * @param queue	Queue of a resource or pool
+	 * @param user	User
+	 * @return		Removed request, or null if user had none queued
+	 */
+	private AccessRequestMsg removeWaiting(WaitQueue queue, ActorRef user) {
+		Iterator<WaitingRequest> queued = queue.iterator();
+
+		while (queued.hasNext()) {
+			WaitingRequest waiting = queued.next();
+			if (waiting.getMessage().getReplyTo().equals(user)) {
+				queued.remove();
+				dequeued(waiting);
+				return waiting.getMessage();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remove a user's pending upgrade of a resource.
+	 * 
+	 * @param state	Lock-table entry for resource
+	 * @param user	User
+	 * @return		Removed upgrade request, or null if user had none pending
+	 */
+	private AccessRequestMsg removeUpgrade(ResourceState state, ActorRef user) {
+		WaitingRequest waiting = state.getPendingUpgrade();
+
+		if (waiting == null || !waiting.getMessage().getReplyTo().equals(user)) {
+			return null;
+		}
+		state.setPendingUpgrade(null);
+		dequeued(waiting);
+		return waiting.getMessage();
+	}
+
+	/**
+	 * Bookkeeping for a request that has left its wait queue:  it no longer waits
+	 * for anybody, and its deadline no longer applies.
+	 * 
+	 * @param waiting	Request removed from queue
+	 */
+	void dequeued(WaitingRequest waiting) {
+		if (waiting.getState() != null) {
+			deadlocks.reportWait(waiting, false);
+		}
+		else {
+			announcePool(waiting.getPool(), null);
+		}
+		if (waiting.getDeadline() != null) {
+			timers.cancel(waiting.getDeadline());
+		}
+	}
+
+	/**
+	 * Deny a queued request whose deadline has passed, and grant requests that were
+	 * waiting behind it.
+	 * 
+	 * @param waiting	Request whose deadline expired
+	 */
+	private void expireWait(WaitingRequest waiting) {
+		ResourceState state = waiting.getState();
+		AccessRequestMsg message = waiting.getMessage();
+
+		if (state != null && state.getPendingUpgrade() == waiting) {
+			state.setPendingUpgrade(null);
+			dequeued(waiting);
+			denyAccess(message, AccessRequestDenialReason.REQUEST_TIMED_OUT);
+			handleBlockingAccessRequests(state);
+		}
+		else if (waiting.getQueue().remove(waiting)) {
+			dequeued(waiting);
+			denyAccess(message, AccessRequestDenialReason.REQUEST_TIMED_OUT);
+			if (state != null) {
+				handleBlockingAccessRequests(state);
+			}
+		}
+	}
+
+	/**
+	 * Process a cancellation of a request, which is removed from its wait queue or
+	 * pending lookup and denied if it is still there, forwarded if its resource is
+	 * managed remotely, and ignored otherwise.
+	 * 
+	 * @param message	Cancellation message
+	 */
+	private void handleAccessCancel(AccessCancelMsg message) {
+		AccessRequest request = message.getAccessRequest();
+		ActorRef user = message.getSender();
+		String resourceName = request.getResourceName();
+		ResourceState state = lookupLocalResource(resourceName);
+		ResourcePool pool = ResourcePool.isPattern(resourceName) ? pools.get(resourceName) : null;
+
+		if (state != null || pool != null) {
+			WaitQueue queue = (state != null) ? state.getWaitQueue() : pool.getWaitQueue();
+			WaitingRequest waiting = queue.remove(user, request);
+			if (waiting == null && state != null && state.getPendingUpgrade() != null
+					&& state.getPendingUpgrade().getMessage().getAccessRequest() == request) {
+				waiting = state.getPendingUpgrade();
+				state.setPendingUpgrade(null);
+			}
+			if (waiting != null) {
+				dequeued(waiting);
+				denyAccess(waiting.getMessage(), AccessRequestDenialReason.REQUEST_CANCELLED);
+				if (state != null) {
+					handleBlockingAccessRequests(state);
+				}
+			}
+		}
+		else if (forwardIfRemote(resourceName, message)) {
+			// Forwarded to manager of resource
+		}
+		else if (pendingLookups.containsKey(resourceName)) {
+			Iterator<AccessRequestMsg> waiting = pendingLookups.get(resourceName).getWaitingRequests().iterator();
+			while (waiting.hasNext()) {
+				AccessRequestMsg requestMessage = waiting.next();
+				if (requestMessage.getAccessRequest() == request && requestMessage.getReplyTo().equals(user)) {
+					waiting.remove();
+					denyAccess(requestMessage, AccessRequestDenialReason.REQUEST_CANCELLED);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param requestType	Type of request
+	 * @return				Access held once request is granted
+	 */
+	private static AccessType accessTypeOf(AccessRequestType requestType) {
+		return (requestType == AccessRequestType.CONCURRENT_READ_BLOCKING || requestType == AccessRequestType.CONCURRENT_READ_NONBLOCKING
+				|| requestType == AccessRequestType.DOWNGRADE)
+				? AccessType.CONCURRENT_READ : AccessType.EXCLUSIVE_WRITE;
+	}
+
+	private static boolean isConversion(AccessRequestType requestType) {
+		return requestType == AccessRequestType.UPGRADE_BLOCKING || requestType == AccessRequestType.UPGRADE_NONBLOCKING
+				|| requestType == AccessRequestType.DOWNGRADE;
+	}
+
+	/**
+	 * Schedule a timeout on the manager's timer wheel, starting the wheel's ticks if
+	 * they are not already running.
+	 * 
+	 * @param item		Item to process on expiry
+	 * @param delayMs	Delay until expiry, in milliseconds
+	 * @return			Handle for cancelling timeout
+	 */
+	TimerWheel.Timeout<Object> scheduleTimeout(Object item, long delayMs) {
+		TimerWheel.Timeout<Object> timeout = timers.schedule(item, delayMs, nowMs());
+		scheduleTimerTick();
+		return timeout;
+	}
+
+	/**
+	 * Arrange for the next tick of the timer wheel, unless one is already due or no
+	 * timeouts are pending.
+	 */
+	private void scheduleTimerTick() {
+		if (!timerTickScheduled && !timers.isEmpty()) {
+			timerTickScheduled = true;
+			getContext().getSystem().scheduler().scheduleOnce(
+					Duration.create(timers.getTickMs(), TimeUnit.MILLISECONDS),
+					getSelf(), new TimerTickMsg(), getContext().dispatcher(), ActorRef.noSender());
+		}
+	}
+
+	static long nowMs() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
 	}
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package cmsc433.mp3.actors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.messages.ResourceHandoffMsg;
+import cmsc433.mp3.util.MigrationPolicy;
+import cmsc433.mp3.util.RequestRates;
+import cmsc433.mp3.util.ResourceHandoff;
+import cmsc433.mp3.util.ResourceState;
+import cmsc433.mp3.util.TimerWheel;
+import cmsc433.mp3.util.WaitingRequest;
+
+/**
+ * Live migration of a resource manager's resources.  A resource is handed over
+ * as a snapshot of everything about it (holders, leases, waiting requests,
+ * payload), and the new manager carries on where the old one stopped.  Under a
+ * migration policy, the requests for each resource are counted by the manager
+ * forwarding them, and at the end of each window a busy resource moves to the
+ * manager forwarding most of them.
+ *
+ * Instances are owned by a single manager, and used only while it handles a
+ * message; they must never be shared between actors.
+ */
+class ResourceMigrator {
+	private final ResourceManagerActor manager;
+	private final LeaseKeeper leases;			// Manager's leases
+	private final DeadlockDetector deadlocks;	// Manager's deadlock detector
+	private final TimerWheel<Object> timers;	// Manager's timer wheel
+	private MigrationPolicy migrationPolicy = MigrationPolicy.DISABLED;
+	private RequestRates requestRates = new RequestRates(ResourceManagerActor.nowMs());	// Requests per resource in current migration window
+
+	/**
+	 * Constructor
+	 *
+	 * @param manager	Manager owning resources
+	 * @param leases	Manager's leases
+	 * @param deadlocks	Manager's deadlock detector
+	 * @param timers	Manager's timer wheel
+	 */
+	ResourceMigrator(ResourceManagerActor manager, LeaseKeeper leases, DeadlockDetector deadlocks, TimerWheel<Object> timers) {
+		this.manager = manager;
+		this.leases = leases;
+		this.deadlocks = deadlocks;
+		this.timers = timers;
+	}
+
+	/**
+	 * Change the migration policy, starting a new window.
+	 *
+	 * @param policy	New policy
+	 */
+	void setPolicy(MigrationPolicy policy) {
+		migrationPolicy = policy;
+		requestRates.reset(ResourceManagerActor.nowMs());
+	}
+
+	/**
+	 * Count a request for a local resource in the current window, if the migration
+	 * policy is enabled.
+	 *
+	 * @param resourceName	Name of resource
+	 * @param source		Remote manager that forwarded request, or null if it came
+	 * 						from a local user
+	 */
+	void recordRequest(String resourceName, ActorRef source) {
+		if (migrationPolicy.isEnabled()) {
+			requestRates.record(resourceName, source);
+		}
+	}
+
+	/**
+	 * At the end of each window of the migration policy, move every busy resource
+	 * to the manager forwarding most of its requests, and start a new window.
+	 */
+	void checkMigrations() {
+		long now = ResourceManagerActor.nowMs();
+
+		if (!migrationPolicy.isEnabled() || now - requestRates.getWindowStartMs() < migrationPolicy.getWindowMs()) {
+			return;
+		}
+		for (String resourceName : requestRates.getResourceNames()) {
+			ActorRef target = requestRates.migrationTarget(resourceName, migrationPolicy.getThreshold());
+			ResourceState state = manager.lookupLocalResource(resourceName);
+			if (target != null && state != null) {
+				migrate(state, target);
+			}
+		}
+		requestRates.reset(now);
+	}
+
+	/**
+	 * Hand a local resource over to another manager.  Everything about it (holders,
+	 * leases, waiting requests, payload) is sent to the new manager, which carries on
+	 * where this one stopped; from then on this manager forwards whatever it
+	 * receives for the resource to the new manager, and the other managers are told
+	 * to send it there directly.
+	 *
+	 * @param state		Lock-table entry for resource
+	 * @param target	New manager
+	 */
+	void migrate(ResourceState state, ActorRef target) {
+		long now = ResourceManagerActor.nowMs();
+
+		if (!state.getDelegates().isEmpty()) {
+			return;		// Delegates would return their reads to the wrong manager
+		}
+
+		Map<ActorRef, Integer> readHolds = new HashMap<ActorRef, Integer>();
+		for (ActorRef reader : state.getReaders().getHolders()) {
+			readHolds.put(reader, state.getReaders().getHoldCount(reader));
+		}
+		ResourceHandoff.QueuedRequest upgrade = null;
+		if (state.getPendingUpgrade() != null) {
+			upgrade = handoffOf(state.getPendingUpgrade(), now);
+			manager.dequeued(state.getPendingUpgrade());
+			state.setPendingUpgrade(null);
+		}
+		ArrayList<ResourceHandoff.QueuedRequest> queued = new ArrayList<ResourceHandoff.QueuedRequest>();
+		Iterator<WaitingRequest> waiting = state.getWaitQueue().iterator();
+		while (waiting.hasNext()) {
+			WaitingRequest request = waiting.next();
+			queued.add(handoffOf(request, now));
+			waiting.remove();
+			manager.dequeued(request);
+		}
+		ResourceHandoff handoff = new ResourceHandoff(state.getResource(), state.getPolicy(), state.getWriter(), readHolds,
+				leases.handOff(state, now), state.getVersion(), state.getPayload().getPublished(), state.getPayload().getStaged(), upgrade, queued);
+
+		manager.send(target, new ResourceHandoffMsg(handoff), manager.getSelf());
+		manager.removeLocalResource(state, target);
+	}
+
+	/**
+	 * @param waiting	Queued request
+	 * @param now		Current time, in milliseconds
+	 * @return			Request as handed over to another manager or shard, with the
+	 * 					time its deadline had left
+	 */
+	ResourceHandoff.QueuedRequest handoffOf(WaitingRequest waiting, long now) {
+		long deadlineMs = 0;
+		if (waiting.getDeadline() != null) {
+			deadlineMs = Math.max(1, timers.remainingMs(waiting.getDeadline(), now));
+		}
+		return new ResourceHandoff.QueuedRequest(waiting.getMessage(), deadlineMs);
+	}
+
+	/**
+	 * Take over a resource handed over by another manager, restoring its holders,
+	 * leases, waiting requests and payload, and grant whatever can now be granted.
+	 *
+	 * @param handoff	Snapshot of resource
+	 */
+	void adopt(ResourceHandoff handoff) {
+		manager.addLocalResource(handoff.getResource());
+		ResourceState state = manager.lookupLocalResource(handoff.getResourceName());
+		state.setPolicy(handoff.getPolicy());
+		if (handoff.getWriter() != null) {
+			state.setWriter(handoff.getWriter());
+			manager.watchUser(handoff.getWriter());
+		}
+		state.setVersion(handoff.getVersion());
+		state.getPayload().restore(handoff.getPayload(), handoff.getStagedPayload());
+		for (Map.Entry<ActorRef, Integer> holds : handoff.getReadHolds().entrySet()) {
+			for (int i = 0; i < holds.getValue(); i++) {
+				state.getReaders().acquire(holds.getKey());
+			}
+			manager.watchUser(holds.getKey());
+		}
+		leases.adopt(state, handoff.getLeases());
+		if (handoff.getPendingUpgrade() != null) {
+			state.setPendingUpgrade(adoptWaiting(state, handoff.getPendingUpgrade()));
+		}
+		for (ResourceHandoff.QueuedRequest queued : handoff.getQueued()) {
+			state.getWaitQueue().add(adoptWaiting(state, queued));
+		}
+
+		manager.resourceAdopted(state);
+		manager.handleBlockingAccessRequests(state);
+	}
+
+	private WaitingRequest adoptWaiting(ResourceState state, ResourceHandoff.QueuedRequest queued) {
+		WaitingRequest waiting = new WaitingRequest(state, queued.getMessage());
+
+		deadlocks.reportWait(waiting, true);
+		if (queued.getDeadlineMs() > 0) {
+			waiting.setDeadline(manager.scheduleTimeout(waiting, queued.getDeadlineMs()));
+		}
+		return waiting;
+	}
+}
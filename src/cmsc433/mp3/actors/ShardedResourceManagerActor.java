@@ -0,0 +1,414 @@
+package cmsc433.mp3.actors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import cmsc433.mp3.messages.AccessBatchMsg;
+import cmsc433.mp3.messages.AccessCancelMsg;
+import cmsc433.mp3.messages.AccessReleaseMsg;
+import cmsc433.mp3.messages.AccessRequestMsg;
+import cmsc433.mp3.messages.AddInitialLocalResourcesRequestMsg;
+import cmsc433.mp3.messages.AddInitialLocalResourcesResponseMsg;
+import cmsc433.mp3.messages.AddLocalUsersRequestMsg;
+import cmsc433.mp3.messages.AddLocalUsersResponseMsg;
+import cmsc433.mp3.messages.AddRemoteManagersRequestMsg;
+import cmsc433.mp3.messages.AddRemoteManagersResponseMsg;
+import cmsc433.mp3.messages.DeadlockDetectedMsg;
+import cmsc433.mp3.messages.DeadlockProbeMsg;
+import cmsc433.mp3.messages.MigrateResourceMsg;
+import cmsc433.mp3.messages.MultiAccessRequestMsg;
+import cmsc433.mp3.messages.PoolStatusMsg;
+import cmsc433.mp3.messages.PoolTransferMsg;
+import cmsc433.mp3.messages.PoolWaiterRequestMsg;
+import cmsc433.mp3.messages.ReadDelegationGrantMsg;
+import cmsc433.mp3.messages.ReadDelegationRecallMsg;
+import cmsc433.mp3.messages.ReadDelegationReturnMsg;
+import cmsc433.mp3.messages.ReservationAbortMsg;
+import cmsc433.mp3.messages.ReservationCommitMsg;
+import cmsc433.mp3.messages.ReservationRequestMsg;
+import cmsc433.mp3.messages.ResourceHandoffMsg;
+import cmsc433.mp3.messages.ResourceMovedMsg;
+import cmsc433.mp3.messages.ResourceSummaryMsg;
+import cmsc433.mp3.messages.SetLogFilterMsg;
+import cmsc433.mp3.messages.SetMigrationPolicyMsg;
+import cmsc433.mp3.messages.SetReadDelegationMsg;
+import cmsc433.mp3.messages.SetSchedulingPolicyMsg;
+import cmsc433.mp3.messages.SetWaitReportDelayMsg;
+import cmsc433.mp3.messages.ValidateReadRequestMsg;
+import cmsc433.mp3.messages.WaitForEdgeMsg;
+import cmsc433.mp3.messages.WaitTimeStatsRequestMsg;
+import cmsc433.mp3.messages.WaitTimeStatsResponseMsg;
+import cmsc433.mp3.messages.WhoHasResourceRequestMsg;
+import cmsc433.mp3.messages.WritePayloadMsg;
+import cmsc433.mp3.util.AccessRelease;
+import cmsc433.mp3.util.AccessRequest;
+import cmsc433.mp3.util.LogFilter;
+import cmsc433.mp3.util.Resource;
+import cmsc433.mp3.util.ResourcePool;
+import cmsc433.mp3.util.WaitTimeStats;
+
+/**
+ * Front actor for a resource manager whose lock table is split across several
+ * shard actors.
+ *
+ * The front owns no resources itself.  Each local resource is assigned to one of
+ * the child ResourceManagerActor shards by a hash of its name, and every message
+ * concerning a resource is forwarded (with its original sender) to the shard that
+ * owns it, so that a node's traffic is processed by several mailboxes at once.
+ * Configuration messages are passed to every shard, and answered once all shards
+ * have acknowledged them, and requests for wait-time statistics are answered with
+ * the statistics of all shards combined.  Resource summaries published by remote managers are
+ * passed to every shard, since each shard does its own discovery; so are notices
+ * of resources moving between managers.  A resource handed over to this manager
+ * goes to the shard its name hashes to.
+ *
+ * When this manager is the wait-for directory for a user, the directory entries
+ * for the user are kept by the shard the user's reference hashes to, and reports
+ * of the user's waits and deadlock probes looking for the user go there.  A probe
+ * following a particular queued request goes to the shard owning the resource.
+ *
+ * To the rest of the system (users and remote managers) the front looks exactly
+ * like an ordinary resource manager.
+ *
+ * Requests for a pool of interchangeable resources (such as Printer_*) go to the
+ * shard holding most of the pool's members.  Each shard serves its own queue for
+ * the pool from its own members, and announces changes in its part of the pool to
+ * the others; a shard with an idle member asks a shard with requests waiting to
+ * hand one over.  These messages between shards pass through the front, which
+ * remembers recent handovers so as to send a cancellation to the shard now
+ * holding its request.  A cancellation that passed before its request was handed
+ * over is sent again after the handover.
+ *
+ * A multi-resource request is coordinated by the shard owning the first of its
+ * resources.  Reservations, and their commits and aborts, go to the shard owning
+ * the resource; answers to them go straight to the coordinating shard.
+ *
+ * Messages of any other kind are unhandled.
+ */
+public class ShardedResourceManagerActor extends AbstractActor {
+
+	private final ActorRef[] shards;	// Child managers, each owning a slice of the lock table
+	private final Map<String, Integer> poolShards = new HashMap<String, Integer>();	// Shard serving each pool pattern
+
+	// Bound on number of pool handovers, and of pool cancellations, remembered
+	private static final int RECENT_POOL_MESSAGES = 1024;
+
+	// Shard each recently handed-over pool request went to
+	private final Map<AccessRequest, Integer> poolTransfers = new LinkedHashMap<AccessRequest, Integer>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<AccessRequest, Integer> eldest) {
+			return size() > RECENT_POOL_MESSAGES;
+		}
+	};
+
+	// Recent cancellations of pool requests, by request
+	private final Map<AccessRequest, AccessCancelMsg> poolCancels = new LinkedHashMap<AccessRequest, AccessCancelMsg>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<AccessRequest, AccessCancelMsg> eldest) {
+			return size() > RECENT_POOL_MESSAGES;
+		}
+	};
+
+	private Object pendingReply;		// Reply to configuration message awaiting shard acknowledgments
+	private ActorRef pendingReplyTo;	// Where to send pending reply
+	private int pendingAcks = 0;		// Shard acknowledgments still outstanding
+
+	private WaitTimeStats pendingStats;		// Wait-time statistics gathered from shards so far
+	private ActorRef pendingStatsReplyTo;	// Where to send them
+	private int pendingStatsShards = 0;		// Shards yet to report
+
+	/**
+	 * Props structure-generator for this class.
+	 * @return  Props structure
+	 */
+	static Props props (ActorRef logger, int shardCount, LogFilter logFilter) {
+		return Props.create(ShardedResourceManagerActor.class, logger, shardCount, logFilter);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param logger		Actor to send logging messages to
+	 * @param shardCount	Number of shards to split lock table across
+	 * @param logFilter		Events shards log
+	 */
+	private ShardedResourceManagerActor(ActorRef logger, int shardCount, LogFilter logFilter) {
+		super();
+		shards = new ActorRef[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = getContext().actorOf(ResourceManagerActor.shardProps(logger, i, shardCount, logFilter));
+		}
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(Object.class, this::onReceive)
+				.build();
+	}
+
+	public void onReceive(Object msg) throws Exception {
+		if (msg instanceof AddInitialLocalResourcesRequestMsg) {
+			AddInitialLocalResourcesRequestMsg message = (AddInitialLocalResourcesRequestMsg) msg;
+			ArrayList<ArrayList<Resource>> slices = new ArrayList<ArrayList<Resource>>();
+
+			for (int i = 0; i < shards.length; i++) {
+				slices.add(new ArrayList<Resource>());
+			}
+			for (Resource resource : message.getLocalResources()) {
+				slices.get(shardIndex(resource.getName())).add(resource);
+			}
+			assignPoolShards(slices);
+			awaitShardAcks(new AddInitialLocalResourcesResponseMsg(message));
+			for (int i = 0; i < shards.length; i++) {
+				shards[i].tell(new AddInitialLocalResourcesRequestMsg(slices.get(i)), getSelf());
+			}
+		}
+		else if (msg instanceof AddLocalUsersRequestMsg) {
+			awaitShardAcks(new AddLocalUsersResponseMsg((AddLocalUsersRequestMsg) msg));
+			broadcastToShards(msg);
+		}
+		else if (msg instanceof AddRemoteManagersRequestMsg) {
+			awaitShardAcks(new AddRemoteManagersResponseMsg((AddRemoteManagersRequestMsg) msg));
+			broadcastToShards(msg);
+		}
+		else if (msg instanceof AddInitialLocalResourcesResponseMsg
+				|| msg instanceof AddLocalUsersResponseMsg
+				|| msg instanceof AddRemoteManagersResponseMsg) {
+			pendingAcks--;
+			if (pendingAcks == 0) {
+				pendingReplyTo.tell(pendingReply, getSelf());
+				pendingReply = null;
+				pendingReplyTo = null;
+			}
+		}
+		else if (msg instanceof WaitTimeStatsRequestMsg) {
+			pendingStats = new WaitTimeStats();
+			pendingStatsReplyTo = getSender();
+			pendingStatsShards = shards.length;
+			broadcastToShards(msg);
+		}
+		else if (msg instanceof WaitTimeStatsResponseMsg) {
+			pendingStats.merge(((WaitTimeStatsResponseMsg) msg).getStats());
+			pendingStatsShards--;
+			if (pendingStatsShards == 0) {
+				pendingStatsReplyTo.tell(new WaitTimeStatsResponseMsg(pendingStats), getSelf());
+				pendingStats = null;
+				pendingStatsReplyTo = null;
+			}
+		}
+		else if (msg instanceof ResourceSummaryMsg) {
+			broadcastToShards(msg);
+		}
+		else if (msg instanceof AccessRequestMsg) {
+			AccessRequestMsg message = (AccessRequestMsg) msg;
+			shardFor(message.getAccessRequest().getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof AccessReleaseMsg) {
+			AccessReleaseMsg message = (AccessReleaseMsg) msg;
+			shardFor(message.getAccessRelease().getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof SetSchedulingPolicyMsg) {
+			SetSchedulingPolicyMsg message = (SetSchedulingPolicyMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof AccessCancelMsg) {
+			AccessCancelMsg message = (AccessCancelMsg) msg;
+			String resourceName = message.getAccessRequest().getResourceName();
+			if (poolShards.containsKey(resourceName)) {
+				// Request may since have been handed to another shard, or be about to be
+				Integer shard = poolTransfers.get(message.getAccessRequest());
+				poolCancels.put(message.getAccessRequest(), message);
+				((shard != null) ? shards[shard] : shardFor(resourceName)).forward(msg, getContext());
+			}
+			else {
+				shardFor(resourceName).forward(msg, getContext());
+			}
+		}
+		else if (msg instanceof SetReadDelegationMsg) {
+			SetReadDelegationMsg message = (SetReadDelegationMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ReadDelegationGrantMsg) {
+			ReadDelegationGrantMsg message = (ReadDelegationGrantMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ReadDelegationRecallMsg) {
+			ReadDelegationRecallMsg message = (ReadDelegationRecallMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ReadDelegationReturnMsg) {
+			ReadDelegationReturnMsg message = (ReadDelegationReturnMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof MigrateResourceMsg) {
+			MigrateResourceMsg message = (MigrateResourceMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ResourceHandoffMsg) {
+			ResourceHandoffMsg message = (ResourceHandoffMsg) msg;
+			shardFor(message.getHandoff().getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ResourceMovedMsg || msg instanceof SetMigrationPolicyMsg || msg instanceof SetLogFilterMsg
+				|| msg instanceof SetWaitReportDelayMsg) {
+			broadcastToShards(msg);
+		}
+		else if (msg instanceof WritePayloadMsg) {
+			WritePayloadMsg message = (WritePayloadMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ValidateReadRequestMsg) {
+			ValidateReadRequestMsg message = (ValidateReadRequestMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof AccessBatchMsg) {
+			AccessBatchMsg message = (AccessBatchMsg) msg;
+			ArrayList<ArrayList<Object>> slices = new ArrayList<ArrayList<Object>>();
+
+			// Split batch into one smaller batch per shard, keeping order within each
+			for (int i = 0; i < shards.length; i++) {
+				slices.add(new ArrayList<Object>());
+			}
+			for (Object access : message.getAccesses()) {
+				String resourceName = (access instanceof AccessRequest)
+						? ((AccessRequest) access).getResourceName()
+						: ((AccessRelease) access).getResourceName();
+				slices.get(shardIndex(resourceName)).add(access);
+			}
+			for (int i = 0; i < shards.length; i++) {
+				if (!slices.get(i).isEmpty()) {
+					shards[i].forward(new AccessBatchMsg(slices.get(i), message.getUser()).stamped(message.getTimestamp()), getContext());
+				}
+			}
+		}
+		else if (msg instanceof DeadlockProbeMsg) {
+			DeadlockProbeMsg message = (DeadlockProbeMsg) msg;
+			if (message.getEdge() == null) {
+				directoryShardFor(message.getTarget()).forward(msg, getContext());
+			}
+			else {
+				shardFor(message.getEdge().getResourceName()).forward(msg, getContext());
+			}
+		}
+		else if (msg instanceof WaitForEdgeMsg) {
+			WaitForEdgeMsg message = (WaitForEdgeMsg) msg;
+			directoryShardFor(message.getEdge().getWaiter()).forward(msg, getContext());
+		}
+		else if (msg instanceof DeadlockDetectedMsg) {
+			DeadlockDetectedMsg message = (DeadlockDetectedMsg) msg;
+			shardFor(message.getVictim().getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof PoolStatusMsg) {
+			broadcastToShards(msg);
+		}
+		else if (msg instanceof PoolWaiterRequestMsg) {
+			shards[((PoolWaiterRequestMsg) msg).getToShard()].forward(msg, getContext());
+		}
+		else if (msg instanceof PoolTransferMsg) {
+			PoolTransferMsg message = (PoolTransferMsg) msg;
+			AccessRequest request = message.getRequest().getMessage().getAccessRequest();
+			ActorRef shard = shards[message.getToShard()];
+			poolTransfers.put(request, message.getToShard());
+			shard.forward(msg, getContext());
+			if (poolCancels.containsKey(request)) {
+				shard.tell(poolCancels.get(request), getSelf());	// Cancellation passed first
+			}
+		}
+		else if (msg instanceof MultiAccessRequestMsg) {
+			MultiAccessRequestMsg message = (MultiAccessRequestMsg) msg;
+			shardFor(message.getRequest().getResourceNames().get(0)).forward(msg, getContext());
+		}
+		else if (msg instanceof ReservationRequestMsg) {
+			ReservationRequestMsg message = (ReservationRequestMsg) msg;
+			shardFor(message.getReservation().getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ReservationCommitMsg) {
+			ReservationCommitMsg message = (ReservationCommitMsg) msg;
+			shardFor(message.getReservation().getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof ReservationAbortMsg) {
+			ReservationAbortMsg message = (ReservationAbortMsg) msg;
+			shardFor(message.getReservation().getResourceName()).forward(msg, getContext());
+		}
+		else if (msg instanceof WhoHasResourceRequestMsg) {
+			WhoHasResourceRequestMsg message = (WhoHasResourceRequestMsg) msg;
+			shardFor(message.getResourceName()).forward(msg, getContext());
+		}
+		else {
+			unhandled(msg);
+		}
+	}
+
+	/**
+	 * Remember the reply to send to the sender of the current configuration message
+	 * once every shard has acknowledged it.
+	 *
+	 * @param reply	Reply to send
+	 */
+	private void awaitShardAcks(Object reply) {
+		pendingReply = reply;
+		pendingReplyTo = getSender();
+		pendingAcks = shards.length;
+	}
+
+	private void broadcastToShards(Object msg) {
+		for (ActorRef shard : shards) {
+			shard.tell(msg, getSelf());
+		}
+	}
+
+	/**
+	 * Choose, for each pool of interchangeable resources, the shard that serves
+	 * requests for the pool:  the one holding most of its members.
+	 * 
+	 * @param slices	Resources assigned to each shard
+	 */
+	private void assignPoolShards(ArrayList<ArrayList<Resource>> slices) {
+		Map<String, int[]> memberCounts = new HashMap<String, int[]>();
+
+		for (int i = 0; i < slices.size(); i++) {
+			for (Resource resource : slices.get(i)) {
+				String pattern = ResourcePool.patternOf(resource.getName());
+				if (pattern != null) {
+					int[] counts = memberCounts.get(pattern);
+					if (counts == null) {
+						counts = new int[shards.length];
+						memberCounts.put(pattern, counts);
+					}
+					counts[i]++;
+				}
+			}
+		}
+		for (Map.Entry<String, int[]> entry : memberCounts.entrySet()) {
+			int[] counts = entry.getValue();
+			int best = 0;
+			for (int i = 1; i < counts.length; i++) {
+				if (counts[i] > counts[best]) {
+					best = i;
+				}
+			}
+			poolShards.put(entry.getKey(), best);
+		}
+	}
+
+	private int shardIndex(String resourceName) {
+		Integer poolShard = poolShards.get(resourceName);
+		if (poolShard != null) {
+			return poolShard;
+		}
+		return Math.floorMod(resourceName.hashCode(), shards.length);
+	}
+
+	private ActorRef shardFor(String resourceName) {
+		return shards[shardIndex(resourceName)];
+	}
+
+	private ActorRef directoryShardFor(ActorRef user) {
+		return shards[Math.floorMod(user.hashCode(), shards.length)];
+	}
+}
@@ -1,5 +1,6 @@
 package cmsc433.mp3.actors;
 
+import java.io.File;
 import java.util.ArrayList;
 
 import akka.actor.ActorRef;
@@ -7,12 +8,18 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.AbstractActor.Receive;
 import cmsc433.mp3.messages.LogResultMsg;
+import cmsc433.mp3.messages.LogSnapshotRequestMsg;
 import cmsc433.mp3.messages.SimulationFinishMsg;
 import cmsc433.mp3.messages.SimulationStartMsg;
 import cmsc433.mp3.messages.UserStartMsg;
+import cmsc433.mp3.messages.UserTerminatedMsg;
+import cmsc433.mp3.messages.WaitTimeStatsRequestMsg;
+import cmsc433.mp3.messages.WaitTimeStatsResponseMsg;
+import cmsc433.mp3.util.LogMerger;
 import cmsc433.mp3.util.NodeSpecification;
 import cmsc433.mp3.util.SystemActors;
 import cmsc433.mp3.util.Systems;
+import cmsc433.mp3.util.WaitTimeStats;
 import akka.actor.AbstractActor;
 
 /**
@@ -28,25 +35,28 @@ public class SimulationManagerActor extends AbstractActor {
 	
 	private ArrayList<NodeSpecification> nodes;	// Nodes in simulated system
 	private ActorSystem system;	
+	private File logDirectory;	// Where logger writes log segments, or null for nowhere
 	
 	/**
 	 * Constructor
 	 * 
 	 * @param nodes
 	 * @param system
+	 * @param logDirectory
 	 */
-	public SimulationManagerActor(ArrayList<NodeSpecification> nodes, ActorSystem system) {
+	public SimulationManagerActor(ArrayList<NodeSpecification> nodes, ActorSystem system, File logDirectory) {
 		super();
 		this.nodes = nodes;
 		this.system = system;
+		this.logDirectory = logDirectory;
 	}
 	
 	/**
 	 * Props structure-generator for this class.
 	 * @return  Props structure
 	 */
-	static Props props (ArrayList<NodeSpecification> nodes, ActorSystem system) {
-		return Props.create(SimulationManagerActor.class, nodes, system);
+	static Props props (ArrayList<NodeSpecification> nodes, ActorSystem system, File logDirectory) {
+		return Props.create(SimulationManagerActor.class, nodes, system, logDirectory);
 	}
 	
 	/**
@@ -57,12 +67,31 @@ public class SimulationManagerActor extends AbstractActor {
 	 * @return					Reference to new manager
 	 */
 	public static ActorRef makeSimulationManager (ArrayList<NodeSpecification> nodes, ActorSystem system) {
-		ActorRef newManager = system.actorOf(props(nodes, system));
+		return makeSimulationManager(nodes, system, null);
+	}
+
+	/**
+	 * Factory method for creating simulation managers whose logger also writes every
+	 * event to log segments, which LogSegmentReader decodes.
+	 * @param nodes				Nodes in simulated system
+	 * @param system			Actor system in which manager will execute
+	 * @param logDirectory		Directory to write log segments to, or null for none
+	 * @return					Reference to new manager
+	 */
+	public static ActorRef makeSimulationManager (ArrayList<NodeSpecification> nodes, ActorSystem system, File logDirectory) {
+		ActorRef newManager = system.actorOf(props(nodes, system, logDirectory));
 		return newManager;
 	}
 
 	
 	private ActorRef replyTo;	// Where to send simulation results when they are ready
+	private SystemActors actors;	// Managers and users of simulated system
+	private ArrayList<ActorRef> loggers = new ArrayList<ActorRef>();	// Log stripes, one per node
+	private ArrayList<ArrayList<Object>> stripeLogs = new ArrayList<ArrayList<Object>>();	// Their logs, once collected
+	private int terminatedUsers = 0;	// Users that have terminated
+	private WaitTimeStats waitTimeStats = new WaitTimeStats();	// Combined statistics of managers
+	private int pendingStats = 0;	// Managers yet to send statistics
+	private int pendingLogs = 0;	// Stripes yet to send their logs
 
 	@Override
 	public Receive createReceive() {
@@ -78,9 +107,13 @@ public class SimulationManagerActor extends AbstractActor {
 			// Update replyTo field
 			replyTo = getSender();
 			
-			// Create logger for use in simulated system, then system
-			ActorRef logger = LoggerActor.makeLogger(getSelf(), system);
-			SystemActors actors = Systems.makeSystem (nodes, logger, system);
+			// Create a log stripe for each node for use in simulated system, then system
+			for (int i = 0; i < nodes.size(); i++) {
+				loggers.add(LoggerActor.makeLogger(getSelf(), system, i, LoggerActor.DEFAULT_CAPACITY,
+						LoggerActor.DEFAULT_OVERFLOW_POLICY, logDirectory));
+				stripeLogs.add(null);
+			}
+			actors = Systems.makeSystem (nodes, loggers, system);
 			
 			// Start simulation by sending each user a start message.
 			ArrayList<ActorRef> users = actors.getUsers();
@@ -89,12 +122,43 @@ public class SimulationManagerActor extends AbstractActor {
 				u.tell(sMsg, getSelf());
 			}
 		}
-		else if (msg instanceof LogResultMsg) {
+		else if (msg instanceof UserTerminatedMsg) {
 			
-			// Forward simulation results caller and stop.
-			LogResultMsg lMsg = (LogResultMsg)msg;
-			replyTo.tell(new SimulationFinishMsg(lMsg.getLog()), getSelf());
-			getContext().stop(getSelf());
+			// Once every user has terminated, collect wait-time statistics from every
+			// manager before finishing.
+			terminatedUsers++;
+			if (terminatedUsers == actors.getUsers().size()) {
+				pendingStats = actors.getResourceManagers().size();
+				for (ActorRef m : actors.getResourceManagers()) {
+					m.tell(new WaitTimeStatsRequestMsg(), getSelf());
+				}
+			}
+		}
+		else if (msg instanceof WaitTimeStatsResponseMsg) {
+			waitTimeStats.merge(((WaitTimeStatsResponseMsg) msg).getStats());
+			pendingStats--;
+			
+			// Managers may still have been logging after the last user finished.
+			// Each one has sent its last events to its stripe before replying, so
+			// now ask every stripe for its log.
+			if (pendingStats == 0) {
+				pendingLogs = loggers.size();
+				for (ActorRef l : loggers) {
+					l.tell(new LogSnapshotRequestMsg(), getSelf());
+				}
+			}
+		}
+		else if (msg instanceof LogResultMsg) {
+			stripeLogs.set(loggers.indexOf(getSender()), ((LogResultMsg) msg).getLog());
+			pendingLogs--;
+
+			// Merge stripes into one log by timestamp, forward simulation results to
+			// caller and stop.
+			if (pendingLogs == 0) {
+				ArrayList<Object> log = LogMerger.merge(stripeLogs);
+				replyTo.tell(new SimulationFinishMsg(log, waitTimeStats), getSelf());
+				getContext().stop(getSelf());
+			}
 		}
 		else {
 			throw new Exception("Bad message sent to simulation manager");
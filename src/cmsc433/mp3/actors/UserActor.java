@@ -1,19 +1,39 @@
 package cmsc433.mp3.actors;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.AbstractActor.Receive;
+import cmsc433.mp3.messages.AccessBatchMsg;
+import cmsc433.mp3.messages.AccessCancelMsg;
 import cmsc433.mp3.messages.AccessReleaseMsg;
 import cmsc433.mp3.messages.AccessRequestDeniedMsg;
 import cmsc433.mp3.messages.AccessRequestGrantedMsg;
 import cmsc433.mp3.messages.AccessRequestMsg;
+import cmsc433.mp3.messages.AccessResponseBatchMsg;
 import cmsc433.mp3.messages.LogMsg;
+import cmsc433.mp3.messages.MultiAccessDeniedMsg;
+import cmsc433.mp3.messages.MultiAccessGrantedMsg;
+import cmsc433.mp3.messages.MultiAccessRequestMsg;
+import cmsc433.mp3.messages.Timestamped;
 import cmsc433.mp3.messages.UserStartMsg;
+import cmsc433.mp3.messages.ValidateReadRequestMsg;
+import cmsc433.mp3.messages.ValidateReadResponseMsg;
+import cmsc433.mp3.messages.WritePayloadMsg;
+import cmsc433.mp3.enums.AccessRequestType;
 import cmsc433.mp3.util.AccessRelease;
 import cmsc433.mp3.util.AccessRequest;
+import cmsc433.mp3.util.LogClock;
+import cmsc433.mp3.util.MultiAccessRequest;
+import cmsc433.mp3.util.PayloadWrite;
+import cmsc433.mp3.util.ReadValidation;
+import cmsc433.mp3.util.RequestCancellation;
 import cmsc433.mp3.util.SleepStep;
 import cmsc433.mp3.util.UserScript;
 import akka.actor.AbstractActor;
@@ -34,6 +54,10 @@ public class UserActor extends AbstractActor {
 	private UserScript script;	// Script of messages to send
 	private ActorRef localResourceManager;	// Local resource manager for user
 	private ActorRef logger;	// Actor to send logging messages to
+	private final LogClock clock = new LogClock();	// Stamps events logged
+	private HashMap<String, ActorRef> resourceOwners = new HashMap<String, ActorRef>();	// Managers that granted access, by resource
+	private HashMap<String, LinkedList<String>> poolAssignments = new HashMap<String, LinkedList<String>>();	// Instances granted for pool requests, by pattern
+	private HashMap<String, Long> readStamps = new HashMap<String, Long>();	// Stamps of optimistic reads, by resource
 	
 	/**
 	 * Props structure-generator for this class.  Assumption:  script is list of 
@@ -78,11 +102,13 @@ public class UserActor extends AbstractActor {
 	private ArrayList<Object> currentPendingRequests;	// Requests that need responses
 	
 	/**
-	 * Remove access-release requests.
+	 * Remove requests that get no response:  access releases, sleeps, payload
+	 * writes and cancellations.
 	 */
 	private void removeResponselessRequests() {
 		for (int j = currentPendingRequests.size() - 1; j >= 0; j--) {
-			if (currentPendingRequests.get(j) instanceof AccessRelease || currentPendingRequests.get(j) instanceof SleepStep) {
+			if (currentPendingRequests.get(j) instanceof AccessRelease || currentPendingRequests.get(j) instanceof SleepStep
+					|| currentPendingRequests.get(j) instanceof PayloadWrite || currentPendingRequests.get(j) instanceof RequestCancellation) {
 				currentPendingRequests.remove(j);
 			}
 		}
@@ -92,14 +118,14 @@ public class UserActor extends AbstractActor {
 	 * Method for logging start of user.
 	 */
 	private void logStart() {
-		logger.tell(LogMsg.makeUserStartLogMsg(getSelf()), getSelf());
+		logger.tell(LogMsg.makeUserStartLogMsg(getSelf()).stamped(clock.tick()), getSelf());
 	}
 	
 	/**
 	 * Method for logging termination of user.
 	 */
 	private void logTerminate() {
-		logger.tell(LogMsg.makeUserTerminateLogMsg(getSelf()), getSelf());
+		logger.tell(LogMsg.makeUserTerminateLogMsg(getSelf()).stamped(clock.tick()), getSelf());
 	}
 
 	/**
@@ -122,29 +148,95 @@ public class UserActor extends AbstractActor {
 				e.printStackTrace();
 			}
 			
-			// Send all messages corresponding to current requests.
+			// Group requests of current step by destination manager.  Requests always go via
+			// the local manager.  Releases go straight to the manager that granted access, if
+			// known, but only in a step that sends no requests:  otherwise they take the same
+			// path as the requests, so that the owner sees the step's accesses in order.  A
+			// release sent straight to its owner is in the owner's mailbox before the next
+			// step is sent, so it cannot be overtaken by later requests either.
 			long longestSleep = 0;
+			boolean requests = false;
+			ArrayList<Object> accesses = new ArrayList<Object>();
+			ArrayList<AccessRequest> cancels = new ArrayList<AccessRequest>();
 			for (Object req : currentPendingRequests) {
 				
 				if (req instanceof SleepStep) {
 					if (((SleepStep) req).getDurationMs() > longestSleep)
 						longestSleep = ((SleepStep) req).getDurationMs();
 				} 
-				else {
-					// Create request message to send
-					Object msg = null;
-					if (req instanceof AccessRequest) {
-						msg = new AccessRequestMsg ((AccessRequest)req, getSelf());
-					}
-					else if (req instanceof AccessRelease) {
-						msg = new AccessReleaseMsg ((AccessRelease) req, getSelf());
+				else if (req instanceof AccessRelease) {
+					// A pool release releases the instance assigned longest ago
+					LinkedList<String> assigned = poolAssignments.get(((AccessRelease) req).getResourceName());
+					if (assigned != null && !assigned.isEmpty()) {
+						req = new AccessRelease(assigned.poll(), ((AccessRelease) req).getType());
 					}
-					else {
-						throw new Exception ("Bad access request in sendNextMsgs()");
+					accesses.add(req);
+				}
+				else if (req instanceof AccessRequest) {
+					requests = true;
+					accesses.add(req);
+				}
+				else if (req instanceof ReadValidation) {
+					// Sent on its own, straight to manager that issued the stamp
+					String resourceName = ((ReadValidation) req).getResourceName();
+					Long stamp = readStamps.get(resourceName);
+					ActorRef owner = resourceOwners.get(resourceName);
+					(owner != null ? owner : localResourceManager).tell(
+							new ValidateReadRequestMsg((ReadValidation) req, (stamp != null) ? stamp : -1, getSelf()), getSelf());
+				}
+				else if (req instanceof PayloadWrite) {
+					// Sent on its own, ahead of any release in the same step
+					String resourceName = ((PayloadWrite) req).getResourceName();
+					ActorRef owner = resourceOwners.get(resourceName);
+					(owner != null ? owner : localResourceManager).tell(
+							new WritePayloadMsg(resourceName, ((PayloadWrite) req).getData(), getSelf()), getSelf());
+				}
+				else if (req instanceof MultiAccessRequest) {
+					// Sent on its own, to the local manager, which coordinates it
+					requests = true;
+					localResourceManager.tell(new MultiAccessRequestMsg((MultiAccessRequest) req, getSelf()).stamped(clock.tick()), getSelf());
+				}
+				else if (req instanceof RequestCancellation) {
+					// Sent after the step's sleep
+					cancels.add(((RequestCancellation) req).getRequest());
+				}
+				else {
+					throw new Exception ("Bad access request in sendNextMsgs()");
+				}
+			}
+			
+			Map<ActorRef, ArrayList<Object>> accessesByManager = new LinkedHashMap<ActorRef, ArrayList<Object>>();
+			for (Object req : accesses) {
+				ActorRef destination = localResourceManager;
+				if (!requests && req instanceof AccessRelease) {
+					ActorRef owner = resourceOwners.get(((AccessRelease) req).getResourceName());
+					if (owner != null) {
+						destination = owner;
 					}
-					// send message
-					localResourceManager.tell(msg, getSelf());
 				}
+				ArrayList<Object> managerAccesses = accessesByManager.get(destination);
+				if (managerAccesses == null) {
+					managerAccesses = new ArrayList<Object>();
+					accessesByManager.put(destination, managerAccesses);
+				}
+				managerAccesses.add(req);
+			}
+			
+			// Send one message per manager:  a batch if there are several accesses for it
+			for (Map.Entry<ActorRef, ArrayList<Object>> entry : accessesByManager.entrySet()) {
+				ArrayList<Object> managerAccesses = entry.getValue();
+				Object req = managerAccesses.get(0);
+				Timestamped msg = null;
+				if (managerAccesses.size() > 1) {
+					msg = new AccessBatchMsg (managerAccesses, getSelf());
+				}
+				else if (req instanceof AccessRequest) {
+					msg = new AccessRequestMsg ((AccessRequest)req, getSelf());
+				}
+				else {
+					msg = new AccessReleaseMsg ((AccessRelease) req, getSelf());
+				}
+				entry.getKey().tell(msg.stamped(clock.tick()), getSelf());
 			}
 			// Remove requests from current pending list that do not involve awaiting a
 			// response
@@ -153,6 +245,12 @@ public class UserActor extends AbstractActor {
 			// Sleep for the duration of the longest sleep statement in this step, if there was a sleep statement
 			if (longestSleep > 0)
 				Thread.sleep(longestSleep);
+			
+			// Withdraw requests to be cancelled, along the path the requests took, so that
+			// each cancellation reaches the manager holding its request after the request
+			for (AccessRequest request : cancels) {
+				localResourceManager.tell(new AccessCancelMsg(request, getSelf()), getSelf());
+			}
 		
 			// Send the next messages in the case that no requests warranted a response.
 			if (currentPendingRequests.isEmpty())
@@ -180,10 +278,56 @@ public class UserActor extends AbstractActor {
 	}
 	
 	
+	/**
+	 * Process grant or denial of a pending request.
+	 * 
+	 * @param msg	AccessRequestGrantedMsg, AccessRequestDeniedMsg, or their
+	 * 				multi-resource counterparts
+	 * @throws Exception
+	 */
+	private void processResponse (Object msg) throws Exception {
+		if (msg instanceof AccessRequestDeniedMsg) {
+			AccessRequestDeniedMsg aMsg = (AccessRequestDeniedMsg) msg;
+			processPendingRequest (aMsg.getRequest());
+		}
+		else if (msg instanceof AccessRequestGrantedMsg) {
+			AccessRequestGrantedMsg aMsg = (AccessRequestGrantedMsg) msg;
+			String assigned = aMsg.getAssignedResource();
+			if (aMsg.getManager() != null) {
+				resourceOwners.put(assigned, aMsg.getManager());
+			}
+			if (aMsg.getRequest().getType() == AccessRequestType.OPTIMISTIC_READ) {
+				readStamps.put(assigned, aMsg.getStamp());
+			}
+			if (!assigned.equals(aMsg.getRequest().getResourceName())) {
+				LinkedList<String> instances = poolAssignments.get(aMsg.getRequest().getResourceName());
+				if (instances == null) {
+					instances = new LinkedList<String>();
+					poolAssignments.put(aMsg.getRequest().getResourceName(), instances);
+				}
+				instances.add(assigned);
+			}
+			processPendingRequest (aMsg.getRequest());	
+		}
+		else if (msg instanceof MultiAccessGrantedMsg) {
+			MultiAccessGrantedMsg aMsg = (MultiAccessGrantedMsg) msg;
+			resourceOwners.putAll(aMsg.getOwners());
+			processPendingRequest (aMsg.getRequest());
+		}
+		else if (msg instanceof MultiAccessDeniedMsg) {
+			processPendingRequest (((MultiAccessDeniedMsg) msg).getRequest());
+		}
+	}
+	
 	@Override
 	public Receive createReceive() {
 		return receiveBuilder()
-				.match(Object.class, this::onReceive)
+				.match(Object.class, msg -> {
+					if (msg instanceof Timestamped) {
+						clock.receive(((Timestamped) msg).getTimestamp());
+					}
+					onReceive(msg);
+				})
 				.build();
 	}
 	
@@ -196,13 +340,17 @@ public class UserActor extends AbstractActor {
 		}
 		
 		// Find correspond request in pending request list and delete it.		
-		else if (msg instanceof AccessRequestDeniedMsg) {
-			AccessRequestDeniedMsg aMsg = (AccessRequestDeniedMsg) msg;
-			processPendingRequest (aMsg.getRequest());
+		else if (msg instanceof AccessRequestDeniedMsg || msg instanceof AccessRequestGrantedMsg
+				|| msg instanceof MultiAccessDeniedMsg || msg instanceof MultiAccessGrantedMsg) {
+			processResponse (msg);
 		}
-		else if (msg instanceof AccessRequestGrantedMsg) {
-			AccessRequestGrantedMsg aMsg = (AccessRequestGrantedMsg) msg;
-			processPendingRequest (aMsg.getRequest());	
+		else if (msg instanceof ValidateReadResponseMsg) {
+			processPendingRequest (((ValidateReadResponseMsg) msg).getValidation());
+		}
+		else if (msg instanceof AccessResponseBatchMsg) {
+			for (Object response : ((AccessResponseBatchMsg) msg).getResponses()) {
+				processResponse (response);
+			}
 		}
 		
 		// Check to see if pending request list is empty, and if so, move on to next step.
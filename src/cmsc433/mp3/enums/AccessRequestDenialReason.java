@@ -8,5 +8,11 @@ package cmsc433.mp3.enums;
  */
 public enum AccessRequestDenialReason {
 	RESOURCE_BUSY,		// Used for responses to non-blocking requests
-	RESOURCE_NOT_FOUND	// Used if resource is not present
+	RESOURCE_NOT_FOUND,	// Used if resource is not present
+	DEADLOCK_DETECTED,	// Used for blocking request chosen to break a deadlock
+	REQUEST_TIMED_OUT,	// Used for blocking request still waiting at its deadline
+	REQUEST_CANCELLED,	// Used for blocking request withdrawn by its user
+	UPGRADE_CONFLICT,	// Used for upgrade while another user's upgrade is pending
+	NOT_HELD,			// Used for upgrade or downgrade of access the user does not hold
+	ALREADY_QUEUED		// Used for blocking request the user already has queued
 }
@@ -11,4 +11,8 @@ public enum AccessRequestType {
 	CONCURRENT_READ_NONBLOCKING,	// Concurrent read access, nonblocking request
 	EXCLUSIVE_WRITE_BLOCKING,		// Exclusive write access, blocking request
 	EXCLUSIVE_WRITE_NONBLOCKING,	// Exclusive write access, nonblocking request
+	UPGRADE_BLOCKING,				// Held read access to exclusive write, blocking request
+	UPGRADE_NONBLOCKING,			// Held read access to exclusive write, nonblocking request
+	DOWNGRADE,						// Held exclusive write access to concurrent read (never blocks)
+	OPTIMISTIC_READ,				// Version stamp for a read taking no lock (never blocks)
 }
@@ -0,0 +1,9 @@
+package cmsc433.mp3.enums;
+
+/**
+ * What a bounded event log does with a new event when it is already full.
+ */
+public enum LogOverflowPolicy {
+	OVERWRITE_OLDEST,	// Keep the most recent events, dropping the oldest to make room
+	DROP_NEWEST			// Keep the earliest events, dropping new ones once full
+}
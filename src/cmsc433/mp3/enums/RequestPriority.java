@@ -0,0 +1,13 @@
+package cmsc433.mp3.enums;
+
+/**
+ * Priority classes of blocking access requests, highest first.  Requests of a
+ * higher class waiting for the same resource are served first; a request gains
+ * one class for every aging interval it has waited, so low-priority requests
+ * cannot starve.
+ */
+public enum RequestPriority {
+	HIGH,		// Latency-sensitive, e.g. interactive users
+	NORMAL,		// Default
+	LOW			// Bulk work, e.g. batch jobs
+}
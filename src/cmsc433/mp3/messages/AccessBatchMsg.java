@@ -0,0 +1,52 @@
+package cmsc433.mp3.messages;
+
+import java.util.ArrayList;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages carrying several access requests and releases from one user
+ * to one resource manager, typically all those in one step of the user's script
+ * that go to that manager.
+ * 
+ * Each element of the list is an AccessRequest or an AccessRelease; the manager
+ * processes them in list order, exactly as if they had been sent as separate
+ * AccessRequestMsg and AccessReleaseMsg messages.  The list should not be modified.
+ */
+public class AccessBatchMsg implements Timestamped {
+	private final ArrayList<Object> accesses;	// Requests and releases, in order
+	private final ActorRef user;				// User making requests and releases
+	private final long timestamp;				// Sender's clock time (0 if not stamped)
+
+	public AccessBatchMsg (ArrayList<Object> accesses, ActorRef user) {
+		this(accesses, user, 0);
+	}
+
+	private AccessBatchMsg (ArrayList<Object> accesses, ActorRef user, long timestamp) {
+		this.accesses = accesses;
+		this.user = user;
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public AccessBatchMsg stamped(long timestamp) {
+		return new AccessBatchMsg(accesses, user, timestamp);
+	}
+
+	public ArrayList<Object> getAccesses() {
+		return accesses;
+	}
+
+	public ActorRef getUser() {
+		return user;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString () {
+		return "Batch of " + accesses.size() + " accesses";
+	}
+}
@@ -0,0 +1,34 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.util.AccessRequest;
+
+/**
+ * Class of messages for withdrawing a blocking request that has not yet been
+ * granted.  The request is identified by the AccessRequest object sent in the
+ * original AccessRequestMsg.  If it is still waiting, it is denied with reason
+ * REQUEST_CANCELLED; if it has already been answered, the cancellation is ignored,
+ * and the user must release any access it was granted as usual.
+ */
+public class AccessCancelMsg {
+	private final AccessRequest request;
+	private final ActorRef sender;
+	
+	public AccessCancelMsg (AccessRequest request, ActorRef user) {
+		this.request = request;
+		this.sender = user;
+	}
+	
+	public AccessRequest getAccessRequest() {
+		return request;
+	}
+	
+	public ActorRef getSender() {
+		return sender;
+	}
+	
+	@Override 
+	public String toString () {
+		return "Cancel " + request.toString();
+	}
+}
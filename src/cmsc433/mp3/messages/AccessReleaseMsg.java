@@ -9,13 +9,24 @@ import cmsc433.mp3.util.AccessRelease;
  * @author Rance Cleaveland
  *
  */
-public class AccessReleaseMsg {
+public class AccessReleaseMsg implements Timestamped {
 	private final AccessRelease access_release;
 	private final ActorRef sender;
+	private final long timestamp;		// Sender's clock time (0 if not stamped)
 
 	public AccessReleaseMsg(AccessRelease access_release, ActorRef sender) {
+		this(access_release, sender, 0);
+	}
+	
+	private AccessReleaseMsg(AccessRelease access_release, ActorRef sender, long timestamp) {
 		this.access_release = access_release;
 		this.sender = sender;
+		this.timestamp = timestamp;
+	}
+	
+	@Override
+	public AccessReleaseMsg stamped(long timestamp) {
+		return new AccessReleaseMsg(access_release, sender, timestamp);
 	}
 	
 	public AccessRelease getAccessRelease() {
@@ -25,6 +36,10 @@ public class AccessReleaseMsg {
 	public ActorRef getSender() {
 		return sender;
 	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
 	
 	@Override 
 	public String toString () {
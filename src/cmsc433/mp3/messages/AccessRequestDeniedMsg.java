@@ -10,13 +10,19 @@ import cmsc433.mp3.util.AccessRequest;
  * @author Rance Cleaveland
  *
  */
-public class AccessRequestDeniedMsg {
+public class AccessRequestDeniedMsg implements Timestamped {
 	private final AccessRequest request;			// Message being replied to
 	private final AccessRequestDenialReason reason;	// Why request was denied
+	private final long timestamp;					// Sender's clock time (0 if not stamped)
 	
 	public AccessRequestDeniedMsg (AccessRequest request, AccessRequestDenialReason reason) {
+		this(request, reason, 0);
+	}
+	
+	private AccessRequestDeniedMsg (AccessRequest request, AccessRequestDenialReason reason, long timestamp) {
 		this.request = request;
 		this.reason = reason;
+		this.timestamp = timestamp;
 	}
 	
 	/**
@@ -26,8 +32,12 @@ public class AccessRequestDeniedMsg {
 	 * @param reason	Reason for denying request
 	 */
 	public AccessRequestDeniedMsg (AccessRequestMsg msg, AccessRequestDenialReason reason) {
-		this.request = msg.getAccessRequest();
-		this.reason = reason;
+		this(msg.getAccessRequest(), reason);
+	}
+	
+	@Override
+	public AccessRequestDeniedMsg stamped(long timestamp) {
+		return new AccessRequestDeniedMsg(request, reason, timestamp);
 	}
 
 	/**
@@ -43,6 +53,10 @@ public class AccessRequestDeniedMsg {
 	public AccessRequestDenialReason getReason() {
 		return reason;
 	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
 	
 	@Override 
 	public String toString() {
@@ -1,19 +1,56 @@
 package cmsc433.mp3.messages;
 
+import java.nio.ByteBuffer;
+
+import akka.actor.ActorRef;
 import cmsc433.mp3.util.AccessRequest;
 
 /**
  * Class of messages resource managers send in response to access requests that
- * can be granted.  The message includes the original request message.
+ * can be granted.  The message includes the original request message, and the
+ * manager that owns the resource (to which the release may be sent directly).
+ * For a pool request (such as Printer_*), it also names the instance assigned, and
+ * for an optimistic read it carries the stamp to validate the read against.  A
+ * grant of read or write access carries a read-only view of the resource's
+ * payload, if it has one.  The view is never changed by the manager, so the user
+ * may keep using it after releasing its access (it then shows the payload as it
+ * was when access was granted).
  * 
  * @author Rance Cleaveland
  *
  */
-public class AccessRequestGrantedMsg {
+public class AccessRequestGrantedMsg implements Timestamped {
 	private final AccessRequest request;	// Access request being replied to
+	private final ActorRef manager;			// Manager owning the resource, or null if unknown
+	private final String assignedResource;	// Resource actually granted
+	private final long stamp;				// Version stamp of optimistic read, or -1
+	private final ByteBuffer payload;		// Read-only view of payload, or null
+	private final long timestamp;			// Sender's clock time (0 if not stamped)
 	
 	public AccessRequestGrantedMsg (AccessRequest request) {
+		this(request, null, request.getResourceName(), -1, null);
+	}
+	
+	/**
+	 * @param request			Access request being granted
+	 * @param manager			Manager owning the resource, or null if unknown
+	 * @param assignedResource	Resource granted:  the instance assigned for a pool
+	 * 							request, and the requested resource otherwise
+	 * @param stamp				Version stamp of an optimistic read, or -1
+	 * @param payload			Read-only view of payload, or null
+	 */
+	public AccessRequestGrantedMsg (AccessRequest request, ActorRef manager, String assignedResource, long stamp, ByteBuffer payload) {
+		this(request, manager, assignedResource, stamp, payload, 0);
+	}
+	
+	private AccessRequestGrantedMsg (AccessRequest request, ActorRef manager, String assignedResource, long stamp, ByteBuffer payload,
+			long timestamp) {
 		this.request = request;
+		this.manager = manager;
+		this.assignedResource = assignedResource;
+		this.stamp = stamp;
+		this.payload = payload;
+		this.timestamp = timestamp;
 	}
 	
 	/**
@@ -22,13 +59,55 @@ public class AccessRequestGrantedMsg {
 	 * @param msg	Message conveying original request.
 	 */
 	public AccessRequestGrantedMsg (AccessRequestMsg msg) {
-		this.request = msg.getAccessRequest();
+		this(msg.getAccessRequest());
+	}
+	
+	@Override
+	public AccessRequestGrantedMsg stamped(long timestamp) {
+		return new AccessRequestGrantedMsg(request, manager, assignedResource, stamp, payload, timestamp);
 	}
 
 	public AccessRequest getRequest() {
 		return request;
 	}
 	
+	/**
+	 * @return Manager owning the granted resource, or null if unknown
+	 */
+	public ActorRef getManager() {
+		return manager;
+	}
+	
+	/**
+	 * @return Name of resource granted:  the instance assigned for a pool request,
+	 * 			and the requested resource otherwise
+	 */
+	public String getAssignedResource() {
+		return assignedResource;
+	}
+	
+	/**
+	 * @return Version stamp of an optimistic-read grant, or -1 for other grants
+	 */
+	public long getStamp() {
+		return stamp;
+	}
+	
+	/**
+	 * @return Read-only view of payload of resource granted, or null if it has none
+	 */
+	public ByteBuffer getPayload() {
+		return payload;
+	}
+	
+	/**
+	 * @return Sender's LogClock time (not to be confused with the version stamp of
+	 * 			an optimistic read), or 0 if not stamped
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
 	@Override 
 	public String toString () {
 		return request.getType().toString() + " for " + request.getResourceName() + " granted";
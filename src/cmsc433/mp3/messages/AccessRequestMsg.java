@@ -9,14 +9,25 @@ import cmsc433.mp3.util.AccessRequest;
  * @author Rance Cleaveland
  *
  */
-public class AccessRequestMsg {
+public class AccessRequestMsg implements Timestamped {
 	
 	private final AccessRequest request;
 	private final ActorRef replyTo;
+	private final long timestamp;		// Sender's clock time (0 if not stamped)
 	
 	public AccessRequestMsg (AccessRequest request, ActorRef user) {
+		this(request, user, 0);
+	}
+	
+	private AccessRequestMsg (AccessRequest request, ActorRef user, long timestamp) {
 		this.request = request;
 		this.replyTo = user;
+		this.timestamp = timestamp;
+	}
+	
+	@Override
+	public AccessRequestMsg stamped(long timestamp) {
+		return new AccessRequestMsg(request, replyTo, timestamp);
 	}
 	
 	public AccessRequest getAccessRequest() {
@@ -26,6 +37,10 @@ public class AccessRequestMsg {
 	public ActorRef getReplyTo() {
 		return replyTo;
 	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
 	
 	@Override 
 	public String toString () {
@@ -0,0 +1,43 @@
+package cmsc433.mp3.messages;
+
+import java.util.ArrayList;
+
+/**
+ * Class of messages resource managers send to reply to several access requests
+ * from the same user at once.
+ * 
+ * Each element of the list is an AccessRequestGrantedMsg or an AccessRequestDeniedMsg,
+ * and is to be treated exactly as if it had been sent on its own.  The list should
+ * not be modified.
+ */
+public class AccessResponseBatchMsg implements Timestamped {
+	private final ArrayList<Object> responses;	// Grants and denials
+	private final long timestamp;				// Sender's clock time (0 if not stamped)
+
+	public AccessResponseBatchMsg (ArrayList<Object> responses) {
+		this(responses, 0);
+	}
+
+	private AccessResponseBatchMsg (ArrayList<Object> responses, long timestamp) {
+		this.responses = responses;
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public AccessResponseBatchMsg stamped(long timestamp) {
+		return new AccessResponseBatchMsg(responses, timestamp);
+	}
+
+	public ArrayList<Object> getResponses() {
+		return responses;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString () {
+		return "Batch of " + responses.size() + " responses";
+	}
+}
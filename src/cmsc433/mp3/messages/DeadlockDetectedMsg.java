@@ -0,0 +1,25 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.WaitForEdge;
+
+/**
+ * Class of messages telling a resource manager that a queued request is part of a
+ * wait-for cycle and has been chosen as the victim to break it.  The manager denies
+ * the request if it is still queued.
+ */
+public class DeadlockDetectedMsg {
+	private final WaitForEdge victim;	// Queued request to deny
+	
+	public DeadlockDetectedMsg (WaitForEdge victim) {
+		this.victim = victim;
+	}
+	
+	public WaitForEdge getVictim() {
+		return victim;
+	}
+	
+	@Override
+	public String toString () {
+		return "Deadlock detected, victim: " + victim;
+	}
+}
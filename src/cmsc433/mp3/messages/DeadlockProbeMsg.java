@@ -0,0 +1,63 @@
+package cmsc433.mp3.messages;
+
+import java.util.ArrayList;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.util.WaitForEdge;
+
+/**
+ * Class of messages resource managers send each other to search the wait-for graph
+ * for a cycle.
+ * 
+ * The path lists the wait-for edges followed so far, starting with the edge of the
+ * request that started the search.  Each user on the path is blocked by the user
+ * waiting on the next edge, and the last one is blocked by the target.
+ * 
+ * A probe without an edge goes to the target's directory manager, which passes it
+ * on, with the edge filled in, to the manager of each request the target has
+ * queued.  That manager extends the path with the edge; if the target is in turn
+ * blocked by the first user on the path, the path is a cycle.
+ */
+public class DeadlockProbeMsg {
+	private final ArrayList<WaitForEdge> path;	// Edges followed so far
+	private final ActorRef target;				// User blocking last waiter on path
+	private final WaitForEdge edge;				// Queued request of target to follow, or null
+	
+	public DeadlockProbeMsg (ArrayList<WaitForEdge> path, ActorRef target) {
+		this(path, target, null);
+	}
+	
+	public DeadlockProbeMsg (ArrayList<WaitForEdge> path, ActorRef target, WaitForEdge edge) {
+		this.path = path;
+		this.target = target;
+		this.edge = edge;
+	}
+	
+	public ArrayList<WaitForEdge> getPath() {
+		return path;
+	}
+	
+	public ActorRef getTarget() {
+		return target;
+	}
+	
+	/**
+	 * @return	Queued request of target the probe is to follow, or null if the
+	 * 			probe is still looking for the target's requests
+	 */
+	public WaitForEdge getEdge() {
+		return edge;
+	}
+	
+	/**
+	 * @return	User whose blocked request started the search
+	 */
+	public ActorRef getInitiator() {
+		return path.get(0).getWaiter();
+	}
+	
+	@Override
+	public String toString () {
+		return "Deadlock probe " + path + " blocked by " + target;
+	}
+}
@@ -0,0 +1,26 @@
+package cmsc433.mp3.messages;
+
+import java.util.ArrayList;
+
+/**
+ * Class of messages carrying several events to the logger at once, in the order
+ * they were logged.  The logger handles them as if each had been sent on its own.
+ *
+ * The list is never modified once the message has been sent.
+ */
+public class LogBatchMsg {
+	private final ArrayList<LogMsg> events;
+
+	public LogBatchMsg (ArrayList<LogMsg> events) {
+		this.events = events;
+	}
+
+	public ArrayList<LogMsg> getEvents() {
+		return events;
+	}
+
+	@Override
+	public String toString () {
+		return "Batch of " + events.size() + " log events";
+	}
+}
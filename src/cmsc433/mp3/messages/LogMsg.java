@@ -197,6 +197,7 @@ public class LogMsg {
 	private final AccessRequestDenialReason access_request_denial_reason;
 	private final AccessRelease access_release;
 	private final ResourceStatus new_resource_status;
+	private final long timestamp;						// Logical time of event (0 if not stamped)
 	
 	
 	
@@ -204,6 +205,14 @@ public class LogMsg {
 			ActorRef remote_resource_manager, String resource_name, AccessRequest access_request,
 			AccessRequestDenialReason access_request_denial_reason, AccessRelease access_release,
 			ResourceStatus new_resource_status) {
+		this(type, user, local_resource_manager, remote_resource_manager, resource_name, access_request,
+				access_request_denial_reason, access_release, new_resource_status, 0);
+	}
+	
+	private LogMsg(EventType type, ActorRef user, ActorRef local_resource_manager, 
+			ActorRef remote_resource_manager, String resource_name, AccessRequest access_request,
+			AccessRequestDenialReason access_request_denial_reason, AccessRelease access_release,
+			ResourceStatus new_resource_status, long timestamp) {
 		this.type = type;
 		this.user = user;
 		this.local_resource_manager = local_resource_manager;
@@ -213,6 +222,16 @@ public class LogMsg {
 		this.access_request_denial_reason = access_request_denial_reason;
 		this.access_release = access_release;
 		this.new_resource_status = new_resource_status;
+		this.timestamp = timestamp;
+	}
+	
+	/**
+	 * @param timestamp	Logical time of event, from the LogClock of the actor logging it
+	 * @return			Copy of this event stamped with the given time
+	 */
+	public LogMsg stamped (long timestamp) {
+		return new LogMsg(type, user, local_resource_manager, remote_resource_manager, resource_name,
+				access_request, access_request_denial_reason, access_release, new_resource_status, timestamp);
 	}
 	
 	public EventType getType() {
@@ -251,32 +270,59 @@ public class LogMsg {
 		return new_resource_status;
 	}
 	
+	public long getTimestamp () {
+		return timestamp;
+	}
+	
 	
 	@Override public String toString() {
+		return describe(type, actorRefToString(user), actorRefToString(local_resource_manager),
+				actorRefToString(remote_resource_manager), resource_name, access_request,
+				access_request_denial_reason, access_release);
+	}
+
+	/**
+	 * Text of an event, given the names of the actors involved rather than the actors
+	 * themselves, so that events read back from a log file can be printed just as
+	 * they were logged.
+	 * 
+	 * @param type							Type of event
+	 * @param user							Name of user involved, or null
+	 * @param local_resource_manager		Name of manager generating event, or null
+	 * @param remote_resource_manager		Name of remote manager involved, or null
+	 * @param resource_name					Name of resource involved, or null
+	 * @param access_request				Request involved, or null
+	 * @param access_request_denial_reason	Reason request was denied, or null
+	 * @param access_release				Release involved, or null
+	 * @return								Text of event
+	 */
+	public static String describe(EventType type, String user, String local_resource_manager,
+			String remote_resource_manager, String resource_name, AccessRequest access_request,
+			AccessRequestDenialReason access_request_denial_reason, AccessRelease access_release) {
 		if (type == EventType.USER_START) {
-			return "User Starting: " + actorRefToString(user);
+			return "User Starting: " + user;
 		} else if (type == EventType.USER_TERMINATE) {
-			return "User Terminating: " + actorRefToString(user);
+			return "User Terminating: " + user;
 		} else if (type == EventType.LOCAL_RESOURCE_CREATED) {
-			return resource_name + " was added to " + actorRefToString(local_resource_manager);
+			return resource_name + " was added to " + local_resource_manager;
 		} else if (type == EventType.REMOTE_RESOURCE_DISCOVERED) {
-			return actorRefToString(local_resource_manager) + " discovered that " + resource_name + " is managed by " + actorRefToString(remote_resource_manager);
+			return local_resource_manager + " discovered that " + resource_name + " is managed by " + remote_resource_manager;
 		} else if (type == EventType.ACCESS_REQUEST_RECEIVED) {
-			return actorRefToString(local_resource_manager) + " received " + access_request.toString() + " from " + actorRefToString(user);
+			return local_resource_manager + " received " + access_request.toString() + " from " + user;
 		} else if (type == EventType.ACCESS_REQUEST_FORWARDED) {
-			return actorRefToString(local_resource_manager) + " forwarded " + access_request.toString() + " to " + actorRefToString(remote_resource_manager);
+			return local_resource_manager + " forwarded " + access_request.toString() + " to " + remote_resource_manager;
 		} else if (type == EventType.ACCESS_REQUEST_GRANTED) {
-			return actorRefToString(local_resource_manager) + " granted " + access_request.toString() + " to " + actorRefToString(user);
+			return local_resource_manager + " granted " + access_request.toString() + " to " + user;
 		} else if (type == EventType.ACCESS_REQUEST_DENIED) {
-			return actorRefToString(local_resource_manager) + " denied " + access_request.toString() + " to " + actorRefToString(user) + " because " + access_request_denial_reason.toString();
+			return local_resource_manager + " denied " + access_request.toString() + " to " + user + " because " + access_request_denial_reason.toString();
 		} else if (type == EventType.ACCESS_RELEASE_RECEIVED) {
-			return actorRefToString(local_resource_manager) + " received " + access_release.toString()  + " from " + actorRefToString(user);
+			return local_resource_manager + " received " + access_release.toString()  + " from " + user;
 		} else if (type == EventType.ACCESS_RELEASE_FORWARDED) {
-			return actorRefToString(local_resource_manager) + " forwarded " + access_release.toString() + " to " + actorRefToString(remote_resource_manager);
+			return local_resource_manager + " forwarded " + access_release.toString() + " to " + remote_resource_manager;
 		} else if (type == EventType.ACCESS_RELEASED) {
-			return actorRefToString(user) + " released " + access_release.getType().toString() + " access to " + resource_name + " (managed by " + actorRefToString(local_resource_manager) + ")"; 
+			return user + " released " + access_release.getType().toString() + " access to " + resource_name + " (managed by " + local_resource_manager + ")"; 
 		} else if (type == EventType.ACCESS_RELEASE_IGNORED) {
-			return actorRefToString(user) + "'s release of " + access_release.getType().toString() + " access to" + resource_name + " (managed by " + actorRefToString(local_resource_manager) + ") was ignored";
+			return user + "'s release of " + access_release.getType().toString() + " access to" + resource_name + " (managed by " + local_resource_manager + ") was ignored";
 		} else {
 			throw new AssertionError ("Unrecognized Event Type: " + type);
 		}
@@ -284,6 +330,6 @@ public class LogMsg {
 	}
 	
 	private static String actorRefToString (ActorRef actorRef) {
-		return actorRef.path().name();
+		return (actorRef != null) ? actorRef.path().name() : null;
 	}
 }
@@ -0,0 +1,9 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Class of messages asking the logger for the events it holds, once the resource
+ * managers have finished logging.  The logger replies with a LogResultMsg.
+ */
+public class LogSnapshotRequestMsg {
+
+}
@@ -0,0 +1,31 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages asking the manager of a resource to move it to another
+ * manager.  The message may be sent to any manager, which forwards it to the
+ * manager of the resource if it knows it.
+ */
+public class MigrateResourceMsg {
+	private final String resourceName;
+	private final ActorRef target;		// Manager to move resource to
+	
+	public MigrateResourceMsg (String resourceName, ActorRef target) {
+		this.resourceName = resourceName;
+		this.target = target;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	public ActorRef getTarget() {
+		return target;
+	}
+	
+	@Override
+	public String toString () {
+		return "Migrate " + resourceName + " to " + target.path().name();
+	}
+}
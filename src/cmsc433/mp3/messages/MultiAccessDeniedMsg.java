@@ -0,0 +1,46 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.enums.AccessRequestDenialReason;
+import cmsc433.mp3.util.MultiAccessRequest;
+
+/**
+ * Class of messages managers send to deny a multi-resource request.  The user
+ * holds none of the resources requested.
+ */
+public class MultiAccessDeniedMsg implements Timestamped {
+	private final MultiAccessRequest request;			// Request being denied
+	private final AccessRequestDenialReason reason;		// Why request was denied
+	private final long timestamp;						// Sender's clock time (0 if not stamped)
+	
+	public MultiAccessDeniedMsg (MultiAccessRequest request, AccessRequestDenialReason reason) {
+		this(request, reason, 0);
+	}
+	
+	private MultiAccessDeniedMsg (MultiAccessRequest request, AccessRequestDenialReason reason, long timestamp) {
+		this.request = request;
+		this.reason = reason;
+		this.timestamp = timestamp;
+	}
+	
+	@Override
+	public MultiAccessDeniedMsg stamped(long timestamp) {
+		return new MultiAccessDeniedMsg(request, reason, timestamp);
+	}
+	
+	public MultiAccessRequest getRequest() {
+		return request;
+	}
+	
+	public AccessRequestDenialReason getReason() {
+		return reason;
+	}
+	
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	@Override
+	public String toString () {
+		return request.toString() + " denied because " + reason.toString();
+	}
+}
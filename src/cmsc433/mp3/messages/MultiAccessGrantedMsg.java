@@ -0,0 +1,51 @@
+package cmsc433.mp3.messages;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.util.MultiAccessRequest;
+
+/**
+ * Class of messages managers send to grant a multi-resource request.  The
+ * message names the manager holding each resource, so that the user can send its
+ * releases there directly.
+ */
+public class MultiAccessGrantedMsg implements Timestamped {
+	private final MultiAccessRequest request;	// Request being granted
+	private final Map<String, ActorRef> owners;	// Manager of each resource
+	private final long timestamp;				// Sender's clock time (0 if not stamped)
+	
+	public MultiAccessGrantedMsg (MultiAccessRequest request, Map<String, ActorRef> owners) {
+		this(request, owners, 0);
+	}
+	
+	private MultiAccessGrantedMsg (MultiAccessRequest request, Map<String, ActorRef> owners, long timestamp) {
+		this.request = request;
+		this.owners = Collections.unmodifiableMap(new LinkedHashMap<String, ActorRef>(owners));
+		this.timestamp = timestamp;
+	}
+	
+	@Override
+	public MultiAccessGrantedMsg stamped(long timestamp) {
+		return new MultiAccessGrantedMsg(request, owners, timestamp);
+	}
+	
+	public MultiAccessRequest getRequest() {
+		return request;
+	}
+	
+	public Map<String, ActorRef> getOwners() {
+		return owners;
+	}
+	
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	@Override
+	public String toString () {
+		return request.toString() + " granted";
+	}
+}
@@ -0,0 +1,48 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.util.MultiAccessRequest;
+
+/**
+ * Class of messages users send to their local manager to request access to
+ * several resources at once.  The manager coordinates the request with the
+ * managers of the resources, and answers with a MultiAccessGrantedMsg once the
+ * user holds all of them, or a MultiAccessDeniedMsg if the user holds none.
+ */
+public class MultiAccessRequestMsg implements Timestamped {
+	private final MultiAccessRequest request;
+	private final ActorRef user;
+	private final long timestamp;		// Sender's clock time (0 if not stamped)
+	
+	public MultiAccessRequestMsg (MultiAccessRequest request, ActorRef user) {
+		this(request, user, 0);
+	}
+	
+	private MultiAccessRequestMsg (MultiAccessRequest request, ActorRef user, long timestamp) {
+		this.request = request;
+		this.user = user;
+		this.timestamp = timestamp;
+	}
+	
+	@Override
+	public MultiAccessRequestMsg stamped(long timestamp) {
+		return new MultiAccessRequestMsg(request, user, timestamp);
+	}
+	
+	public MultiAccessRequest getRequest() {
+		return request;
+	}
+	
+	public ActorRef getUser() {
+		return user;
+	}
+	
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	@Override
+	public String toString () {
+		return request.toString();
+	}
+}
@@ -0,0 +1,56 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a shard of a ShardedResourceManagerActor sends to its sibling
+ * shards (through the front) when its part of a pool changes:  when it gains its
+ * first member or loses its last one, and when requests start or stop waiting in
+ * its queue for the pool.  A shard with an idle member offers to take a request
+ * from a shard with requests waiting.
+ * 
+ * When the last member of the pool in the whole node has moved to another manager,
+ * the message names that manager, so that the pool's requests can be sent there.
+ */
+public class PoolStatusMsg {
+	private final String pattern;		// Pool, e.g. Printer_*
+	private final int shard;			// Index of shard sending message
+	private final boolean hasMembers;	// True if shard holds members of pool
+	private final boolean waiting;		// True if shard has requests for pool waiting
+	private final ActorRef movedTo;		// Manager pool's last member moved to, or null
+	
+	public PoolStatusMsg (String pattern, int shard, boolean hasMembers, boolean waiting, ActorRef movedTo) {
+		this.pattern = pattern;
+		this.shard = shard;
+		this.hasMembers = hasMembers;
+		this.waiting = waiting;
+		this.movedTo = movedTo;
+	}
+	
+	public String getPattern() {
+		return pattern;
+	}
+	
+	public int getShard() {
+		return shard;
+	}
+	
+	public boolean hasMembers() {
+		return hasMembers;
+	}
+	
+	public boolean isWaiting() {
+		return waiting;
+	}
+	
+	public ActorRef getMovedTo() {
+		return movedTo;
+	}
+	
+	@Override
+	public String toString () {
+		return "Shard " + shard + " status for " + pattern + ": "
+				+ (hasMembers ? "members" : "no members") + ", " + (waiting ? "requests waiting" : "no requests waiting")
+				+ ((movedTo == null) ? "" : ", moved to " + movedTo);
+	}
+}
@@ -0,0 +1,38 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.ResourceHandoff;
+
+/**
+ * Class of messages handing a waiting pool request from one shard of a
+ * ShardedResourceManagerActor to a sibling shard (through the front) that has
+ * offered an idle member.  The request keeps what is left of its deadline, and the
+ * time it was first queued, so that its wait is measured from then.
+ */
+public class PoolTransferMsg {
+	private final ResourceHandoff.QueuedRequest request;	// Pool request and remaining deadline
+	private final long enqueuedNanos;						// When request was first queued (System.nanoTime)
+	private final int toShard;								// Shard taking request
+	
+	public PoolTransferMsg (ResourceHandoff.QueuedRequest request, long enqueuedNanos, int toShard) {
+		this.request = request;
+		this.enqueuedNanos = enqueuedNanos;
+		this.toShard = toShard;
+	}
+	
+	public ResourceHandoff.QueuedRequest getRequest() {
+		return request;
+	}
+	
+	public long getEnqueuedNanos() {
+		return enqueuedNanos;
+	}
+	
+	public int getToShard() {
+		return toShard;
+	}
+	
+	@Override
+	public String toString () {
+		return "Transfer of " + request.getMessage() + " to shard " + toShard;
+	}
+}
@@ -0,0 +1,35 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Class of messages a shard with an idle member of a pool sends to a sibling shard
+ * (through the front) that has requests for the pool waiting, asking it to hand
+ * over the request at the head of its queue.
+ */
+public class PoolWaiterRequestMsg {
+	private final String pattern;	// Pool, e.g. Printer_*
+	private final int fromShard;	// Shard with idle member
+	private final int toShard;		// Shard with waiting requests
+	
+	public PoolWaiterRequestMsg (String pattern, int fromShard, int toShard) {
+		this.pattern = pattern;
+		this.fromShard = fromShard;
+		this.toShard = toShard;
+	}
+	
+	public String getPattern() {
+		return pattern;
+	}
+	
+	public int getFromShard() {
+		return fromShard;
+	}
+	
+	public int getToShard() {
+		return toShard;
+	}
+	
+	@Override
+	public String toString () {
+		return "Shard " + fromShard + " asks shard " + toShard + " for a request waiting for " + pattern;
+	}
+}
@@ -0,0 +1,41 @@
+package cmsc433.mp3.messages;
+
+import java.nio.ByteBuffer;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a resource manager sends to grant another manager a read
+ * delegation for one of its resources:  until the delegation is recalled, the
+ * other manager may grant read access to the resource to its own users.  The
+ * message carries a read-only view of the resource's payload, which cannot change
+ * while the delegation is held.
+ */
+public class ReadDelegationGrantMsg {
+	private final String resourceName;
+	private final ActorRef owner;		// Manager of resource
+	private final ByteBuffer payload;	// Read-only view of payload, or null
+	
+	public ReadDelegationGrantMsg (String resourceName, ActorRef owner, ByteBuffer payload) {
+		this.resourceName = resourceName;
+		this.owner = owner;
+		this.payload = payload;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	public ActorRef getOwner() {
+		return owner;
+	}
+	
+	public ByteBuffer getPayload() {
+		return payload;
+	}
+	
+	@Override
+	public String toString () {
+		return "Read delegation for " + resourceName;
+	}
+}
@@ -0,0 +1,23 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Class of messages a resource manager sends to recall a read delegation, because
+ * some user wants to write the resource.  The delegate stops granting reads of the
+ * resource and answers with a ReadDelegationReturnMsg.
+ */
+public class ReadDelegationRecallMsg {
+	private final String resourceName;
+	
+	public ReadDelegationRecallMsg (String resourceName) {
+		this.resourceName = resourceName;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	@Override
+	public String toString () {
+		return "Recall read delegation for " + resourceName;
+	}
+}
@@ -0,0 +1,41 @@
+package cmsc433.mp3.messages;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a manager sends to give a recalled read delegation back.  The
+ * message lists the read holds the delegate granted that have not been released
+ * yet; the resource's manager takes them over, and the users release them there.
+ */
+public class ReadDelegationReturnMsg {
+	private final String resourceName;
+	private final ActorRef delegate;					// Manager returning delegation
+	private final Map<ActorRef, Integer> readHolds;		// Outstanding read holds per user
+	
+	public ReadDelegationReturnMsg (String resourceName, ActorRef delegate, Map<ActorRef, Integer> readHolds) {
+		this.resourceName = resourceName;
+		this.delegate = delegate;
+		this.readHolds = Collections.unmodifiableMap(new HashMap<ActorRef, Integer>(readHolds));
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	public ActorRef getDelegate() {
+		return delegate;
+	}
+	
+	public Map<ActorRef, Integer> getReadHolds() {
+		return readHolds;
+	}
+	
+	@Override
+	public String toString () {
+		return "Return of read delegation for " + resourceName;
+	}
+}
@@ -0,0 +1,25 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.Reservation;
+
+/**
+ * Class of messages a coordinating manager sends to the manager holding a
+ * reservation to give it up, when another resource of the request cannot be
+ * reserved or the request has timed out.
+ */
+public class ReservationAbortMsg {
+	private final Reservation reservation;
+	
+	public ReservationAbortMsg (Reservation reservation) {
+		this.reservation = reservation;
+	}
+	
+	public Reservation getReservation() {
+		return reservation;
+	}
+	
+	@Override
+	public String toString () {
+		return "Abort of " + reservation;
+	}
+}
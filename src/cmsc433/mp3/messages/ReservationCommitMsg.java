@@ -0,0 +1,26 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.Reservation;
+
+/**
+ * Class of messages a coordinating manager sends to the manager holding a
+ * reservation, once every resource of the request is reserved, to turn the
+ * reservation into a grant.  A commit cannot fail; it is acknowledged with a
+ * ReservationCommittedMsg.
+ */
+public class ReservationCommitMsg {
+	private final Reservation reservation;
+	
+	public ReservationCommitMsg (Reservation reservation) {
+		this.reservation = reservation;
+	}
+	
+	public Reservation getReservation() {
+		return reservation;
+	}
+	
+	@Override
+	public String toString () {
+		return "Commit of " + reservation;
+	}
+}
@@ -0,0 +1,47 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.util.Reservation;
+
+/**
+ * Class of messages a resource's manager sends to the coordinator of a
+ * reservation once it has turned the reservation into a grant.  The grant has
+ * been logged by then, so the message is stamped like a grant.
+ */
+public class ReservationCommittedMsg implements Timestamped {
+	private final Reservation reservation;
+	private final ActorRef owner;		// Manager that granted resource
+	private final long timestamp;		// Sender's clock time (0 if not stamped)
+	
+	public ReservationCommittedMsg (Reservation reservation, ActorRef owner) {
+		this(reservation, owner, 0);
+	}
+	
+	private ReservationCommittedMsg (Reservation reservation, ActorRef owner, long timestamp) {
+		this.reservation = reservation;
+		this.owner = owner;
+		this.timestamp = timestamp;
+	}
+	
+	@Override
+	public ReservationCommittedMsg stamped(long timestamp) {
+		return new ReservationCommittedMsg(reservation, owner, timestamp);
+	}
+	
+	public Reservation getReservation() {
+		return reservation;
+	}
+	
+	public ActorRef getOwner() {
+		return owner;
+	}
+	
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	@Override
+	public String toString () {
+		return "Committed " + reservation;
+	}
+}
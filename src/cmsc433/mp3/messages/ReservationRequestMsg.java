@@ -0,0 +1,26 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.Reservation;
+
+/**
+ * Class of messages a manager coordinating a multi-resource request sends to
+ * reserve one of the resources.  The message goes to the resource's manager like
+ * an access request:  it is forwarded, or the manager is looked up, as needed.  The
+ * resource's manager answers the coordinator with a ReservationResponseMsg.
+ */
+public class ReservationRequestMsg {
+	private final Reservation reservation;
+	
+	public ReservationRequestMsg (Reservation reservation) {
+		this.reservation = reservation;
+	}
+	
+	public Reservation getReservation() {
+		return reservation;
+	}
+	
+	@Override
+	public String toString () {
+		return "Request for " + reservation;
+	}
+}
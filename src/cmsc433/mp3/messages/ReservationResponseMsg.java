@@ -0,0 +1,51 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessRequestDenialReason;
+import cmsc433.mp3.util.Reservation;
+
+/**
+ * Class of messages a resource's manager sends to the coordinator of a
+ * reservation, saying whether the resource has been reserved.  A busy resource is
+ * refused with RESOURCE_BUSY, and the coordinator is sent a ReservationRetryMsg
+ * once the resource changes; a resource that exists nowhere is refused with
+ * RESOURCE_NOT_FOUND.
+ */
+public class ReservationResponseMsg {
+	private final Reservation reservation;
+	private final ActorRef owner;						// Manager of resource
+	private final AccessRequestDenialReason refusal;	// Why resource was not reserved, or null if it was
+	
+	public ReservationResponseMsg (Reservation reservation, ActorRef owner, AccessRequestDenialReason refusal) {
+		this.reservation = reservation;
+		this.owner = owner;
+		this.refusal = refusal;
+	}
+	
+	public Reservation getReservation() {
+		return reservation;
+	}
+	
+	public ActorRef getOwner() {
+		return owner;
+	}
+	
+	/**
+	 * @return	True if the resource has been reserved
+	 */
+	public boolean isReserved() {
+		return refusal == null;
+	}
+	
+	/**
+	 * @return	Why resource was not reserved, or null if it was
+	 */
+	public AccessRequestDenialReason getRefusal() {
+		return refusal;
+	}
+	
+	@Override
+	public String toString () {
+		return (isReserved() ? "Made " : "Refused (" + refusal + ") ") + reservation;
+	}
+}
@@ -0,0 +1,25 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.Reservation;
+
+/**
+ * Class of messages a manager sends to the coordinator of a reservation it has
+ * refused because the resource was busy, once the state of the resource has
+ * changed, so that the coordinator can try to reserve the resources again.
+ */
+public class ReservationRetryMsg {
+	private final Reservation reservation;
+	
+	public ReservationRetryMsg (Reservation reservation) {
+		this.reservation = reservation;
+	}
+	
+	public Reservation getReservation() {
+		return reservation;
+	}
+	
+	@Override
+	public String toString () {
+		return "Retry of " + reservation;
+	}
+}
@@ -0,0 +1,40 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.ResourceHandoff;
+
+/**
+ * Class of messages a manager sends to hand one of its resources, with its
+ * holders, waiting requests and payload, over to another manager.  From then on
+ * the sender forwards everything concerning the resource to the new manager.
+ */
+public class ResourceHandoffMsg implements Timestamped {
+	private final ResourceHandoff handoff;
+	private final long timestamp;		// Sender's clock time (0 if not stamped)
+	
+	public ResourceHandoffMsg (ResourceHandoff handoff) {
+		this(handoff, 0);
+	}
+	
+	private ResourceHandoffMsg (ResourceHandoff handoff, long timestamp) {
+		this.handoff = handoff;
+		this.timestamp = timestamp;
+	}
+	
+	@Override
+	public ResourceHandoffMsg stamped(long timestamp) {
+		return new ResourceHandoffMsg(handoff, timestamp);
+	}
+	
+	public ResourceHandoff getHandoff() {
+		return handoff;
+	}
+	
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	@Override
+	public String toString () {
+		return "Handoff of " + handoff.getResourceName();
+	}
+}
@@ -0,0 +1,30 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a manager broadcasts to the other managers after handing one
+ * of its resources over, so that they send requests for it to its new manager.
+ */
+public class ResourceMovedMsg {
+	private final String resourceName;
+	private final ActorRef newManager;
+	
+	public ResourceMovedMsg (String resourceName, ActorRef newManager) {
+		this.resourceName = resourceName;
+		this.newManager = newManager;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	public ActorRef getNewManager() {
+		return newManager;
+	}
+	
+	@Override
+	public String toString () {
+		return resourceName + " moved to " + newManager.path().name();
+	}
+}
@@ -0,0 +1,48 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.util.ResourceBloomFilter;
+
+/**
+ * Class of messages resource managers send to each other to publish a summary of
+ * the resources they manage.
+ *
+ * A manager split into shards publishes one summary per shard; the part number
+ * identifies the shard, and the part count says how many parts make up the whole
+ * summary.  A manager that is not sharded publishes a single part.  A newer
+ * summary for the same part replaces the older one.
+ */
+public class ResourceSummaryMsg {
+	private final ActorRef manager;				// Manager whose resources are summarized
+	private final int part;						// Which part of the summary this is
+	private final int partCount;				// Number of parts in the whole summary
+	private final ResourceBloomFilter filter;	// Summary of resource names in this part
+
+	public ResourceSummaryMsg (ActorRef manager, int part, int partCount, ResourceBloomFilter filter) {
+		this.manager = manager;
+		this.part = part;
+		this.partCount = partCount;
+		this.filter = filter;
+	}
+
+	public ActorRef getManager() {
+		return manager;
+	}
+
+	public int getPart() {
+		return part;
+	}
+
+	public int getPartCount() {
+		return partCount;
+	}
+
+	public ResourceBloomFilter getFilter() {
+		return filter;
+	}
+
+	@Override
+	public String toString () {
+		return "Resource summary part " + part + " of " + partCount;
+	}
+}
@@ -0,0 +1,23 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.LogFilter;
+
+/**
+ * Class of messages for changing which events a manager logs at run time.
+ */
+public class SetLogFilterMsg {
+	private final LogFilter filter;
+	
+	public SetLogFilterMsg (LogFilter filter) {
+		this.filter = filter;
+	}
+	
+	public LogFilter getFilter() {
+		return filter;
+	}
+	
+	@Override
+	public String toString () {
+		return "Set log filter to " + filter;
+	}
+}
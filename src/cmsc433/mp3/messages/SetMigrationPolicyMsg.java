@@ -0,0 +1,23 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.MigrationPolicy;
+
+/**
+ * Class of messages for switching the migration policy of a manager at run time.
+ */
+public class SetMigrationPolicyMsg {
+	private final MigrationPolicy policy;
+	
+	public SetMigrationPolicyMsg (MigrationPolicy policy) {
+		this.policy = policy;
+	}
+	
+	public MigrationPolicy getPolicy() {
+		return policy;
+	}
+	
+	@Override
+	public String toString () {
+		return "Set migration policy to " + policy;
+	}
+}
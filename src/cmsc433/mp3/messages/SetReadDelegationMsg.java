@@ -0,0 +1,31 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Class of messages for letting the manager of a resource delegate reads of it to
+ * the managers forwarding read requests for it, or stopping it from doing so (and
+ * recalling delegations already granted).  The message may be sent to any
+ * manager, which forwards it to the manager of the resource if it knows it.
+ * Delegation is off by default.
+ */
+public class SetReadDelegationMsg {
+	private final String resourceName;
+	private final boolean enabled;
+	
+	public SetReadDelegationMsg (String resourceName, boolean enabled) {
+		this.resourceName = resourceName;
+		this.enabled = enabled;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	@Override
+	public String toString () {
+		return (enabled ? "Enable" : "Disable") + " read delegation for " + resourceName;
+	}
+}
@@ -0,0 +1,32 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.SchedulingPolicy;
+
+/**
+ * Class of messages for switching the scheduling policy of a resource at run time.
+ * The message may be sent to any manager, which forwards it to the manager of the
+ * resource if it knows it; requests already waiting are granted according to the
+ * new policy from then on.
+ */
+public class SetSchedulingPolicyMsg {
+	private final String resourceName;
+	private final SchedulingPolicy policy;
+	
+	public SetSchedulingPolicyMsg (String resourceName, SchedulingPolicy policy) {
+		this.resourceName = resourceName;
+		this.policy = policy;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	public SchedulingPolicy getPolicy() {
+		return policy;
+	}
+	
+	@Override
+	public String toString () {
+		return "Set scheduling policy of " + resourceName + " to " + policy;
+	}
+}
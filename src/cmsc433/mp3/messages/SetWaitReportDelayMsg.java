@@ -0,0 +1,23 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Class of messages for delaying a manager's reports of waits to directory
+ * managers, so that deadlock probes overtake them.  For testing deadlock
+ * detection only.
+ */
+public class SetWaitReportDelayMsg {
+	private final long delayMs;		// Delay in milliseconds, or 0 for none
+	
+	public SetWaitReportDelayMsg (long delayMs) {
+		this.delayMs = delayMs;
+	}
+	
+	public long getDelayMs() {
+		return delayMs;
+	}
+	
+	@Override
+	public String toString () {
+		return "Set wait report delay to " + delayMs + "ms";
+	}
+}
@@ -2,6 +2,8 @@ package cmsc433.mp3.messages;
 
 import java.util.ArrayList;
 
+import cmsc433.mp3.util.WaitTimeStats;
+
 /**
  * Message class used by simulation managers to return result of simulation (i.e. log).
  * 
@@ -11,12 +13,25 @@ import java.util.ArrayList;
 public class SimulationFinishMsg {
 	
 	private final ArrayList<Object> log;
+	private final WaitTimeStats waitTimeStats;	// Combined over all managers
 
 	public SimulationFinishMsg(ArrayList<Object> log) {
+		this(log, new WaitTimeStats());
+	}
+
+	public SimulationFinishMsg(ArrayList<Object> log, WaitTimeStats waitTimeStats) {
 		this.log = log;
+		this.waitTimeStats = waitTimeStats;
 	}
 
 	public ArrayList<Object> getLog() {
 		return log;
 	}
+
+	/**
+	 * @return	Wait times of granted blocking requests, by priority class
+	 */
+	public WaitTimeStats getWaitTimeStats() {
+		return waitTimeStats;
+	}
 }
@@ -0,0 +1,9 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Class of messages a resource manager schedules to itself to advance its timer
+ * wheel while timeouts are pending.
+ */
+public class TimerTickMsg {
+	
+}
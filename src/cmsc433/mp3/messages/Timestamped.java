@@ -0,0 +1,21 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Interface of messages carrying the LogClock time at which their sender sent
+ * them.  The receiver merges the time into its own clock before handling the
+ * message, so that every event it logs afterwards is stamped later than every
+ * event the sender logged before sending.
+ */
+public interface Timestamped {
+
+	/**
+	 * @return	Sender's clock time when message was sent, or 0 if not stamped
+	 */
+	long getTimestamp();
+
+	/**
+	 * @param timestamp	Sender's clock time
+	 * @return			Copy of this message stamped with the given time
+	 */
+	Timestamped stamped(long timestamp);
+}
@@ -0,0 +1,20 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages a log stripe sends the simulation manager when it has logged
+ * the termination of a user.  Once every user has terminated the simulation
+ * manager collects the stripes' logs.
+ */
+public class UserTerminatedMsg {
+	private final ActorRef user;	// User that terminated
+
+	public UserTerminatedMsg (ActorRef user) {
+		this.user = user;
+	}
+
+	public ActorRef getUser() {
+		return user;
+	}
+}
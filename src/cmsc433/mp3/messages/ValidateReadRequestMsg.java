@@ -0,0 +1,42 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.util.ReadValidation;
+
+/**
+ * Class of messages users send to ask whether an optimistic read is still valid.
+ * The message carries the stamp returned by the optimistic-read grant; the manager
+ * of the resource answers the user with a ValidateReadResponseMsg.
+ */
+public class ValidateReadRequestMsg {
+	private final ReadValidation validation;	// Script step being carried out
+	private final long stamp;					// Stamp of optimistic-read grant
+	private final ActorRef user;				// User to answer
+	
+	public ValidateReadRequestMsg (ReadValidation validation, long stamp, ActorRef user) {
+		this.validation = validation;
+		this.stamp = stamp;
+		this.user = user;
+	}
+	
+	public ReadValidation getValidation() {
+		return validation;
+	}
+	
+	public String getResourceName() {
+		return validation.getResourceName();
+	}
+	
+	public long getStamp() {
+		return stamp;
+	}
+	
+	public ActorRef getUser() {
+		return user;
+	}
+	
+	@Override 
+	public String toString () {
+		return validation.toString() + " at stamp " + stamp;
+	}
+}
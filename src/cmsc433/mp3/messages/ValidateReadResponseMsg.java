@@ -0,0 +1,29 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.ReadValidation;
+
+/**
+ * Class of messages resource managers send in response to ValidateReadRequestMsg.
+ */
+public class ValidateReadResponseMsg {
+	private final ReadValidation validation;	// Script step being answered
+	private final boolean valid;				// True if no write has happened since stamp
+	
+	public ValidateReadResponseMsg (ReadValidation validation, boolean valid) {
+		this.validation = validation;
+		this.valid = valid;
+	}
+	
+	public ReadValidation getValidation() {
+		return validation;
+	}
+	
+	public boolean isValid() {
+		return valid;
+	}
+	
+	@Override 
+	public String toString () {
+		return validation.toString() + (valid ? " succeeded" : " failed");
+	}
+}
@@ -0,0 +1,31 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.WaitForEdge;
+
+/**
+ * Class of messages a resource manager sends to a user's directory manager when a
+ * blocking request of the user is queued (added) or leaves its queue (removed), so
+ * that deadlock probes can find where the user waits.
+ */
+public class WaitForEdgeMsg {
+	private final WaitForEdge edge;
+	private final boolean added;	// True if request was queued, false if it left queue
+	
+	public WaitForEdgeMsg (WaitForEdge edge, boolean added) {
+		this.edge = edge;
+		this.added = added;
+	}
+	
+	public WaitForEdge getEdge() {
+		return edge;
+	}
+	
+	public boolean isAdded() {
+		return added;
+	}
+	
+	@Override
+	public String toString () {
+		return (added ? "Wait added: " : "Wait removed: ") + edge;
+	}
+}
@@ -0,0 +1,9 @@
+package cmsc433.mp3.messages;
+
+/**
+ * Class of messages asking a resource manager for the wait-time statistics of the
+ * requests it has granted.
+ */
+public class WaitTimeStatsRequestMsg {
+
+}
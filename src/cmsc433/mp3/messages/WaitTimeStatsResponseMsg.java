@@ -0,0 +1,19 @@
+package cmsc433.mp3.messages;
+
+import cmsc433.mp3.util.WaitTimeStats;
+
+/**
+ * Class of messages carrying a resource manager's wait-time statistics.  The
+ * statistics are a copy, owned by the receiver.
+ */
+public class WaitTimeStatsResponseMsg {
+	private final WaitTimeStats stats;
+	
+	public WaitTimeStatsResponseMsg (WaitTimeStats stats) {
+		this.stats = stats;
+	}
+	
+	public WaitTimeStats getStats() {
+		return stats;
+	}
+}
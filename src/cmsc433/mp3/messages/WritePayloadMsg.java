@@ -0,0 +1,42 @@
+package cmsc433.mp3.messages;
+
+import akka.actor.ActorRef;
+
+/**
+ * Class of messages users send to replace the payload of a resource they hold
+ * exclusive-write access to.  The new payload is staged by the resource's manager,
+ * and published to readers when the writer releases its access (or downgrades it
+ * to read access); a write from a user not holding write access is ignored.  No
+ * response is sent.
+ */
+public class WritePayloadMsg {
+	private final String resourceName;
+	private final byte[] data;		// Private copy of new payload
+	private final ActorRef sender;
+	
+	public WritePayloadMsg (String resourceName, byte[] data, ActorRef user) {
+		this.resourceName = resourceName;
+		this.data = data.clone();
+		this.sender = user;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	/**
+	 * @return	New payload (not to be modified)
+	 */
+	public byte[] getData() {
+		return data;
+	}
+	
+	public ActorRef getSender() {
+		return sender;
+	}
+	
+	@Override 
+	public String toString () {
+		return "Write " + data.length + " bytes to " + resourceName;
+	}
+}
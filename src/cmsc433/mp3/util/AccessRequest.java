@@ -1,6 +1,7 @@
 package cmsc433.mp3.util;
 
 import cmsc433.mp3.enums.AccessRequestType;
+import cmsc433.mp3.enums.RequestPriority;
 
 /**
  * Type of access requests that users can make.
@@ -12,10 +13,55 @@ public class AccessRequest {
 	
 	private final String resourceName;
 	private final AccessRequestType type;
+	private final long leaseMs;		// Time limit on grant, or 0 for none
+	private final long deadlineMs;	// Time limit on waiting for blocking request, or 0 for none
+	private final RequestPriority priority;	// Class of blocking request in wait queue
 	
 	public AccessRequest (String resourceName, AccessRequestType type) {
+		this(resourceName, type, 0, 0);
+	}
+	
+	/**
+	 * Create request whose grant is released by the manager if the user has not
+	 * released it within the given time.
+	 * 
+	 * @param resourceName	Name of resource
+	 * @param type			Type of request
+	 * @param leaseMs		Time limit on grant in milliseconds, or 0 for none
+	 */
+	public AccessRequest (String resourceName, AccessRequestType type, long leaseMs) {
+		this(resourceName, type, leaseMs, 0);
+	}
+
+	/**
+	 * Create request with time limits on both the grant and, for a blocking
+	 * request, how long it may wait in the manager's queue before being denied.
+	 * 
+	 * @param resourceName	Name of resource
+	 * @param type			Type of request
+	 * @param leaseMs		Time limit on grant in milliseconds, or 0 for none
+	 * @param deadlineMs	Time limit on waiting in milliseconds, or 0 for none
+	 */
+	public AccessRequest (String resourceName, AccessRequestType type, long leaseMs, long deadlineMs) {
+		this(resourceName, type, leaseMs, deadlineMs, RequestPriority.NORMAL);
+	}
+
+	/**
+	 * Create request with time limits and a priority class, which decides how a
+	 * blocking request is ordered among others waiting for the resource.
+	 * 
+	 * @param resourceName	Name of resource
+	 * @param type			Type of request
+	 * @param leaseMs		Time limit on grant in milliseconds, or 0 for none
+	 * @param deadlineMs	Time limit on waiting in milliseconds, or 0 for none
+	 * @param priority		Priority class
+	 */
+	public AccessRequest (String resourceName, AccessRequestType type, long leaseMs, long deadlineMs, RequestPriority priority) {
 		this.resourceName = resourceName;
 		this.type = type;
+		this.leaseMs = leaseMs;
+		this.deadlineMs = deadlineMs;
+		this.priority = priority;
 	}
 
 	public String getResourceName() {
@@ -25,6 +71,18 @@ public class AccessRequest {
 	public AccessRequestType getType() {
 		return type;
 	}
+
+	public long getLeaseMs() {
+		return leaseMs;
+	}
+
+	public long getDeadlineMs() {
+		return deadlineMs;
+	}
+
+	public RequestPriority getPriority() {
+		return priority;
+	}
 	
 	@Override
 	public String toString () {
@@ -0,0 +1,118 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import cmsc433.mp3.actors.SimulationManagerActor;
+import cmsc433.mp3.messages.SimulationStartMsg;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Timing driver for grant / release throughput.
+ *
+ * Sets up two nodes, puts all the resources on the first, and gives each node
+ * the same number of users.  Every user runs a script of blocking write and read
+ * requests, each followed by its release, cycling over its own slice of the
+ * resources.  The slices are disjoint, so every request is granted at once and
+ * the run measures the grant / release path (lookup, lock table, forwarding)
+ * rather than queueing.  Each run is timed from SimulationStartMsg to
+ * SimulationFinishMsg.
+ *
+ * Usage: Benchmark [resources [users-per-node [rounds [runs [log [shards]]]]]]
+ *
+ * The first run is reported separately as warm-up; the rest are averaged.  The
+ * log argument is "all" (the default) to log every event, as the simulations do,
+ * or "none" to log nothing but user starts and terminations.  If the number of
+ * shards is more than 1 (the default), the runs are repeated with each node's
+ * manager split into 1, 2, 4, ... shards, up to that number, to show how the
+ * throughput scales; every request still passes through the front of its node's
+ * manager, but releases go straight to the shard that granted them.
+ *
+ * Logging every event costs about a sixth of the throughput, compared with a
+ * logger that just keeps the events it is sent in a list:  each event is stamped
+ * with its actor's LogClock and encoded into the stripe's ring buffer as it
+ * arrives, and when the run finishes every stripe is decoded, sorted and merged
+ * by timestamp before SimulationFinishMsg is sent.  That buys a log of bounded
+ * size, ordered consistently with causality across nodes.  Running with "none"
+ * separates that cost from the cost of the grant / release path itself.
+ */
+public class Benchmark {
+
+	public static void main(String[] args) throws Exception {
+		int resources = (args.length > 0) ? Integer.parseInt(args[0]) : 4096;
+		int users = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+		int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 500;
+		int runs = (args.length > 3) ? Integer.parseInt(args[3]) : 6;
+		LogFilter logFilter = (args.length > 4 && args[4].equals("none")) ? LogFilter.only() : LogFilter.ALL;
+		int maxShards = (args.length > 5) ? Integer.parseInt(args[5]) : 1;
+
+		// Each round is one write and one read, each granted and released once.
+		long grants = 2L * 2 * users * rounds;
+
+		for (int shards = 1; shards <= maxShards; shards *= 2) {
+			if (maxShards > 1)
+				System.out.printf("%d shard(s) per node:%n", shards);
+			long total = 0;
+			for (int run = 0; run < runs; run++) {
+				long elapsed = runOnce(resources, users, rounds, logFilter, shards);
+				System.out.printf("run %d: %d ms, %.0f grants/s%n", run, elapsed / 1000000, grants * 1e9 / elapsed);
+				if (run > 0)
+					total += elapsed;
+			}
+			if (runs > 1) {
+				long mean = total / (runs - 1);
+				System.out.printf("mean of %d runs: %d ms, %.0f grants/s%n", runs - 1, mean / 1000000, grants * 1e9 / mean);
+			}
+		}
+	}
+
+	/**
+	 * Build and run one simulation, returning its wall-clock time in nanoseconds.
+	 */
+	private static long runOnce(int resources, int users, int rounds, LogFilter logFilter, int shards) throws Exception {
+		ArrayList<Resource> local = Systems.makeResources("Bench", resources);
+
+		ArrayList<UserScript> scripts1 = new ArrayList<UserScript> ();
+		ArrayList<UserScript> scripts2 = new ArrayList<UserScript> ();
+		for (int u = 0; u < users; u++) {
+			scripts1.add(makeScript(u, 2 * users, resources, rounds));
+			scripts2.add(makeScript(users + u, 2 * users, resources, rounds));
+		}
+
+		ArrayList<NodeSpecification> nodes = new ArrayList<NodeSpecification> ();
+		nodes.add(new NodeSpecification(local, scripts1, shards, logFilter));
+		nodes.add(new NodeSpecification(new ArrayList<Resource>(), scripts2, shards, logFilter));
+
+		ActorSystem system = ActorSystem.create("Benchmark");
+		ActorRef simulationManager = SimulationManagerActor.makeSimulationManager(nodes, system);
+
+		long start = System.nanoTime();
+		Await.result(Patterns.ask(simulationManager, new SimulationStartMsg(), 600000L), Duration.Inf());
+		long elapsed = System.nanoTime() - start;
+
+		Await.ready(system.terminate(), Duration.Inf());
+		return elapsed;
+	}
+
+	/**
+	 * Script for user number u of count: each round takes one resource of the
+	 * user's slice (u, u + count, u + 2*count, ...) for writing and the next one
+	 * for reading, releasing each before the next request.
+	 */
+	private static UserScript makeScript(int u, int count, int resources, int rounds) {
+		int slice = Math.max(1, resources / count);
+		StringBuilder str = new StringBuilder();
+		for (int i = 0; i < rounds; i++) {
+			String write = "Bench_" + (u + count * (i % slice));
+			String read = "Bench_" + (u + count * ((i + 1) % slice));
+			str.append("write-request-b ").append(write).append('\n');
+			str.append("write-release ").append(write).append('\n');
+			str.append("read-request-b ").append(read).append('\n');
+			str.append("read-release ").append(read).append('\n');
+		}
+		return UserScript.fromString(str.toString());
+	}
+}
@@ -0,0 +1,77 @@
+package cmsc433.mp3.util;
+
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Scheduling policy letting readers overtake a writer waiting at the head of the
+ * queue, but only a bounded number of times.  Each reader granted ahead of the
+ * writer counts as one bypass; once the bound is reached, requests are granted in
+ * arrival order until the writer has been granted, which resets the count.  With a
+ * bound of 0 this is FIFO; as the bound grows it approaches reader preference.
+ */
+public class BoundedBypassPolicy implements SchedulingPolicy {
+	
+	private final int maxBypasses;
+	
+	public BoundedBypassPolicy(int maxBypasses) {
+		this.maxBypasses = maxBypasses;
+	}
+	
+	public int getMaxBypasses() {
+		return maxBypasses;
+	}
+	
+	@Override
+	public boolean admitNow(ResourceState state, AccessRequestMsg message) {
+		if (!state.canGrant(message)) {
+			return false;
+		}
+		if (state.getWaitQueue().isEmpty()) {
+			return true;
+		}
+		if (ResourceState.isRead(message) && mayBypass(state)) {
+			state.setBypassCount(state.getBypassCount() + 1);
+			return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public WaitingRequest selectNext(ResourceState state) {
+		WaitingRequest head = state.getWaitQueue().peek();
+		
+		if (head == null) {
+			return null;
+		}
+		if (state.canGrant(head.getMessage())) {
+			if (!ResourceState.isRead(head.getMessage())) {
+				state.setBypassCount(0);
+			}
+			return head;
+		}
+		if (mayBypass(state)) {
+			for (WaitingRequest waiting : state.getWaitQueue()) {
+				if (ResourceState.isRead(waiting.getMessage()) && state.canGrant(waiting.getMessage())) {
+					state.setBypassCount(state.getBypassCount() + 1);
+					return waiting;
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @param state	Lock-table entry for resource
+	 * @return		True if a writer waits at the head of the queue and may still be
+	 * 				bypassed
+	 */
+	private boolean mayBypass(ResourceState state) {
+		WaitingRequest head = state.getWaitQueue().peek();
+		return head != null && !ResourceState.isRead(head.getMessage()) && state.getBypassCount() < maxBypasses;
+	}
+	
+	@Override
+	public String toString() {
+		return "bounded bypass (" + maxBypasses + ")";
+	}
+}
@@ -0,0 +1,27 @@
+package cmsc433.mp3.util;
+
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Scheduling policy granting requests strictly in arrival order.  A request that
+ * cannot be granted holds up everything queued behind it, including readers that
+ * would be compatible with the current holders.
+ */
+public class FifoPolicy implements SchedulingPolicy {
+	
+	@Override
+	public boolean admitNow(ResourceState state, AccessRequestMsg message) {
+		return state.getWaitQueue().isEmpty() && state.canGrant(message);
+	}
+	
+	@Override
+	public WaitingRequest selectNext(ResourceState state) {
+		WaitingRequest head = state.getWaitQueue().peek();
+		return (head != null && state.canGrant(head.getMessage())) ? head : null;
+	}
+	
+	@Override
+	public String toString() {
+		return "FIFO";
+	}
+}
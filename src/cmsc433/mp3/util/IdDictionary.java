@@ -0,0 +1,60 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Two-way mapping between values and dense integer ids, assigned in the order the
+ * values are first seen.  Null is mapped to id -1.
+ *
+ * The dictionary only grows with the number of distinct values, so it stays small
+ * when the same few actors and resources appear in a great many events.  The value
+ * last interned is remembered, so that interning the same object again, as the
+ * events of one request do with its resource name, skips the hash lookup.
+ *
+ * @param <T>	Type of values
+ */
+public class IdDictionary<T> {
+	private final Map<T, Integer> ids = new HashMap<T, Integer>();
+	private final ArrayList<T> values = new ArrayList<T>();
+	private T lastValue = null;		// Value last interned
+	private int lastId = -1;		// Its id
+
+	/**
+	 * @param value	Value, or null
+	 * @return		Id of value, assigning a new one if it has not been seen before
+	 */
+	public int intern(T value) {
+		if (value == null) {
+			return -1;
+		}
+		if (value == lastValue) {
+			return lastId;
+		}
+		Integer id = ids.get(value);
+		if (id == null) {
+			id = values.size();
+			ids.put(value, id);
+			values.add(value);
+		}
+		lastValue = value;
+		lastId = id;
+		return id;
+	}
+
+	/**
+	 * @param id	Id previously returned by intern
+	 * @return		Value with that id, or null for id -1
+	 */
+	public T get(int id) {
+		return (id < 0) ? null : values.get(id);
+	}
+
+	/**
+	 * @return	Number of values with ids
+	 */
+	public int size() {
+		return values.size();
+	}
+}
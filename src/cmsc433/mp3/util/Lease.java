@@ -0,0 +1,43 @@
+package cmsc433.mp3.util;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessType;
+
+/**
+ * Time limit on a grant of access to a local resource.  When the lease expires
+ * before the holder has released its access, the manager releases it instead.
+ * 
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class Lease {
+	private final ResourceState state;		// Lock-table entry of resource
+	private final ActorRef holder;			// User granted access
+	private final AccessType type;			// Access granted
+	private TimerWheel.Timeout<Object> timeout;	// Expiry of lease
+	
+	public Lease (ResourceState state, ActorRef holder, AccessType type) {
+		this.state = state;
+		this.holder = holder;
+		this.type = type;
+	}
+	
+	public ResourceState getState() {
+		return state;
+	}
+	
+	public ActorRef getHolder() {
+		return holder;
+	}
+	
+	public AccessType getType() {
+		return type;
+	}
+	
+	public TimerWheel.Timeout<Object> getTimeout() {
+		return timeout;
+	}
+	
+	public void setTimeout(TimerWheel.Timeout<Object> timeout) {
+		this.timeout = timeout;
+	}
+}
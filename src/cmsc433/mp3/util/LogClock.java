@@ -0,0 +1,45 @@
+package cmsc433.mp3.util;
+
+/**
+ * Hybrid logical clock stamping the events an actor logs, so that the log stripes
+ * of different managers can be merged into one causally consistent log.
+ *
+ * The physical part is System.nanoTime, so that stamps of unrelated events stay
+ * close to the order in which they happened.  The logical part is Lamport's:  a
+ * clock never goes backwards, and each stamp is greater than the last one.  Actors
+ * stamp the messages that carry causality between them (requests, releases, grants
+ * and denials, and resource handoffs; see Timestamped) with their clock, and the
+ * receiver merges the stamp into its own clock before handling the message, so an
+ * event caused by a message is always stamped later than every event its sender
+ * logged before sending it, whatever the physical clocks say.
+ *
+ * Instances are owned by a single actor and must never be shared between actors.
+ */
+public class LogClock {
+	private long last = Long.MIN_VALUE;		// Most recent stamp
+
+	/**
+	 * @return	Stamp for a new event (including sending a message):  greater than
+	 * 			every earlier stamp of this clock, and no earlier than the current
+	 * 			physical time
+	 */
+	public long tick() {
+		long now = System.nanoTime();
+		last = (now > last) ? now : last + 1;
+		return last;
+	}
+
+	/**
+	 * Merge the stamp carried by a message received into the clock.
+	 *
+	 * @param stamp	Sender's clock time when message was sent, or 0 if not stamped
+	 * @return		Stamp for the receive event:  greater than both the given stamp
+	 * 				and every earlier stamp of this clock
+	 */
+	public long receive(long stamp) {
+		if (stamp > last) {
+			last = stamp;
+		}
+		return tick();
+	}
+}
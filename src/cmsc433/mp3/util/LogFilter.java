@@ -0,0 +1,89 @@
+package cmsc433.mp3.util;
+
+import java.util.Arrays;
+
+import cmsc433.mp3.messages.LogMsg.EventType;
+
+/**
+ * Configuration of which events a resource manager logs.
+ *
+ * Each event type is logged always, never, or for one event in every N (sampled).
+ * Managers consult the filter, through a LogSampler, before building an event, so
+ * an event type that is filtered out costs a single check.  User start and
+ * termination events are always logged, since the simulation depends on them to
+ * tell when it is finished.
+ *
+ * Filters are immutable, so they may be sent between actors.
+ */
+public class LogFilter {
+	private static final EventType[] eventTypes = EventType.values();
+
+	/**
+	 * Filter logging every event (the default).
+	 */
+	public static final LogFilter ALL = new LogFilter(filled(1));
+
+	private final int[] sampleEvery;	// Per event type:  log one in this many, or 0 for none
+
+	private LogFilter(int[] sampleEvery) {
+		this.sampleEvery = sampleEvery;
+		sampleEvery[EventType.USER_START.ordinal()] = 1;
+		sampleEvery[EventType.USER_TERMINATE.ordinal()] = 1;
+	}
+
+	/**
+	 * @param types	Event types to log
+	 * @return		Filter logging every event of the given types and user start and
+	 * 				termination events, and no others
+	 */
+	public static LogFilter only(EventType... types) {
+		int[] sampleEvery = filled(0);
+		for (EventType type : types) {
+			sampleEvery[type.ordinal()] = 1;
+		}
+		return new LogFilter(sampleEvery);
+	}
+
+	/**
+	 * @param type	Event type
+	 * @param every	Log one event of type in this many:  1 for all, 0 for none
+	 * @return		Copy of this filter with sampling of type changed
+	 */
+	public LogFilter withSampling(EventType type, int every) {
+		if (every < 0) {
+			throw new IllegalArgumentException ("Invalid sampling interval: " + every);
+		}
+		int[] copy = sampleEvery.clone();
+		copy[type.ordinal()] = every;
+		return new LogFilter(copy);
+	}
+
+	/**
+	 * @param type	Event type
+	 * @return		Log one event of type in this many:  1 for all, 0 for none
+	 */
+	public int getSampleEvery(EventType type) {
+		return sampleEvery[type.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("log");
+		for (EventType type : eventTypes) {
+			int every = sampleEvery[type.ordinal()];
+			if (every == 1) {
+				text.append(' ').append(type);
+			}
+			else if (every > 1) {
+				text.append(' ').append(type).append("/").append(every);
+			}
+		}
+		return text.toString();
+	}
+
+	private static int[] filled(int every) {
+		int[] sampleEvery = new int[eventTypes.length];
+		Arrays.fill(sampleEvery, every);
+		return sampleEvery;
+	}
+}
@@ -0,0 +1,84 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import cmsc433.mp3.messages.LogMsg;
+
+/**
+ * Merging of log stripes into one global log ordered by LogClock timestamp.
+ *
+ * Each stripe is first sorted on its own, which its logger does before handing
+ * it out, and the sorted stripes are then merged k ways, taking O(n log k) time for
+ * n events in k stripes.  Events with equal timestamps keep the order of their
+ * stripes.
+ */
+public class LogMerger {
+	private static final Comparator<Object> byTimestamp =
+			Comparator.comparingLong(event -> ((LogMsg) event).getTimestamp());
+
+	/**
+	 * Sort a stripe by timestamp.  The sort is stable, so events an actor logged
+	 * with equal stamps (as unstamped events are) keep their arrival order.
+	 * 
+	 * @param stripe	Events of one stripe
+	 */
+	public static void sort(List<Object> stripe) {
+		Collections.sort(stripe, byTimestamp);
+	}
+
+	/**
+	 * @param stripes	Stripes, each sorted by timestamp
+	 * @return			All events of the stripes, ordered by timestamp
+	 */
+	public static ArrayList<Object> merge(List<? extends List<Object>> stripes) {
+		int total = 0;
+		PriorityQueue<Cursor> heads = new PriorityQueue<Cursor>();
+
+		for (int i = 0; i < stripes.size(); i++) {
+			List<Object> stripe = stripes.get(i);
+			total += stripe.size();
+			if (!stripe.isEmpty()) {
+				heads.add(new Cursor(stripe, i));
+			}
+		}
+
+		ArrayList<Object> log = new ArrayList<Object>(total);
+		while (!heads.isEmpty()) {
+			Cursor head = heads.poll();
+			log.add(head.stripe.get(head.position++));
+			if (head.position < head.stripe.size()) {
+				heads.add(head);
+			}
+		}
+		return log;
+	}
+
+	/**
+	 * Position in a stripe being merged, ordered by timestamp of the next event and
+	 * then by stripe.
+	 */
+	private static class Cursor implements Comparable<Cursor> {
+		private final List<Object> stripe;
+		private final int index;
+		private int position = 0;
+
+		Cursor (List<Object> stripe, int index) {
+			this.stripe = stripe;
+			this.index = index;
+		}
+
+		private long timestamp() {
+			return ((LogMsg) stripe.get(position)).getTimestamp();
+		}
+
+		@Override
+		public int compareTo(Cursor other) {
+			int c = Long.compare(timestamp(), other.timestamp());
+			return (c != 0) ? c : Integer.compare(index, other.index);
+		}
+	}
+}
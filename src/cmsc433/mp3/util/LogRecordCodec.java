@@ -0,0 +1,195 @@
+package cmsc433.mp3.util;
+
+import java.nio.ByteBuffer;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessRequestDenialReason;
+import cmsc433.mp3.enums.AccessRequestType;
+import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.enums.RequestPriority;
+import cmsc433.mp3.messages.LogMsg;
+import cmsc433.mp3.messages.LogMsg.EventType;
+
+/**
+ * Encoding of log events as fixed-size binary records.
+ *
+ * Actors and resource names are replaced by ids from dictionaries kept by the
+ * codec, and enum values by their ordinals (-1 for none), so every record takes
+ * RECORD_SIZE bytes however long the names involved are.  Decoding rebuilds the
+ * event through the LogMsg factory methods; the requests and releases in decoded
+ * events are equal to, but not the same objects as, the ones originally logged.
+ *
+ * Record layout (offsets in bytes):
+ *
+ *	0	event type				1	access request type
+ *	2	denial reason			3	release access type
+ *	4	user id					8	local manager id
+ *	12	remote manager id		16	resource name id
+ *	20	request priority		21-23	unused
+ *	24	request lease (ms)		32	request deadline (ms)
+ *	40	timestamp
+ *
+ * Instances are owned by a single actor and must never be shared between actors.
+ */
+public class LogRecordCodec {
+	public static final int RECORD_SIZE = 48;
+
+	private static final EventType[] eventTypes = EventType.values();
+	private static final AccessRequestType[] requestTypes = AccessRequestType.values();
+	private static final AccessRequestDenialReason[] denialReasons = AccessRequestDenialReason.values();
+	private static final AccessType[] accessTypes = AccessType.values();
+	private static final RequestPriority[] priorities = RequestPriority.values();
+
+	private final IdDictionary<ActorRef> actors = new IdDictionary<ActorRef>();
+	private final IdDictionary<String> resourceNames = new IdDictionary<String>();
+
+	/**
+	 * @return	Ids of actors appearing in encoded events
+	 */
+	public IdDictionary<ActorRef> getActors() {
+		return actors;
+	}
+
+	/**
+	 * @return	Ids of resource names appearing in encoded events
+	 */
+	public IdDictionary<String> getResourceNames() {
+		return resourceNames;
+	}
+
+	/**
+	 * Write event as a record.
+	 * 
+	 * @param msg		Event
+	 * @param buffer	Buffer to write to; its position is left unchanged
+	 * @param offset	Position in buffer of first byte of record
+	 */
+	public void encode(LogMsg msg, ByteBuffer buffer, int offset) {
+		AccessRequest request = msg.getAccessRequest();
+		AccessRelease release = msg.getAccessRelease();
+		AccessRequestDenialReason reason = msg.getAccessRequestDenialReason();
+
+		buffer.put(offset, (byte) msg.getType().ordinal());
+		buffer.put(offset + 1, (byte) ((request != null) ? request.getType().ordinal() : -1));
+		buffer.put(offset + 2, (byte) ((reason != null) ? reason.ordinal() : -1));
+		buffer.put(offset + 3, (byte) ((release != null) ? release.getType().ordinal() : -1));
+		buffer.putInt(offset + 4, actors.intern(msg.getUser()));
+		buffer.putInt(offset + 8, actors.intern(msg.getLocalResourceManager()));
+		buffer.putInt(offset + 12, actors.intern(msg.getRemoteResourceManager()));
+		buffer.putInt(offset + 16, resourceNames.intern(msg.getResourceName()));
+		buffer.put(offset + 20, (byte) ((request != null && request.getPriority() != null) ? request.getPriority().ordinal() : -1));
+		buffer.putLong(offset + 24, (request != null) ? request.getLeaseMs() : 0);
+		buffer.putLong(offset + 32, (request != null) ? request.getDeadlineMs() : 0);
+		buffer.putLong(offset + 40, msg.getTimestamp());
+	}
+
+	/**
+	 * Read event back from a record.
+	 * 
+	 * @param buffer	Buffer to read from; its position is left unchanged
+	 * @param offset	Position in buffer of first byte of record
+	 * @return			Event, with its original timestamp
+	 */
+	public LogMsg decode(ByteBuffer buffer, int offset) {
+		return decodeEvent(buffer, offset).stamped(timestampOf(buffer, offset));
+	}
+
+	private LogMsg decodeEvent(ByteBuffer buffer, int offset) {
+		EventType type = typeOf(buffer, offset);
+		ActorRef user = actors.get(userIdOf(buffer, offset));
+		ActorRef local = actors.get(localIdOf(buffer, offset));
+		ActorRef remote = actors.get(remoteIdOf(buffer, offset));
+		String name = resourceNames.get(resourceIdOf(buffer, offset));
+
+		switch (type) {
+		case USER_START:
+			return LogMsg.makeUserStartLogMsg(user);
+		case USER_TERMINATE:
+			return LogMsg.makeUserTerminateLogMsg(user);
+		case LOCAL_RESOURCE_CREATED:
+			return LogMsg.makeLocalResourceCreatedLogMsg(local, name);
+		case REMOTE_RESOURCE_DISCOVERED:
+			return LogMsg.makeRemoteResourceDiscoveredLogMsg(local, remote, name);
+		case ACCESS_REQUEST_RECEIVED:
+			return LogMsg.makeAccessRequestReceivedLogMsg(user, local, requestOf(buffer, offset, name));
+		case ACCESS_REQUEST_FORWARDED:
+			return LogMsg.makeAccessRequestForwardedLogMsg(local, remote, requestOf(buffer, offset, name));
+		case ACCESS_REQUEST_GRANTED:
+			return LogMsg.makeAccessRequestGrantedLogMsg(user, local, requestOf(buffer, offset, name));
+		case ACCESS_REQUEST_DENIED:
+			return LogMsg.makeAccessRequestDeniedLogMsg(user, local, requestOf(buffer, offset, name),
+					denialReasonOf(buffer, offset));
+		case ACCESS_RELEASE_RECEIVED:
+			return LogMsg.makeAccessReleaseReceivedLogMsg(user, local, releaseOf(buffer, offset, name));
+		case ACCESS_RELEASE_FORWARDED:
+			return LogMsg.makeAccessReleaseForwardedLogMsg(local, remote, releaseOf(buffer, offset, name));
+		case ACCESS_RELEASED:
+			return LogMsg.makeAccessReleasedLogMsg(user, local, releaseOf(buffer, offset, name));
+		case ACCESS_RELEASE_IGNORED:
+			return LogMsg.makeAccessReleaseIgnoredLogMsg(user, local, releaseOf(buffer, offset, name));
+		default:
+			throw new AssertionError ("Unrecognized Event Type: " + type);
+		}
+	}
+
+	/*
+	 * Accessors for the fields of a record, for readers that resolve ids with
+	 * dictionaries of their own, as when reading log files back without the actors
+	 * that wrote them.
+	 */
+
+	public static EventType typeOf(ByteBuffer buffer, int offset) {
+		return eventTypes[buffer.get(offset)];
+	}
+
+	public static int userIdOf(ByteBuffer buffer, int offset) {
+		return buffer.getInt(offset + 4);
+	}
+
+	public static int localIdOf(ByteBuffer buffer, int offset) {
+		return buffer.getInt(offset + 8);
+	}
+
+	public static int remoteIdOf(ByteBuffer buffer, int offset) {
+		return buffer.getInt(offset + 12);
+	}
+
+	public static int resourceIdOf(ByteBuffer buffer, int offset) {
+		return buffer.getInt(offset + 16);
+	}
+
+	public static long timestampOf(ByteBuffer buffer, int offset) {
+		return buffer.getLong(offset + 40);
+	}
+
+	/**
+	 * @return	Reason request was denied, or null if record has none
+	 */
+	public static AccessRequestDenialReason denialReasonOf(ByteBuffer buffer, int offset) {
+		byte reason = buffer.get(offset + 2);
+		return (reason >= 0) ? denialReasons[reason] : null;
+	}
+
+	/**
+	 * @param name	Name of resource involved, resolved from record's resource id
+	 * @return		Request involved, or null if record has none
+	 */
+	public static AccessRequest requestOf(ByteBuffer buffer, int offset, String name) {
+		byte type = buffer.get(offset + 1);
+		byte priority = buffer.get(offset + 20);
+		if (type < 0) {
+			return null;
+		}
+		return new AccessRequest(name, requestTypes[type], buffer.getLong(offset + 24),
+				buffer.getLong(offset + 32), (priority >= 0) ? priorities[priority] : null);
+	}
+
+	/**
+	 * @param name	Name of resource involved, resolved from record's resource id
+	 * @return		Release involved, or null if record has none
+	 */
+	public static AccessRelease releaseOf(ByteBuffer buffer, int offset, String name) {
+		byte type = buffer.get(offset + 3);
+		return (type >= 0) ? new AccessRelease(name, accessTypes[type]) : null;
+	}
+}
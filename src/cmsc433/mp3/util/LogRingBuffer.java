@@ -0,0 +1,93 @@
+package cmsc433.mp3.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import cmsc433.mp3.enums.LogOverflowPolicy;
+import cmsc433.mp3.messages.LogMsg;
+
+/**
+ * Bounded event log holding a fixed number of binary event records off-heap.
+ *
+ * Records are encoded by a LogRecordCodec into a single direct buffer allocated up
+ * front, used as a ring:  appending an event never allocates, and the log takes
+ * the same amount of memory however long the run.  Once the log is full, the
+ * overflow policy decides whether the oldest record is overwritten or the new
+ * event is dropped; either way the number of events lost is counted.
+ *
+ * Instances are owned by a single actor and must never be shared between actors.
+ */
+public class LogRingBuffer {
+	private final int capacity;					// Maximum number of records held
+	private final LogOverflowPolicy policy;		// What to do with events once full
+	private final ByteBuffer records;			// Record storage
+	private final LogRecordCodec codec = new LogRecordCodec();
+	private int head = 0;						// Slot of oldest record
+	private int size = 0;						// Number of records held
+	private long dropped = 0;					// Number of events lost to overflow
+
+	/**
+	 * @param capacity	Maximum number of records held
+	 * @param policy	What to do with new events once full
+	 */
+	public LogRingBuffer (int capacity, LogOverflowPolicy policy) {
+		if (capacity <= 0 || capacity > Integer.MAX_VALUE / LogRecordCodec.RECORD_SIZE) {
+			throw new IllegalArgumentException ("Invalid log capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		this.policy = policy;
+		this.records = ByteBuffer.allocateDirect(capacity * LogRecordCodec.RECORD_SIZE);
+	}
+
+	/**
+	 * Append event to log.
+	 * 
+	 * @param msg	Event
+	 * @return		True if event was recorded, false if it was dropped
+	 */
+	public boolean append(LogMsg msg) {
+		if (size == capacity) {
+			dropped++;
+			if (policy == LogOverflowPolicy.DROP_NEWEST) {
+				return false;
+			}
+			head = (head + 1) % capacity;
+			size--;
+		}
+		codec.encode(msg, records, ((head + size) % capacity) * LogRecordCodec.RECORD_SIZE);
+		size++;
+		return true;
+	}
+
+	/**
+	 * @return	Number of records held
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return	Maximum number of records held
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return	Number of events lost because the log was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return	Events held, decoded, oldest first
+	 */
+	public ArrayList<Object> toList() {
+		ArrayList<Object> log = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++) {
+			log.add(codec.decode(records, ((head + i) % capacity) * LogRecordCodec.RECORD_SIZE));
+		}
+		return log;
+	}
+}
@@ -0,0 +1,48 @@
+package cmsc433.mp3.util;
+
+import cmsc433.mp3.messages.LogMsg.EventType;
+
+/**
+ * Applies a LogFilter to the events of one manager, counting the events of each
+ * sampled type so that one in every N of them is logged.
+ *
+ * Instances are owned by a single actor and must never be shared between actors.
+ */
+public class LogSampler {
+	private final LogFilter filter;		// Events to log
+	private final int[] counts;			// Per event type:  events seen since last one logged
+
+	/**
+	 * @param filter	Events to log
+	 */
+	public LogSampler (LogFilter filter) {
+		this.filter = filter;
+		this.counts = new int[EventType.values().length];
+	}
+
+	/**
+	 * @return	Events to log
+	 */
+	public LogFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Decide whether to log an event, before it is built.
+	 * 
+	 * @param type	Type of event
+	 * @return		True if event should be logged
+	 */
+	public boolean accepts(EventType type) {
+		int every = filter.getSampleEvery(type);
+		if (every <= 1) {
+			return every == 1;
+		}
+		int i = type.ordinal();
+		if (++counts[i] < every) {
+			return false;
+		}
+		counts[i] = 0;
+		return true;
+	}
+}
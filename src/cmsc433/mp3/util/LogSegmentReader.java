@@ -0,0 +1,158 @@
+package cmsc433.mp3.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import cmsc433.mp3.enums.AccessRequestDenialReason;
+import cmsc433.mp3.messages.LogMsg;
+import cmsc433.mp3.messages.LogMsg.EventType;
+
+/**
+ * Tool decoding log segments written by LogSegmentWriter, as the text LogMsg gives
+ * for each event or as CSV.
+ *
+ * Usage:  LogSegmentReader [--csv] segment-file ...
+ *
+ * Segments are read in the order given.  Reading stops at the first END tag of a
+ * segment, so segments of a run that did not close its writer can be read too.
+ * Each log stripe of a run writes segments of its own; the timestamp column of
+ * the CSV gives the order of events across stripes.
+ */
+public class LogSegmentReader {
+	public static final String CSV_HEADER =
+			"timestamp,event,user,local_manager,remote_manager,resource,request_type,lease_ms,deadline_ms,priority,denial_reason,release_type";
+
+	private final File file;
+
+	/**
+	 * @param file	Segment file
+	 */
+	public LogSegmentReader (File file) {
+		this.file = file;
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean csv = false;
+		ArrayList<File> files = new ArrayList<File>();
+
+		for (String arg : args) {
+			if (arg.equals("--csv")) {
+				csv = true;
+			}
+			else {
+				files.add(new File(arg));
+			}
+		}
+		if (files.isEmpty()) {
+			System.err.println("Usage: LogSegmentReader [--csv] segment-file ...");
+			System.exit(1);
+		}
+		if (csv) {
+			System.out.println(CSV_HEADER);
+		}
+		for (File f : files) {
+			new LogSegmentReader(f).print(System.out, csv);
+		}
+	}
+
+	/**
+	 * Print every event in segment, one per line.
+	 * 
+	 * @param out			Where to print events
+	 * @param csv			True for CSV, false for the text of each LogMsg
+	 * @throws IOException	If segment cannot be read or is not a log segment
+	 */
+	public void print(PrintStream out, boolean csv) throws IOException {
+		ByteBuffer segment;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		}
+		if (segment.remaining() < LogSegmentWriter.HEADER_SIZE
+				|| segment.getInt() != LogSegmentWriter.MAGIC
+				|| segment.getInt() != LogSegmentWriter.FORMAT_VERSION) {
+			throw new IOException ("Not a log segment: " + file);
+		}
+
+		ArrayList<String> actors = new ArrayList<String>();
+		ArrayList<String> names = new ArrayList<String>();
+		while (segment.hasRemaining()) {
+			byte tag = segment.get();
+			if (tag == LogSegmentWriter.END) {
+				break;
+			}
+			else if (tag == LogSegmentWriter.ACTOR || tag == LogSegmentWriter.RESOURCE) {
+				int id = segment.getInt();
+				byte[] bytes = new byte[segment.getShort()];
+				segment.get(bytes);
+				ArrayList<String> dictionary = (tag == LogSegmentWriter.ACTOR) ? actors : names;
+				while (dictionary.size() <= id) {
+					dictionary.add(null);
+				}
+				dictionary.set(id, new String(bytes, StandardCharsets.UTF_8));
+			}
+			else if (tag == LogSegmentWriter.EVENT) {
+				int offset = segment.position();
+				out.println(format(segment, offset, actors, names, csv));
+				segment.position(offset + LogRecordCodec.RECORD_SIZE);
+			}
+			else {
+				throw new IOException ("Corrupt log segment " + file + " at offset " + (segment.position() - 1));
+			}
+		}
+	}
+
+	private static String format(ByteBuffer segment, int offset, ArrayList<String> actors, ArrayList<String> names, boolean csv) {
+		EventType type = LogRecordCodec.typeOf(segment, offset);
+		String user = lookup(actors, LogRecordCodec.userIdOf(segment, offset));
+		String local = lookup(actors, LogRecordCodec.localIdOf(segment, offset));
+		String remote = lookup(actors, LogRecordCodec.remoteIdOf(segment, offset));
+		String name = lookup(names, LogRecordCodec.resourceIdOf(segment, offset));
+		AccessRequest request = LogRecordCodec.requestOf(segment, offset, name);
+		AccessRequestDenialReason reason = LogRecordCodec.denialReasonOf(segment, offset);
+		AccessRelease release = LogRecordCodec.releaseOf(segment, offset, name);
+
+		if (!csv) {
+			return LogMsg.describe(type, user, local, remote, name, request, reason, release);
+		}
+		StringBuilder line = new StringBuilder(Long.toString(LogRecordCodec.timestampOf(segment, offset)));
+		field(line, type);
+		field(line, user);
+		field(line, local);
+		field(line, remote);
+		field(line, name);
+		field(line, (request != null) ? request.getType() : null);
+		field(line, (request != null) ? request.getLeaseMs() : null);
+		field(line, (request != null) ? request.getDeadlineMs() : null);
+		field(line, (request != null) ? request.getPriority() : null);
+		field(line, reason);
+		field(line, (release != null) ? release.getType() : null);
+		return line.toString();
+	}
+
+	private static String lookup(ArrayList<String> dictionary, int id) {
+		return (id < 0) ? null : dictionary.get(id);
+	}
+
+	/**
+	 * Append CSV field, quoted if it contains a separator, quote or line break.
+	 */
+	private static void field(StringBuilder line, Object value) {
+		line.append(',');
+		if (value == null) {
+			return;
+		}
+		String text = value.toString();
+		if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+			line.append('"').append(text.replace("\"", "\"\"")).append('"');
+		}
+		else {
+			line.append(text);
+		}
+	}
+}
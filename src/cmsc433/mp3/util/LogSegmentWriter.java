@@ -0,0 +1,190 @@
+package cmsc433.mp3.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.messages.LogMsg;
+
+/**
+ * Sink streaming log events to append-only segment files, which are memory-mapped
+ * so that appending an event is a few stores into the page cache, with no system
+ * call and no string building.
+ *
+ * Each segment starts with an 8-byte header (MAGIC, FORMAT_VERSION) followed by
+ * entries, each a tag byte and a body:
+ *
+ *	ACTOR		id (int), length (short), UTF-8 bytes of actor's path, without address
+ *	RESOURCE	id (int), length (short), UTF-8 bytes of resource name
+ *	EVENT		LogRecordCodec record
+ *
+ * Actors and resource names are dictionary-encoded:  each one is defined by an
+ * ACTOR or RESOURCE entry the first time it appears in a segment, and events refer
+ * to it by id after that.  Every segment has dictionaries of its own, so it can be
+ * read without the segments before it.  When an entry does not fit in the current
+ * segment, the writer moves on to the next one, named prefix-00000.seg,
+ * prefix-00001.seg and so on.
+ *
+ * The unused end of a segment is zero, which reads as END.  The tag of an entry is
+ * written after its body, so a reader never sees half an entry:  if the JVM dies,
+ * every event appended before then is in the page cache and is written out by the
+ * operating system.  close and force also write it out synchronously.
+ *
+ * Instances are owned by a single actor and must never be shared between actors.
+ */
+public class LogSegmentWriter {
+	public static final int MAGIC = 0x4d50334c;		// "MP3L"
+	public static final int FORMAT_VERSION = 2;
+	public static final int HEADER_SIZE = 8;
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+	public static final byte END = 0;
+	public static final byte ACTOR = 1;
+	public static final byte RESOURCE = 2;
+	public static final byte EVENT = 3;
+
+	private final File directory;				// Where segments are written
+	private final String prefix;				// Start of segment file names
+	private final int segmentSize;				// Size of each segment in bytes
+	private final ByteBuffer record = ByteBuffer.allocate(LogRecordCodec.RECORD_SIZE);	// Event being appended
+	private int segmentCount = 0;				// Number of segments started
+	private MappedByteBuffer segment;			// Current segment, or null once closed
+	private LogRecordCodec codec;				// Dictionaries of current segment
+	private int actorsWritten;					// Actor ids defined in current segment
+	private int namesWritten;					// Resource ids defined in current segment
+
+	/**
+	 * @param directory		Directory to write segments to; created if needed
+	 * @param prefix		Start of segment file names
+	 * @param segmentSize	Size of each segment in bytes
+	 * @throws IOException	If first segment cannot be created
+	 */
+	public LogSegmentWriter (File directory, String prefix, int segmentSize) throws IOException {
+		if (segmentSize < HEADER_SIZE + 1 + LogRecordCodec.RECORD_SIZE) {
+			throw new IllegalArgumentException ("Segment size too small: " + segmentSize);
+		}
+		this.directory = directory;
+		this.prefix = prefix;
+		this.segmentSize = segmentSize;
+		directory.mkdirs();
+		startSegment();
+	}
+
+	/**
+	 * @param directory		Directory
+	 * @param prefix		Start of segment file names
+	 * @param index			Number of segment
+	 * @return				Segment file
+	 */
+	public static File segmentFile(File directory, String prefix, int index) {
+		return new File(directory, String.format("%s-%05d.seg", prefix, index));
+	}
+
+	/**
+	 * Append event, moving on to a new segment if it does not fit in this one.
+	 * 
+	 * @param msg			Event
+	 * @throws IOException	If a new segment cannot be created
+	 */
+	public void append(LogMsg msg) throws IOException {
+		if (segment == null) {
+			throw new IOException ("Log segment writer closed");
+		}
+		codec.encode(msg, record, 0);
+		if (entriesSize() > segment.remaining()) {
+			startSegment();
+			codec.encode(msg, record, 0);
+			if (entriesSize() > segment.remaining()) {
+				throw new IOException ("Event too large for log segment: " + msg);
+			}
+		}
+
+		IdDictionary<ActorRef> actors = codec.getActors();
+		IdDictionary<String> names = codec.getResourceNames();
+		for (; actorsWritten < actors.size(); actorsWritten++) {
+			putDefinition(ACTOR, actorsWritten, actors.get(actorsWritten).path().toStringWithoutAddress());
+		}
+		for (; namesWritten < names.size(); namesWritten++) {
+			putDefinition(RESOURCE, namesWritten, names.get(namesWritten));
+		}
+		int start = segment.position();
+		segment.position(start + 1);
+		record.rewind();
+		segment.put(record);
+		segment.put(start, EVENT);
+	}
+
+	/**
+	 * Write out current segment to storage.
+	 */
+	public void force() {
+		if (segment != null) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Write out current segment and stop appending.
+	 */
+	public void close() {
+		force();
+		segment = null;
+	}
+
+	/**
+	 * @return	Bytes needed for event in record, with definitions of any actors and
+	 * 			names it introduces
+	 */
+	private int entriesSize() {
+		IdDictionary<ActorRef> actors = codec.getActors();
+		IdDictionary<String> names = codec.getResourceNames();
+		int size = 1 + LogRecordCodec.RECORD_SIZE;
+
+		for (int id = actorsWritten; id < actors.size(); id++) {
+			size += 7 + utf8(actors.get(id).path().toStringWithoutAddress()).length;
+		}
+		for (int id = namesWritten; id < names.size(); id++) {
+			size += 7 + utf8(names.get(id)).length;
+		}
+		return size;
+	}
+
+	private void putDefinition(byte tag, int id, String value) {
+		byte[] bytes = utf8(value);
+		int start = segment.position();
+		segment.position(start + 1);
+		segment.putInt(id);
+		segment.putShort((short) bytes.length);
+		segment.put(bytes);
+		segment.put(start, tag);
+	}
+
+	private static byte[] utf8(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException ("Name too long for log segment: " + value);
+		}
+		return bytes;
+	}
+
+	private void startSegment() throws IOException {
+		if (segment != null) {
+			segment.force();
+		}
+		File file = segmentFile(directory, prefix, segmentCount++);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(0);
+			segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		segment.putInt(MAGIC);
+		segment.putInt(FORMAT_VERSION);
+		codec = new LogRecordCodec();
+		actorsWritten = 0;
+		namesWritten = 0;
+	}
+}
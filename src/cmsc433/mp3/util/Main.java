@@ -1,7 +1,9 @@
 package cmsc433.mp3.util;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -33,8 +35,21 @@ public class Main {
 		// Create actor system and instantiate a simulation manager.
 				
 		ActorSystem system = ActorSystem.create("Simulation");
-		ArrayList<NodeSpecification> nodes = setupTest1();
-		ActorRef simulationManager = SimulationManagerActor.makeSimulationManager(nodes, system);
+		
+		// With the option -stats, the wait times of granted requests are printed after
+		// the log.
+		ArrayList<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		boolean printStats = arguments.remove("-stats");
+		
+		// The first argument, if any, picks the setup to run (1 by default); its
+		// expected output is in setupN_output.txt.
+		int setup = (arguments.size() > 0) ? Integer.parseInt(arguments.get(0)) : 1;
+		ArrayList<NodeSpecification> nodes = setup(setup);
+		
+		// If a directory is given, the log is also written there as segments, which
+		// can be read back with LogSegmentReader.
+		File logDirectory = (arguments.size() > 1) ? new File(arguments.get(1)) : null;
+		ActorRef simulationManager = SimulationManagerActor.makeSimulationManager(nodes, system, logDirectory);
 		
 		// Start simulation manager and retrieve result
 		
@@ -65,6 +80,21 @@ public class Main {
 		// may still be being modified as ResourceManagers send messages to the LoggerActor.
 		for (Object o : msg.getLog())
 			System.out.println(o);
+		if (printStats)
+			System.out.println(msg.getWaitTimeStats());
+	}
+
+	private static ArrayList<NodeSpecification> setup (int number) throws FileNotFoundException {
+		switch (number) {
+		case 1: return setupTest1();
+		case 2: return setupTest2();
+		case 3: return setupTest3();
+		case 4: return setupTest4();
+		case 5: return setupTest5();
+		case 6: return setupTest6();
+		case 7: return setupTest7();
+		default: throw new IllegalArgumentException("No setup " + number);
+		}
 	}
 
 	private static ArrayList<NodeSpecification> setupTest1 () throws FileNotFoundException {
@@ -127,4 +157,95 @@ public class Main {
 		list.add(node2);
 		return list;
 	}
+	
+	private static ArrayList<NodeSpecification> setupTest4 () throws FileNotFoundException {
+		// Each user takes the resource on its own node, then waits for the other's
+		ArrayList<Resource> printers = Systems.makeResources("Printer", 1);
+		ArrayList<Resource> scanners = Systems.makeResources("Scanner", 1);
+		
+		ArrayList<UserScript> scriptList1 = new ArrayList<UserScript> ();
+		scriptList1.add(UserScript.fromFile("test4script1.txt"));
+		
+		ArrayList<UserScript> scriptList2 = new ArrayList<UserScript> ();
+		scriptList2.add(UserScript.fromFile("test4script2.txt"));
+		
+		NodeSpecification node1 = new NodeSpecification(printers, scriptList1);
+		NodeSpecification node2 = new NodeSpecification(scanners, scriptList2);
+		
+		ArrayList<NodeSpecification> list = new ArrayList<NodeSpecification> ();
+		list.add(node1);
+		list.add(node2);
+		return list;
+	}
+	
+	private static ArrayList<NodeSpecification> setupTest5 () throws FileNotFoundException {
+		// Three users on three nodes, each taking its own node's resource and then
+		// waiting for the next node's, so that the cycle runs through all three managers
+		ArrayList<Resource> printers = Systems.makeResources("Printer", 1);
+		ArrayList<Resource> scanners = Systems.makeResources("Scanner", 1);
+		ArrayList<Resource> plotters = Systems.makeResources("Plotter", 1);
+		
+		ArrayList<UserScript> scriptList1 = new ArrayList<UserScript> ();
+		scriptList1.add(UserScript.fromFile("test5script1.txt"));
+		
+		ArrayList<UserScript> scriptList2 = new ArrayList<UserScript> ();
+		scriptList2.add(UserScript.fromFile("test5script2.txt"));
+		
+		ArrayList<UserScript> scriptList3 = new ArrayList<UserScript> ();
+		scriptList3.add(UserScript.fromFile("test5script3.txt"));
+		
+		NodeSpecification node1 = new NodeSpecification(printers, scriptList1);
+		NodeSpecification node2 = new NodeSpecification(scanners, scriptList2);
+		NodeSpecification node3 = new NodeSpecification(plotters, scriptList3);
+		
+		ArrayList<NodeSpecification> list = new ArrayList<NodeSpecification> ();
+		list.add(node1);
+		list.add(node2);
+		list.add(node3);
+		return list;
+	}
+	
+	private static ArrayList<NodeSpecification> setupTest6 () throws FileNotFoundException {
+		// The deadlock of setup 4, with every report of a wait to a directory manager
+		// delayed so that the probes get there first.  Without a deadlock being detected,
+		// both requests would time out.
+		ArrayList<Resource> printers = Systems.makeResources("Printer", 1);
+		ArrayList<Resource> scanners = Systems.makeResources("Scanner", 1);
+		
+		ArrayList<UserScript> scriptList1 = new ArrayList<UserScript> ();
+		scriptList1.add(UserScript.fromFile("test6script1.txt"));
+		
+		ArrayList<UserScript> scriptList2 = new ArrayList<UserScript> ();
+		scriptList2.add(UserScript.fromFile("test6script2.txt"));
+		
+		NodeSpecification node1 = new NodeSpecification(printers, scriptList1, 1, LogFilter.ALL, 200);
+		NodeSpecification node2 = new NodeSpecification(scanners, scriptList2, 1, LogFilter.ALL, 200);
+		
+		ArrayList<NodeSpecification> list = new ArrayList<NodeSpecification> ();
+		list.add(node1);
+		list.add(node2);
+		return list;
+	}
+	
+	private static ArrayList<NodeSpecification> setupTest7 () throws FileNotFoundException {
+		// While one user holds the printer, a user on the same node and one on the other
+		// node each queue a request for it and cancel it.  Both requests are denied, and
+		// neither is granted when the printer is released.
+		ArrayList<Resource> printers = Systems.makeResources("Printer", 1);
+		
+		ArrayList<UserScript> scriptList1 = new ArrayList<UserScript> ();
+		scriptList1.add(UserScript.fromFile("test7script1.txt"));
+		scriptList1.add(UserScript.fromFile("test7script2.txt"));
+		
+		ArrayList<UserScript> scriptList2 = new ArrayList<UserScript> ();
+		scriptList2.add(UserScript.fromFile("test7script3.txt"));
+		
+		NodeSpecification node1 = new NodeSpecification(printers, scriptList1);
+		NodeSpecification node2 = new NodeSpecification(new ArrayList<Resource>(), scriptList2);
+		
+		ArrayList<NodeSpecification> list = new ArrayList<NodeSpecification> ();
+		list.add(node1);
+		list.add(node2);
+		return list;
+	}
 }
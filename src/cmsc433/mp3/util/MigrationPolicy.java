@@ -0,0 +1,51 @@
+package cmsc433.mp3.util;
+
+/**
+ * Policy deciding when a manager moves a busy resource to another manager.
+ *
+ * Requests for each local resource are counted over a window of time, together
+ * with the remote manager (if any) each request was forwarded by.  When a window
+ * ends, every resource that received at least the threshold number of requests
+ * during it is moved to the remote manager that forwarded most of them, provided
+ * that manager forwarded more of them than local users sent directly; moving it
+ * anywhere else would only add hops.
+ *
+ * Policies are immutable, so they may be sent between actors.
+ */
+public class MigrationPolicy {
+	
+	/**
+	 * Policy that never moves resources (the default).
+	 */
+	public static final MigrationPolicy DISABLED = new MigrationPolicy(0, 1000);
+	
+	private final int threshold;	// Requests per window that make resource busy, or 0 for never
+	private final long windowMs;	// Length of counting window
+	
+	/**
+	 * @param threshold	Requests per window at which a resource is moved, or 0 to
+	 * 					never move resources
+	 * @param windowMs	Length of window, in milliseconds
+	 */
+	public MigrationPolicy(int threshold, long windowMs) {
+		this.threshold = threshold;
+		this.windowMs = windowMs;
+	}
+	
+	public boolean isEnabled() {
+		return threshold > 0;
+	}
+	
+	public int getThreshold() {
+		return threshold;
+	}
+	
+	public long getWindowMs() {
+		return windowMs;
+	}
+	
+	@Override
+	public String toString() {
+		return isEnabled() ? "migrate at " + threshold + " requests per " + windowMs + " ms" : "no migration";
+	}
+}
@@ -0,0 +1,81 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.enums.RequestPriority;
+
+/**
+ * Request for access to several resources at once, which users can make.
+ * 
+ * The request is granted only when the user holds all of the resources, and the
+ * user holds none of them until then.  The user's local manager coordinates the
+ * request:  it reserves the resources one at a time, in the global order of their
+ * names, at the managers owning them, and commits the reservations once it has
+ * them all.  If a resource is busy, the reservations made so far are given up
+ * until it changes, so a user never holds some of the resources while waiting for
+ * the others.
+ * 
+ * Releases are made resource by resource, as usual.
+ * 
+ * The lease and priority class apply to each resource, as for an ordinary
+ * blocking request; the deadline limits how long the request as a whole waits.
+ */
+public class MultiAccessRequest {
+	
+	private final ArrayList<String> resourceNames;	// In reservation order, without repeats
+	private final AccessType type;
+	private final long leaseMs;		// Time limit on each grant, or 0 for none
+	private final long deadlineMs;	// Time limit on waiting for whole request, or 0 for none
+	private final RequestPriority priority;	// Class of each resource's grant
+	
+	public MultiAccessRequest (ArrayList<String> resourceNames, AccessType type) {
+		this(resourceNames, type, 0, 0, RequestPriority.NORMAL);
+	}
+	
+	/**
+	 * Create request with the given time limits and priority class.
+	 * 
+	 * @param resourceNames	Names of resources, in any order (repeats are ignored)
+	 * @param type			Type of access to all of them
+	 * @param leaseMs		Time limit on each grant in milliseconds, or 0 for none
+	 * @param deadlineMs	Time limit on waiting for whole request in milliseconds, or 0 for none
+	 * @param priority		Priority class of each resource's grant
+	 */
+	public MultiAccessRequest (ArrayList<String> resourceNames, AccessType type, long leaseMs, long deadlineMs, RequestPriority priority) {
+		this.resourceNames = new ArrayList<String>(new TreeSet<String>(resourceNames));
+		this.type = type;
+		this.leaseMs = leaseMs;
+		this.deadlineMs = deadlineMs;
+		this.priority = priority;
+	}
+	
+	/**
+	 * @return	Names of resources, in the order in which they are reserved
+	 */
+	public ArrayList<String> getResourceNames() {
+		return resourceNames;
+	}
+	
+	public AccessType getType() {
+		return type;
+	}
+
+	public long getLeaseMs() {
+		return leaseMs;
+	}
+
+	public long getDeadlineMs() {
+		return deadlineMs;
+	}
+
+	public RequestPriority getPriority() {
+		return priority;
+	}
+	
+	@Override
+	public String toString () {
+		return type.toString() + " request for all of " + resourceNames;
+	}
+}
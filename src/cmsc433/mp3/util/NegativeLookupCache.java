@@ -0,0 +1,63 @@
+package cmsc433.mp3.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of resource names recently found not to exist anywhere.
+ *
+ * Entries expire after a fixed time-to-live, and once the cache is full the
+ * oldest entry is evicted to make room, so memory use stays bounded no matter how
+ * many distinct unknown names are requested.
+ */
+public class NegativeLookupCache {
+	private final long ttlMs;
+	private final LinkedHashMap<String, Long> expiryTimes;	// Name -> time entry expires, oldest first
+
+	/**
+	 * @param capacity	Maximum number of names remembered
+	 * @param ttlMs		How long a name is remembered, in milliseconds
+	 */
+	public NegativeLookupCache(final int capacity, long ttlMs) {
+		this.ttlMs = ttlMs;
+		this.expiryTimes = new LinkedHashMap<String, Long>() {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Remember that a resource was not found.
+	 *
+	 * @param resourceName	Name of resource
+	 */
+	public void add(String resourceName) {
+		expiryTimes.remove(resourceName);	// Re-insert so entry is youngest again
+		expiryTimes.put(resourceName, System.currentTimeMillis() + ttlMs);
+	}
+
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				True if resource was recently found not to exist
+	 */
+	public boolean contains(String resourceName) {
+		Long expiry = expiryTimes.get(resourceName);
+		if (expiry == null) {
+			return false;
+		}
+		if (expiry <= System.currentTimeMillis()) {
+			expiryTimes.remove(resourceName);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Forget every entry, e.g. because the set of resources has changed.
+	 */
+	public void clear() {
+		expiryTimes.clear();
+	}
+}
@@ -10,16 +10,41 @@ import java.util.ArrayList;
  * resource manager that manages the resources and processes requests from users,
  * each of which will be running one script.
  * 
+ * The node's manager may optionally be split into several shards, each owning a
+ * disjoint slice of the node's resources, so that it can use several cores, and
+ * may be given a filter choosing which of its events are logged from the start.
+ * For testing deadlock detection, the manager may also be told to delay its
+ * reports of waits to directory managers.
+ * 
  * @author Rance Cleaveland
  *
  */
 public class NodeSpecification {
 	private final ArrayList<Resource> resources;
 	private final ArrayList<UserScript> userScripts;
+	private final int managerShards;	// Number of shards to split node's manager into
+	private final LogFilter logFilter;	// Events node's manager logs
+	private final long waitReportDelayMs;	// Delay of manager's wait reports, or 0 for none
 	
 	public NodeSpecification (ArrayList<Resource> resources, ArrayList<UserScript> userScripts) {
+		this(resources, userScripts, 1);
+	}
+	
+	public NodeSpecification (ArrayList<Resource> resources, ArrayList<UserScript> userScripts, int managerShards) {
+		this(resources, userScripts, managerShards, LogFilter.ALL);
+	}
+	
+	public NodeSpecification (ArrayList<Resource> resources, ArrayList<UserScript> userScripts, int managerShards, LogFilter logFilter) {
+		this(resources, userScripts, managerShards, logFilter, 0);
+	}
+	
+	public NodeSpecification (ArrayList<Resource> resources, ArrayList<UserScript> userScripts, int managerShards, LogFilter logFilter,
+			long waitReportDelayMs) {
 		this.resources = resources;
 		this.userScripts = userScripts;
+		this.managerShards = managerShards;
+		this.logFilter = logFilter;
+		this.waitReportDelayMs = waitReportDelayMs;
 	}
 
 	public ArrayList<Resource> getResources() {
@@ -29,4 +54,15 @@ public class NodeSpecification {
 	public ArrayList<UserScript> getUserScripts() {
 		return userScripts;
 	}
+	public int getManagerShards() {
+		return managerShards;
+	}
+
+	public LogFilter getLogFilter() {
+		return logFilter;
+	}
+
+	public long getWaitReportDelayMs() {
+		return waitReportDelayMs;
+	}
 }
@@ -0,0 +1,22 @@
+package cmsc433.mp3.util;
+
+/**
+ * Script step replacing the payload of a resource the user holds write access to.
+ */
+public class PayloadWrite {
+	private final String resourceName;
+	private final byte[] data;
+	
+	public PayloadWrite (String resourceName, byte[] data) {
+		this.resourceName = resourceName;
+		this.data = data;
+	}
+	
+	public String getResourceName () {
+		return resourceName;
+	}
+	
+	public byte[] getData () {
+		return data;
+	}
+}
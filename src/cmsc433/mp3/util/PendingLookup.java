@@ -0,0 +1,87 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * In-flight discovery of the manager of a remote resource.
+ *
+ * A resource manager keeps at most one of these per unknown resource name.  Every
+ * access request for the resource that arrives while the lookup is in flight is
+ * added to it, and all of them are forwarded (or denied) together when the lookup
+ * completes, so a burst of requests costs a single round of WhoHasResource queries.
+ * Reservations for multi-resource requests wait on the lookup in the same way.
+ */
+public class PendingLookup {
+	private final ArrayList<AccessRequestMsg> waitingRequests = new ArrayList<AccessRequestMsg>();
+	private final ArrayList<Reservation> waitingReservations = new ArrayList<Reservation>();	// For multi-resource requests
+	private final Set<ActorRef> askedManagers = new HashSet<ActorRef>();	// Everybody asked so far
+	private final Set<ActorRef> awaitedManagers = new HashSet<ActorRef>();	// Asked, but not yet answered
+
+	/**
+	 * @param message	Request to resolve when lookup completes
+	 */
+	public void addWaitingRequest(AccessRequestMsg message) {
+		waitingRequests.add(message);
+	}
+
+	/**
+	 * @return	Requests waiting for lookup, in arrival order
+	 */
+	public ArrayList<AccessRequestMsg> getWaitingRequests() {
+		return waitingRequests;
+	}
+
+	/**
+	 * @param reservation	Reservation to resolve when lookup completes
+	 */
+	public void addWaitingReservation(Reservation reservation) {
+		waitingReservations.add(reservation);
+	}
+
+	/**
+	 * @return	Reservations waiting for lookup, in arrival order
+	 */
+	public ArrayList<Reservation> getWaitingReservations() {
+		return waitingReservations;
+	}
+
+	/**
+	 * Record that a manager has been asked about the resource.
+	 *
+	 * @param manager	Manager asked
+	 */
+	public void asked(ActorRef manager) {
+		askedManagers.add(manager);
+		awaitedManagers.add(manager);
+	}
+
+	/**
+	 * @param manager	Manager
+	 * @return			True if manager has been asked in this lookup
+	 */
+	public boolean hasAsked(ActorRef manager) {
+		return askedManagers.contains(manager);
+	}
+
+	/**
+	 * Record a negative answer from a manager.
+	 *
+	 * @param manager	Manager that does not have the resource
+	 * @return			True if the answer was awaited (stale or duplicate answers are ignored)
+	 */
+	public boolean answeredNo(ActorRef manager) {
+		return awaitedManagers.remove(manager);
+	}
+
+	/**
+	 * @return	True if every manager asked has answered
+	 */
+	public boolean allAnswered() {
+		return awaitedManagers.isEmpty();
+	}
+}
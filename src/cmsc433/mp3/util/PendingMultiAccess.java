@@ -0,0 +1,126 @@
+package cmsc433.mp3.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+
+/**
+ * Multi-resource request being coordinated by a manager.  The coordinator
+ * reserves the resources one at a time in the global order of their names, then
+ * commits them all; while it waits for a busy resource it holds no reservations.
+ *
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class PendingMultiAccess {
+	private final long id;							// Coordinator's id for request
+	private final MultiAccessRequest request;
+	private final ActorRef user;					// User making request
+	private final long startNanos;					// When request arrived (System.nanoTime)
+	private int next = 0;							// Index of next resource to reserve
+	private final Map<String, ActorRef> owners = new LinkedHashMap<String, ActorRef>();	// Managers holding reservations, by resource
+	private String waitingFor;						// Busy resource waited for, or null if not waiting
+	private int commitsOutstanding = 0;				// Commits not yet acknowledged, once committing
+	private TimerWheel.Timeout<Object> deadline;	// Expiry of whole request, or null if unbounded
+
+	public PendingMultiAccess (long id, MultiAccessRequest request, ActorRef user) {
+		this.id = id;
+		this.request = request;
+		this.user = user;
+		this.startNanos = System.nanoTime();
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public MultiAccessRequest getRequest() {
+		return request;
+	}
+
+	public ActorRef getUser() {
+		return user;
+	}
+
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * @return	Name of next resource to reserve, or null once all are reserved
+	 */
+	public String getNextResourceName() {
+		return (next < request.getResourceNames().size()) ? request.getResourceNames().get(next) : null;
+	}
+
+	/**
+	 * Record a reservation made, and move on to the next resource.
+	 *
+	 * @param resourceName	Name of resource reserved
+	 * @param owner			Manager of resource
+	 */
+	public void reserved(String resourceName, ActorRef owner) {
+		owners.put(resourceName, owner);
+		next++;
+	}
+
+	/**
+	 * Forget all reservations, to start again from the first resource.
+	 */
+	public void restart() {
+		owners.clear();
+		next = 0;
+	}
+
+	/**
+	 * @return	Managers holding reservations (or, once committed, grants), by resource
+	 */
+	public Map<String, ActorRef> getOwners() {
+		return owners;
+	}
+
+	/**
+	 * @return	Name of busy resource whose change the coordinator waits for, or null
+	 * 			if it is not waiting
+	 */
+	public String getWaitingFor() {
+		return waitingFor;
+	}
+
+	public void setWaitingFor(String waitingFor) {
+		this.waitingFor = waitingFor;
+	}
+
+	/**
+	 * @return	True once every resource has been reserved and the commits sent
+	 */
+	public boolean isCommitting() {
+		return commitsOutstanding > 0;
+	}
+
+	public void setCommitsOutstanding(int commitsOutstanding) {
+		this.commitsOutstanding = commitsOutstanding;
+	}
+
+	/**
+	 * Record acknowledgment of a commit.
+	 *
+	 * @param resourceName	Name of resource committed
+	 * @param owner			Manager that committed it, which may differ from the one
+	 * 						reserving it if the resource has moved in between
+	 * @return				True if every commit has now been acknowledged
+	 */
+	public boolean committed(String resourceName, ActorRef owner) {
+		owners.put(resourceName, owner);
+		commitsOutstanding--;
+		return commitsOutstanding == 0;
+	}
+
+	public TimerWheel.Timeout<Object> getDeadline() {
+		return deadline;
+	}
+
+	public void setDeadline(TimerWheel.Timeout<Object> deadline) {
+		this.deadline = deadline;
+	}
+}
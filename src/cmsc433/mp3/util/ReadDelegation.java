@@ -0,0 +1,46 @@
+package cmsc433.mp3.util;
+
+import java.nio.ByteBuffer;
+
+import akka.actor.ActorRef;
+
+/**
+ * Read delegation held by a manager for a remote resource.  While the manager
+ * holds it, nobody can write the resource, so the manager grants its local users'
+ * read requests for the resource (and takes their releases) itself, without
+ * involving the resource's manager.  When the resource's manager recalls the
+ * delegation, the reads granted under it are handed back to that manager.
+ *
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class ReadDelegation {
+	private final String resourceName;
+	private final ActorRef owner;						// Manager of resource
+	private final ByteBuffer payload;					// Read-only view of payload, or null
+	private final ReadHolders readers = new ReadHolders();	// Users granted read access under delegation
+	
+	public ReadDelegation (String resourceName, ActorRef owner, ByteBuffer payload) {
+		this.resourceName = resourceName;
+		this.owner = owner;
+		this.payload = payload;
+	}
+	
+	public String getResourceName() {
+		return resourceName;
+	}
+	
+	public ActorRef getOwner() {
+		return owner;
+	}
+	
+	/**
+	 * @return	Fresh read-only view of resource's payload, or null if it has none
+	 */
+	public ByteBuffer getPayload() {
+		return (payload != null) ? payload.duplicate() : null;
+	}
+	
+	public ReadHolders getReaders() {
+		return readers;
+	}
+}
@@ -0,0 +1,89 @@
+package cmsc433.mp3.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import akka.actor.ActorRef;
+
+/**
+ * Set of users holding concurrent-read access to a resource, with a hold count
+ * per user.
+ *
+ * A user that is granted read access several times holds the resource once per
+ * grant, and keeps holding it until it has released it as many times.  All
+ * operations take constant time, independent of the number of readers.
+ */
+public class ReadHolders {
+	private final Map<ActorRef, Integer> holdCounts = new HashMap<ActorRef, Integer>();
+
+	/**
+	 * Record one more read hold for user.
+	 *
+	 * @param user	User being granted read access
+	 */
+	public void acquire(ActorRef user) {
+		Integer count = holdCounts.get(user);
+		holdCounts.put(user, (count == null) ? 1 : count + 1);
+	}
+
+	/**
+	 * Drop one read hold for user.
+	 *
+	 * @param user	User releasing read access
+	 * @return		True if user held read access, false if release should be ignored
+	 */
+	public boolean release(ActorRef user) {
+		Integer count = holdCounts.get(user);
+		if (count == null) {
+			return false;
+		}
+		if (count == 1) {
+			holdCounts.remove(user);
+		}
+		else {
+			holdCounts.put(user, count - 1);
+		}
+		return true;
+	}
+
+	/**
+	 * @param user	User
+	 * @return		True if user holds read access at least once
+	 */
+	public boolean isHeldBy(ActorRef user) {
+		return holdCounts.containsKey(user);
+	}
+
+	/**
+	 * @param user	User
+	 * @return		Number of read holds user has (0 if it holds none)
+	 */
+	public int getHoldCount(ActorRef user) {
+		Integer count = holdCounts.get(user);
+		return (count == null) ? 0 : count;
+	}
+
+	/**
+	 * @param user	User
+	 * @return		True if some user other than the given one holds read access
+	 */
+	public boolean isHeldByOtherThan(ActorRef user) {
+		int holders = holdCounts.size();
+		return holders > 1 || (holders == 1 && !holdCounts.containsKey(user));
+	}
+
+	/**
+	 * @return	True if nobody holds read access
+	 */
+	public boolean isEmpty() {
+		return holdCounts.isEmpty();
+	}
+
+	/**
+	 * @return	Users currently holding read access
+	 */
+	public Set<ActorRef> getHolders() {
+		return holdCounts.keySet();
+	}
+}
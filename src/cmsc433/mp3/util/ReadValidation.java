@@ -0,0 +1,23 @@
+package cmsc433.mp3.util;
+
+/**
+ * Script step checking whether an optimistic read of a resource is still valid,
+ * i.e. whether the resource has been written since the user's last optimistic-read
+ * grant for it.
+ */
+public class ReadValidation {
+	private final String resourceName;
+	
+	public ReadValidation (String resourceName) {
+		this.resourceName = resourceName;
+	}
+	
+	public String getResourceName () {
+		return resourceName;
+	}
+	
+	@Override 
+	public String toString () {
+		return "Validate read of " + resourceName;
+	}
+}
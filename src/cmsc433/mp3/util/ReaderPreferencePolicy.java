@@ -0,0 +1,38 @@
+package cmsc433.mp3.util;
+
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Scheduling policy letting readers overtake waiting writers.  While readers hold
+ * a resource, every read request is granted, whether it is queued behind a writer
+ * or has just arrived; writers are granted in arrival order once the readers are
+ * gone.  Maximizes read throughput, but writers can starve under a steady stream
+ * of readers.
+ */
+public class ReaderPreferencePolicy implements SchedulingPolicy {
+	
+	@Override
+	public boolean admitNow(ResourceState state, AccessRequestMsg message) {
+		return (state.getWaitQueue().isEmpty() || ResourceState.isRead(message)) && state.canGrant(message);
+	}
+	
+	@Override
+	public WaitingRequest selectNext(ResourceState state) {
+		WaitingRequest head = state.getWaitQueue().peek();
+		
+		if (head == null || state.canGrant(head.getMessage())) {
+			return head;
+		}
+		for (WaitingRequest waiting : state.getWaitQueue()) {
+			if (ResourceState.isRead(waiting.getMessage()) && state.canGrant(waiting.getMessage())) {
+				return waiting;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public String toString() {
+		return "reader preference";
+	}
+}
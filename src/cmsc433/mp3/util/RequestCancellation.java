@@ -0,0 +1,24 @@
+package cmsc433.mp3.util;
+
+/**
+ * Script step withdrawing a blocking request made earlier in the same step.  It
+ * is sent after the step's sleep, if any, so that the request can wait that long
+ * first.  The request is then denied with reason REQUEST_CANCELLED if it is still
+ * waiting; if it has already been granted, the user holds the access as usual.
+ */
+public class RequestCancellation {
+	private final AccessRequest request;
+	
+	public RequestCancellation (AccessRequest request) {
+		this.request = request;
+	}
+	
+	public AccessRequest getRequest () {
+		return request;
+	}
+	
+	@Override 
+	public String toString () {
+		return "Cancel " + request.toString();
+	}
+}
@@ -0,0 +1,91 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+
+/**
+ * Counts of requests for each local resource during the current window of a
+ * MigrationPolicy, broken down by the remote manager that forwarded them (null
+ * standing for requests sent directly by local users).
+ *
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class RequestRates {
+	private final Map<String, Map<ActorRef, Integer>> counts = new HashMap<String, Map<ActorRef, Integer>>();
+	private long windowStartMs;
+	
+	public RequestRates (long nowMs) {
+		this.windowStartMs = nowMs;
+	}
+	
+	/**
+	 * @param resourceName	Resource requested
+	 * @param source		Remote manager that forwarded request, or null if it
+	 * 						came from a local user
+	 */
+	public void record(String resourceName, ActorRef source) {
+		Map<ActorRef, Integer> bySource = counts.get(resourceName);
+		if (bySource == null) {
+			bySource = new HashMap<ActorRef, Integer>();
+			counts.put(resourceName, bySource);
+		}
+		Integer count = bySource.get(source);
+		bySource.put(source, (count == null) ? 1 : count + 1);
+	}
+	
+	public long getWindowStartMs() {
+		return windowStartMs;
+	}
+	
+	/**
+	 * Decide where a resource should move at the end of the window.
+	 * 
+	 * @param resourceName	Resource
+	 * @param threshold		Requests at which resource counts as busy
+	 * @return				Remote manager that forwarded most requests for a busy
+	 * 						resource, if it forwarded more than local users sent;
+	 * 						otherwise null
+	 */
+	public ActorRef migrationTarget(String resourceName, int threshold) {
+		Map<ActorRef, Integer> bySource = counts.get(resourceName);
+		if (bySource == null) {
+			return null;
+		}
+		int total = 0;
+		ActorRef busiest = null;
+		int busiestCount = 0;
+		for (Map.Entry<ActorRef, Integer> entry : bySource.entrySet()) {
+			total += entry.getValue();
+			if (entry.getKey() != null && entry.getValue() > busiestCount) {
+				busiest = entry.getKey();
+				busiestCount = entry.getValue();
+			}
+		}
+		Integer local = bySource.get(null);
+		if (total < threshold || busiestCount <= ((local == null) ? 0 : local)) {
+			return null;
+		}
+		return busiest;
+	}
+	
+	/**
+	 * @return	Resources requested during the window (a copy)
+	 */
+	public List<String> getResourceNames() {
+		return new ArrayList<String>(counts.keySet());
+	}
+	
+	/**
+	 * Start a new window.
+	 * 
+	 * @param nowMs	Current time, in milliseconds
+	 */
+	public void reset(long nowMs) {
+		counts.clear();
+		windowStartMs = nowMs;
+	}
+}
@@ -0,0 +1,80 @@
+package cmsc433.mp3.util;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessRequestType;
+import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.enums.RequestPriority;
+
+/**
+ * One resource of a multi-resource request, as reserved by the manager
+ * coordinating the request at the manager of the resource.
+ *
+ * A reservation is a hold of the resource by the user that has not been granted
+ * yet:  nobody else can be granted the resource while it is reserved, but the user
+ * does not know it has it until the coordinator commits every part of the
+ * request.  If any part cannot be reserved, the coordinator aborts the parts it
+ * has reserved, so that the user holds none of them while it waits.
+ */
+public class Reservation {
+	private final ActorRef coordinator;		// Manager coordinating the request
+	private final long requestId;			// Coordinator's id for the request
+	private final ActorRef user;			// User making the request
+	private final String resourceName;
+	private final AccessType type;
+	private final long leaseMs;				// Time limit on grant, or 0 for none
+	private final RequestPriority priority;
+
+	public Reservation (ActorRef coordinator, long requestId, ActorRef user, String resourceName, AccessType type,
+			long leaseMs, RequestPriority priority) {
+		this.coordinator = coordinator;
+		this.requestId = requestId;
+		this.user = user;
+		this.resourceName = resourceName;
+		this.type = type;
+		this.leaseMs = leaseMs;
+		this.priority = priority;
+	}
+
+	public ActorRef getCoordinator() {
+		return coordinator;
+	}
+
+	public long getRequestId() {
+		return requestId;
+	}
+
+	public ActorRef getUser() {
+		return user;
+	}
+
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	public AccessType getType() {
+		return type;
+	}
+
+	public long getLeaseMs() {
+		return leaseMs;
+	}
+
+	public RequestPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return	Blocking request for the resource alone, with the same lease and
+	 * 			priority, as it is logged and checked against the scheduling policy
+	 */
+	public AccessRequest toAccessRequest() {
+		AccessRequestType requestType = (type == AccessType.EXCLUSIVE_WRITE)
+				? AccessRequestType.EXCLUSIVE_WRITE_BLOCKING : AccessRequestType.CONCURRENT_READ_BLOCKING;
+		return new AccessRequest(resourceName, requestType, leaseMs, 0, priority);
+	}
+
+	@Override
+	public String toString () {
+		return type.toString() + " reservation of " + resourceName + " for " + user;
+	}
+}
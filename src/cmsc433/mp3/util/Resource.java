@@ -11,13 +11,38 @@ import cmsc433.mp3.enums.ResourceStatus;
 public class Resource {
 	public final String name;	// Resource name
 	private volatile ResourceStatus status = ResourceStatus.ENABLED;
+	private final SchedulingPolicy schedulingPolicy;	// Initial policy for competing requests
+	private final byte[] initialPayload;				// Payload resource starts out with, or null
 	
 	/**
 	 * Creates new resource with given name, and default status of ENABLED.
 	 * @param name	Name of resource
 	 */
 	public Resource (String name) {
+		this(name, SchedulingPolicy.FIFO);
+	}
+	
+	/**
+	 * Creates new resource with given name and scheduling policy, and default status
+	 * of ENABLED.
+	 * @param name				Name of resource
+	 * @param schedulingPolicy	Policy its manager starts out using
+	 */
+	public Resource (String name, SchedulingPolicy schedulingPolicy) {
+		this(name, schedulingPolicy, null);
+	}
+	
+	/**
+	 * Creates new resource with given name, scheduling policy and initial payload,
+	 * and default status of ENABLED.
+	 * @param name				Name of resource
+	 * @param schedulingPolicy	Policy its manager starts out using
+	 * @param initialPayload	Payload its manager starts out storing (copied), or null
+	 */
+	public Resource (String name, SchedulingPolicy schedulingPolicy, byte[] initialPayload) {
 		this.name = name;
+		this.schedulingPolicy = schedulingPolicy;
+		this.initialPayload = (initialPayload != null) ? initialPayload.clone() : null;
 	}
 	
 	/**
@@ -28,6 +53,20 @@ public class Resource {
 	}
 
 
+	/**
+	 * @return	Scheduling policy resource's manager starts out using
+	 */
+	public SchedulingPolicy getSchedulingPolicy() {
+		return schedulingPolicy;
+	}
+
+	/**
+	 * @return	Copy of payload resource's manager starts out storing, or null if none
+	 */
+	public byte[] getInitialPayload() {
+		return (initialPayload != null) ? initialPayload.clone() : null;
+	}
+
 	/**
 	 * @return Status of resource
 	 */
@@ -0,0 +1,77 @@
+package cmsc433.mp3.util;
+
+import java.util.Collection;
+
+/**
+ * Compact, immutable summary of a set of resource names.
+ *
+ * A Bloom filter answers "might this name be in the set?" with no false negatives
+ * and a small rate of false positives (about 1% with the sizing used here).  Resource
+ * managers publish a filter of their local resources to the other managers, so
+ * that discovery of a remote resource only has to query the managers whose filter
+ * matches.
+ *
+ * Filters are never modified after construction, so they may be sent between actors.
+ */
+public class ResourceBloomFilter {
+	private static final int BITS_PER_NAME = 10;
+	private static final int HASH_COUNT = 7;
+
+	private final long[] bits;
+	private final int bitCount;
+
+	private ResourceBloomFilter(long[] bits) {
+		this.bits = bits;
+		this.bitCount = bits.length * 64;
+	}
+
+	/**
+	 * Build filter summarizing a set of resource names.
+	 *
+	 * @param names	Resource names to include
+	 * @return		Filter containing names
+	 */
+	public static ResourceBloomFilter of(Collection<String> names) {
+		int words = Math.max(1, (names.size() * BITS_PER_NAME + 63) / 64);
+		long[] bits = new long[words];
+		int bitCount = words * 64;
+
+		for (String name : names) {
+			int h1 = name.hashCode();
+			int h2 = mix(h1);
+			for (int i = 0; i < HASH_COUNT; i++) {
+				int bit = Math.floorMod(h1 + i * h2, bitCount);
+				bits[bit >>> 6] |= 1L << bit;
+			}
+		}
+		return new ResourceBloomFilter(bits);
+	}
+
+	/**
+	 * @param name	Resource name
+	 * @return		False if name is definitely not in the set, true if it may be
+	 */
+	public boolean mightContain(String name) {
+		int h1 = name.hashCode();
+		int h2 = mix(h1);
+		for (int i = 0; i < HASH_COUNT; i++) {
+			int bit = Math.floorMod(h1 + i * h2, bitCount);
+			if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Second, independent hash derived from the first (murmur3 finalizer).
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h | 1;
+	}
+}
@@ -0,0 +1,147 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Snapshot of everything a manager knows about one of its resources, taken when
+ * the resource migrates to another manager:  the resource and its scheduling
+ * policy, its holders and their leases, its write version and payload, and the
+ * requests waiting for it.  Time limits (leases and deadlines) are recorded as the
+ * time they had left when the snapshot was taken.
+ *
+ * Snapshots are immutable, so they may be sent between actors.
+ */
+public class ResourceHandoff {
+
+	/**
+	 * Lease on a grant, with the time it had left.
+	 */
+	public static class HeldLease {
+		private final ActorRef holder;
+		private final AccessType type;
+		private final long remainingMs;
+
+		public HeldLease (ActorRef holder, AccessType type, long remainingMs) {
+			this.holder = holder;
+			this.type = type;
+			this.remainingMs = remainingMs;
+		}
+
+		public ActorRef getHolder() {
+			return holder;
+		}
+
+		public AccessType getType() {
+			return type;
+		}
+
+		public long getRemainingMs() {
+			return remainingMs;
+		}
+	}
+
+	/**
+	 * Waiting request, with the time its deadline had left (0 if it has none).
+	 */
+	public static class QueuedRequest {
+		private final AccessRequestMsg message;
+		private final long deadlineMs;
+
+		public QueuedRequest (AccessRequestMsg message, long deadlineMs) {
+			this.message = message;
+			this.deadlineMs = deadlineMs;
+		}
+
+		public AccessRequestMsg getMessage() {
+			return message;
+		}
+
+		public long getDeadlineMs() {
+			return deadlineMs;
+		}
+	}
+
+	private final Resource resource;
+	private final SchedulingPolicy policy;
+	private final ActorRef writer;						// User with exclusive-write access, or null
+	private final Map<ActorRef, Integer> readHolds;		// Read holds per user
+	private final List<HeldLease> leases;
+	private final long version;
+	private final byte[] payload;						// Published payload, or null
+	private final byte[] stagedPayload;					// Payload staged by writer, or null
+	private final QueuedRequest pendingUpgrade;			// Upgrade waiting, or null
+	private final List<QueuedRequest> queued;			// Waiting requests, highest priority first
+
+	public ResourceHandoff (Resource resource, SchedulingPolicy policy, ActorRef writer, Map<ActorRef, Integer> readHolds,
+			List<HeldLease> leases, long version, byte[] payload, byte[] stagedPayload,
+			QueuedRequest pendingUpgrade, List<QueuedRequest> queued) {
+		this.resource = resource;
+		this.policy = policy;
+		this.writer = writer;
+		this.readHolds = Collections.unmodifiableMap(new HashMap<ActorRef, Integer>(readHolds));
+		this.leases = Collections.unmodifiableList(new ArrayList<HeldLease>(leases));
+		this.version = version;
+		this.payload = payload;
+		this.stagedPayload = stagedPayload;
+		this.pendingUpgrade = pendingUpgrade;
+		this.queued = Collections.unmodifiableList(new ArrayList<QueuedRequest>(queued));
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+	public String getResourceName() {
+		return resource.getName();
+	}
+
+	public SchedulingPolicy getPolicy() {
+		return policy;
+	}
+
+	public ActorRef getWriter() {
+		return writer;
+	}
+
+	public Map<ActorRef, Integer> getReadHolds() {
+		return readHolds;
+	}
+
+	public List<HeldLease> getLeases() {
+		return leases;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return	Published payload (not to be modified), or null
+	 */
+	public byte[] getPayload() {
+		return payload;
+	}
+
+	/**
+	 * @return	Payload staged by writer (not to be modified), or null
+	 */
+	public byte[] getStagedPayload() {
+		return stagedPayload;
+	}
+
+	public QueuedRequest getPendingUpgrade() {
+		return pendingUpgrade;
+	}
+
+	public List<QueuedRequest> getQueued() {
+		return queued;
+	}
+}
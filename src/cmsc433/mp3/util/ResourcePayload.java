@@ -0,0 +1,105 @@
+package cmsc433.mp3.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Byte payload stored with a local resource, kept off-heap in direct buffers.
+ *
+ * The payload is copy-on-write.  The published buffer is never modified once it
+ * has been published, so readers are handed zero-copy read-only views of it, and
+ * those views stay valid (and unchanged) for as long as the readers keep them.  A
+ * writer stages its replacement in a new buffer, which becomes the published one
+ * only when the writer lets go of the resource; until then readers keep seeing
+ * the old contents.
+ *
+ * Instances are owned by a single manager and must never be shared between actors;
+ * the read-only views they hand out may be.
+ */
+public class ResourcePayload {
+	private ByteBuffer published;	// Current contents, or null if there are none
+	private ByteBuffer staged;		// Contents written by current writer, not yet published
+
+	/**
+	 * @param initial	Initial contents, or null for none
+	 */
+	public ResourcePayload (byte[] initial) {
+		if (initial != null) {
+			published = copyOf(initial);
+		}
+	}
+
+	/**
+	 * @return	Read-only view of published contents, or null if there are none
+	 */
+	public ByteBuffer view() {
+		return (published != null) ? published.asReadOnlyBuffer() : null;
+	}
+
+	/**
+	 * @return	Copy of published contents, or null if there are none
+	 */
+	public byte[] getPublished() {
+		return copyOf(published);
+	}
+
+	/**
+	 * @return	Copy of staged contents, or null if there are none
+	 */
+	public byte[] getStaged() {
+		return copyOf(staged);
+	}
+
+	/**
+	 * Replace both published and staged contents, as when taking over a resource
+	 * from another manager.
+	 * 
+	 * @param published	New published contents, or null for none
+	 * @param staged	New staged contents, or null for none
+	 */
+	public void restore(byte[] published, byte[] staged) {
+		this.published = (published != null) ? copyOf(published) : null;
+		this.staged = (staged != null) ? copyOf(staged) : null;
+	}
+
+	/**
+	 * Stage new contents, replacing anything staged before.
+	 * 
+	 * @param data	New contents
+	 */
+	public void stage(byte[] data) {
+		staged = copyOf(data);
+	}
+
+	/**
+	 * Make staged contents (if any) the published contents.
+	 */
+	public void publish() {
+		if (staged != null) {
+			published = staged;
+			staged = null;
+		}
+	}
+
+	/**
+	 * Throw away staged contents (if any).
+	 */
+	public void discard() {
+		staged = null;
+	}
+
+	private static byte[] copyOf(ByteBuffer buffer) {
+		if (buffer == null) {
+			return null;
+		}
+		byte[] data = new byte[buffer.remaining()];
+		buffer.duplicate().get(data);
+		return data;
+	}
+
+	private static ByteBuffer copyOf(byte[] data) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+		return buffer;
+	}
+}
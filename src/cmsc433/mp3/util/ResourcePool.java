@@ -0,0 +1,104 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+
+/**
+ * Family of interchangeable local resources, such as Printer_0, Printer_1, ...,
+ * that can be requested as a whole by the pattern Printer_*.
+ * 
+ * A pool request is granted on whichever member instance can take it first.  Pool
+ * requests that cannot be granted at once wait in the pool's own queue, and are
+ * considered whenever a member is released, after the requests queued for that
+ * member by name.
+ * 
+ * In a sharded manager each shard has its own pool of the members it owns.  A
+ * shard tells its siblings when it gains or loses its members, and when requests
+ * start and stop waiting in its pool; a shard with an idle member asks a sibling
+ * with waiting requests to hand one over, so that no request waits in one shard
+ * while a member sits idle in another.  A shard that has lost its members keeps its
+ * pool, as a queue only, while siblings still hold members.
+ * 
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class ResourcePool {
+	private final String pattern;										// e.g. Printer_*
+	private final ArrayList<ResourceState> members = new ArrayList<ResourceState>();
+	private final WaitQueue waitQueue = new WaitQueue();				// Blocked pool requests
+	private boolean announcedMembers = false;							// Whether siblings were last told of members here
+	private boolean announcedWaiting = false;							// Whether siblings were last told of requests waiting here
+	
+	public ResourcePool (String pattern) {
+		this.pattern = pattern;
+	}
+	
+	/**
+	 * @param resourceName	Name of resource
+	 * @return				Pattern naming the family resource belongs to, or null if
+	 * 						name is not of the form base_number
+	 */
+	public static String patternOf (String resourceName) {
+		int i = resourceName.lastIndexOf('_');
+		if (i <= 0 || i == resourceName.length() - 1) {
+			return null;
+		}
+		for (int j = i + 1; j < resourceName.length(); j++) {
+			if (!Character.isDigit(resourceName.charAt(j))) {
+				return null;
+			}
+		}
+		return resourceName.substring(0, i) + "_*";
+	}
+	
+	/**
+	 * @param resourceName	Name used in a request
+	 * @return				True if name is a pool pattern rather than a resource
+	 */
+	public static boolean isPattern (String resourceName) {
+		return resourceName.endsWith("_*");
+	}
+	
+	public String getPattern() {
+		return pattern;
+	}
+	
+	/**
+	 * @return	Member resources, in the order they were added
+	 */
+	public ArrayList<ResourceState> getMembers() {
+		return members;
+	}
+	
+	public void addMember(ResourceState state) {
+		members.add(state);
+	}
+	
+	public void removeMember(ResourceState state) {
+		members.remove(state);
+	}
+	
+	/**
+	 * @return	Pool requests waiting for a member
+	 */
+	public WaitQueue getWaitQueue() {
+		return waitQueue;
+	}
+	
+	/**
+	 * @return	True if sibling shards were last told that this shard holds members
+	 */
+	public boolean isAnnouncedMembers() {
+		return announcedMembers;
+	}
+	
+	/**
+	 * @return	True if sibling shards were last told that requests wait in this pool
+	 */
+	public boolean isAnnouncedWaiting() {
+		return announcedWaiting;
+	}
+	
+	public void setAnnounced(boolean announcedMembers, boolean announcedWaiting) {
+		this.announcedMembers = announcedMembers;
+		this.announcedWaiting = announcedWaiting;
+	}
+}
@@ -0,0 +1,279 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.AccessRequestType;
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Lock-table entry for a single local resource.
+ *
+ * A resource manager interns the name of each of its local resources to a dense
+ * integer id when the resource is added, and keeps one of these records per id.
+ * The record holds everything the manager needs to decide an access request:  the
+ * resource itself, the user holding exclusive-write access (if any), the users
+ * holding concurrent-read access, the leases on their grants, the queue of
+ * blocking requests waiting for access, and the scheduling policy deciding which
+ * of them is granted next.  A reader waiting to upgrade to write access is kept
+ * apart from the queue:  there is at most one, and it goes before everything
+ * queued.
+ *
+ * The record also keeps a write version, which works like the sequence number of
+ * a seqlock:  it is incremented when a writer acquires the resource and again when
+ * it lets go, so it is odd exactly while a writer holds the resource.  An
+ * optimistic reader is handed the (even) version without becoming a holder, and
+ * its read is valid as long as the version has not changed.
+ *
+ * The record also holds the resource's payload, which writers replace and
+ * readers are handed views of, and the remote managers holding read delegations
+ * for the resource.  Each delegate counts as one more reader until it has returned
+ * its delegation.  Reservations for multi-resource requests are held like any
+ * other access; those refused because the resource was busy are remembered, so
+ * that their coordinators can be told to try again once it changes.
+ *
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class ResourceState {
+	private final int id;									// Dense id assigned by manager
+	private final Resource resource;						// Resource being managed
+	private ActorRef writer;								// User with exclusive-write access, if any
+	private final ReadHolders readers = new ReadHolders();	// Users with concurrent-read access
+	private final List<Lease> leases = new ArrayList<Lease>();					// Leases on current grants
+	private final WaitQueue waitQueue = new WaitQueue();		// Blocked requests
+	private SchedulingPolicy policy;							// Discipline for granting requests
+	private int bypassCount = 0;								// Readers granted ahead of waiting writer
+	private ResourcePool pool;									// Family resource belongs to, if any
+	private WaitingRequest pendingUpgrade;						// Reader waiting to upgrade, if any
+	private long version = 0;									// Write version:  odd while written
+	private final ResourcePayload payload;						// Data protected by the lock
+	private boolean delegatingReads = false;					// Whether reads may be delegated
+	private final Set<ActorRef> delegates = new HashSet<ActorRef>();	// Managers holding read delegations
+	private boolean recalling = false;							// Whether delegations are being recalled
+	private final List<Reservation> refusedReservations = new ArrayList<Reservation>();	// Refused as busy, to retry on change
+
+	public ResourceState (int id, Resource resource) {
+		this.id = id;
+		this.resource = resource;
+		this.policy = resource.getSchedulingPolicy();
+		this.payload = new ResourcePayload(resource.getInitialPayload());
+	}
+
+	/**
+	 * @return	Id of resource within its manager
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return	Resource being managed
+	 */
+	public Resource getResource() {
+		return resource;
+	}
+
+	/**
+	 * @return	Name of resource being managed
+	 */
+	public String getName() {
+		return resource.getName();
+	}
+
+	/**
+	 * @return	User holding exclusive-write access, or null if there is none
+	 */
+	public ActorRef getWriter() {
+		return writer;
+	}
+
+	/**
+	 * @param writer	User now holding exclusive-write access, or null to clear it
+	 */
+	public void setWriter(ActorRef writer) {
+		if ((this.writer == null) != (writer == null)) {
+			version++;
+		}
+		this.writer = writer;
+	}
+
+	/**
+	 * @return	Payload of resource
+	 */
+	public ResourcePayload getPayload() {
+		return payload;
+	}
+
+	/**
+	 * @return	True if reads of resource may be delegated to remote managers
+	 */
+	public boolean isDelegatingReads() {
+		return delegatingReads;
+	}
+
+	public void setDelegatingReads(boolean delegatingReads) {
+		this.delegatingReads = delegatingReads;
+	}
+
+	/**
+	 * @return	Remote managers holding read delegations for resource
+	 */
+	public Set<ActorRef> getDelegates() {
+		return delegates;
+	}
+
+	/**
+	 * @return	True if delegations have been recalled and not all returned yet
+	 */
+	public boolean isRecalling() {
+		return recalling;
+	}
+
+	public void setRecalling(boolean recalling) {
+		this.recalling = recalling;
+	}
+
+	/**
+	 * @return	Reservations refused because resource was busy, whose coordinators have
+	 * 			not yet been told it has changed
+	 */
+	public List<Reservation> getRefusedReservations() {
+		return refusedReservations;
+	}
+
+	/**
+	 * @return	Write version of resource:  odd while a writer holds it
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param version	Write version to continue from, as when taking over a resource
+	 * 					from another manager
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	/**
+	 * @return	Users holding concurrent-read access
+	 */
+	public ReadHolders getReaders() {
+		return readers;
+	}
+
+	/**
+	 * @return	Leases on current grants
+	 */
+	public List<Lease> getLeases() {
+		return leases;
+	}
+
+	/**
+	 * @return	Blocking requests waiting for access, in arrival order
+	 */
+	public WaitQueue getWaitQueue() {
+		return waitQueue;
+	}
+
+	/**
+	 * @return	Pool of interchangeable resources this one belongs to, or null
+	 */
+	public ResourcePool getPool() {
+		return pool;
+	}
+
+	public void setPool(ResourcePool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return	Upgrade waiting for the other readers to leave, or null if there is none
+	 */
+	public WaitingRequest getPendingUpgrade() {
+		return pendingUpgrade;
+	}
+
+	public void setPendingUpgrade(WaitingRequest pendingUpgrade) {
+		this.pendingUpgrade = pendingUpgrade;
+	}
+
+	/**
+	 * @return	Scheduling policy currently in force
+	 */
+	public SchedulingPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Switch scheduling policy.  Requests already queued stay in arrival order, and
+	 * are granted according to the new policy from now on.
+	 * 
+	 * @param policy	New policy
+	 */
+	public void setPolicy(SchedulingPolicy policy) {
+		this.policy = policy;
+		this.bypassCount = 0;
+	}
+
+	/**
+	 * @return	Number of readers granted ahead of the writer waiting at the head of
+	 * 			the queue (used by BoundedBypassPolicy)
+	 */
+	public int getBypassCount() {
+		return bypassCount;
+	}
+
+	public void setBypassCount(int bypassCount) {
+		this.bypassCount = bypassCount;
+	}
+
+	/**
+	 * @param message	Request
+	 * @return			True if the current holders are compatible with granting request:
+	 * 					reads need no other user writing, and writes need no other user
+	 * 					reading or writing.  While an upgrade is pending nothing is
+	 * 					granted to other users, so that the upgrader is not starved
+	 */
+	public boolean canGrant(AccessRequestMsg message) {
+		ActorRef user = message.getReplyTo();
+
+		if (pendingUpgrade != null && !pendingUpgrade.getMessage().getReplyTo().equals(user)) {
+			return false;
+		}
+		if (writer != null && !writer.equals(user)) {
+			return false;
+		}
+		return isRead(message) || !readers.isHeldByOtherThan(user);
+	}
+
+	/**
+	 * @return	True if nobody holds the resource or waits for it, so that it could
+	 * 			take any request
+	 */
+	public boolean isIdle() {
+		return writer == null && readers.isEmpty() && waitQueue.isEmpty() && pendingUpgrade == null;
+	}
+
+	/**
+	 * @param user	User holding read access
+	 * @return		True if user's read access can be upgraded now:  nobody else is
+	 * 				reading or writing
+	 */
+	public boolean canUpgrade(ActorRef user) {
+		return (writer == null || writer.equals(user)) && !readers.isHeldByOtherThan(user);
+	}
+
+	/**
+	 * @param message	Request
+	 * @return			True if request is for concurrent-read access
+	 */
+	public static boolean isRead(AccessRequestMsg message) {
+		AccessRequestType type = message.getAccessRequest().getType();
+		return type == AccessRequestType.CONCURRENT_READ_BLOCKING || type == AccessRequestType.CONCURRENT_READ_NONBLOCKING;
+	}
+}
@@ -0,0 +1,54 @@
+package cmsc433.mp3.util;
+
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Discipline deciding which requests for a resource are granted, and in what
+ * order, when they compete.
+ * 
+ * A resource manager consults the policy of a resource whenever a request for it
+ * arrives and whenever its state changes.  Policies keep no state of their own, so
+ * a single instance may be used for any number of resources by any number of
+ * managers; anything a policy needs to remember (such as how many times readers
+ * have bypassed a waiting writer) is kept in the resource's lock-table entry.
+ */
+public interface SchedulingPolicy {
+	
+	/** Strict arrival order. */
+	SchedulingPolicy FIFO = new FifoPolicy();
+	
+	/** Readers may overtake waiting writers whenever no writer holds the resource. */
+	SchedulingPolicy READER_PREFERENCE = new ReaderPreferencePolicy();
+	
+	/** Waiting writers are granted before any waiting or newly arriving reader. */
+	SchedulingPolicy WRITER_PREFERENCE = new WriterPreferencePolicy();
+	
+	/**
+	 * @param maxBypasses	Number of times readers may overtake a waiting writer
+	 * @return				Policy letting readers overtake a waiting writer at most
+	 * 						maxBypasses times before it is granted
+	 */
+	static SchedulingPolicy boundedBypass(int maxBypasses) {
+		return new BoundedBypassPolicy(maxBypasses);
+	}
+	
+	/**
+	 * Decide whether a request that has just arrived can be granted at once, ahead
+	 * of any queued requests.  A request that cannot is queued if blocking, and
+	 * denied otherwise.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @param message	Newly arrived request
+	 * @return			True if request should be granted now
+	 */
+	boolean admitNow(ResourceState state, AccessRequestMsg message);
+	
+	/**
+	 * Choose the next queued request to grant.  The manager removes the chosen
+	 * request from the queue, grants it, and asks again, until none is chosen.
+	 * 
+	 * @param state		Lock-table entry for resource
+	 * @return			Request to grant now, or null if all must keep waiting
+	 */
+	WaitingRequest selectNext(ResourceState state);
+}
@@ -14,6 +14,7 @@ import cmsc433.mp3.messages.AddLocalUsersRequestMsg;
 import cmsc433.mp3.messages.AddLocalUsersResponseMsg;
 import cmsc433.mp3.messages.AddRemoteManagersRequestMsg;
 import cmsc433.mp3.messages.AddRemoteManagersResponseMsg;
+import cmsc433.mp3.messages.SetWaitReportDelayMsg;
 import scala.concurrent.Await;
 import scala.concurrent.Future;
 import scala.concurrent.duration.Duration;
@@ -67,6 +68,26 @@ public class Systems {
 		}
 		return new ArrayList<Resource>(Arrays.asList(resourceArray));
 	}
+	
+	/**
+	 * Make an array list of resources with given base name, and numbers 0 ..
+	 * number-1, all using the given scheduling policy.
+	 * 
+	 * @param baseName
+	 *            Base name of resources
+	 * @param number
+	 *            Number of instances of resource to create
+	 * @param policy
+	 *            Scheduling policy for resources
+	 * @return Array list of resources
+	 */
+	public static ArrayList<Resource> makeResources(String baseName, int number, SchedulingPolicy policy) {
+		ArrayList<Resource> resources = new ArrayList<Resource>();
+		for (int i = 0; i < number; i++) {
+			resources.add(new Resource(baseName + "_" + Integer.toString(i), policy));
+		}
+		return resources;
+	}
 	/**
 	 * Create system of resource-manager, user actors from node list and
 	 * return actors.
@@ -80,6 +101,22 @@ public class Systems {
 	 * @return List of user actors created
 	 */
 	public static SystemActors makeSystem(ArrayList<NodeSpecification> nodes, ActorRef logger, ActorSystem system) {
+		ArrayList<ActorRef> loggers = new ArrayList<ActorRef>();
+		for (int i = 0; i < nodes.size(); i++) {
+			loggers.add(logger);
+		}
+		return makeSystem(nodes, loggers, system);
+	}
+
+	/**
+	 * Create system whose nodes each log to a stripe of their own.
+	 * 
+	 * @param nodes		List of node specs (resource list, user scripts)
+	 * @param loggers	Actors to send logging messages to, one per node
+	 * @param system	Actor system in which to install actors
+	 * @return List of user actors created
+	 */
+	public static SystemActors makeSystem(ArrayList<NodeSpecification> nodes, ArrayList<ActorRef> loggers, ActorSystem system) {
 
 		ArrayList<ActorRef> managers = new ArrayList<ActorRef>();
 		ArrayList<ActorRef> users = new ArrayList<ActorRef>();
@@ -89,11 +126,16 @@ public class Systems {
 		
 		// For each node spec, create manager, users, accumulating each
 		
-		for (NodeSpecification spec : nodes) {
+		for (int n = 0; n < nodes.size(); n++) {
+			NodeSpecification spec = nodes.get(n);
+			ActorRef logger = loggers.get(n);
 			
 			// Create manager, add to list of managers.
-			ActorRef manager = ResourceManagerActor.makeResourceManager(logger, system);
+			ActorRef manager = ResourceManagerActor.makeResourceManager(logger, system, spec.getManagerShards(), spec.getLogFilter());
 			managers.add(manager);
+			if (spec.getWaitReportDelayMs() > 0) {
+				manager.tell(new SetWaitReportDelayMsg(spec.getWaitReportDelayMs()), ActorRef.noSender());
+			}
 			
 			// Assign local resources to new manager.
 			AddInitialLocalResourcesRequestMsg rmsg = new AddInitialLocalResourcesRequestMsg (spec.getResources());
@@ -0,0 +1,171 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+
+/**
+ * Hashed timer wheel, for keeping large numbers of timeouts with constant-time
+ * scheduling and cancellation.
+ * 
+ * Time is divided into ticks of fixed length, and the wheel has a fixed number of
+ * slots; a timeout due at tick t is kept in slot t mod slots, together with any
+ * other timeouts due in later turns of the wheel at the same position.  The owner
+ * advances the wheel periodically, receiving the items whose timeouts have expired.
+ * Expiry is accurate to within one tick.
+ * 
+ * Instances are owned by a single actor and must never be shared between actors.
+ *
+ * @param <T>	Type of item a timeout is kept for
+ */
+public class TimerWheel<T> {
+	
+	/**
+	 * Handle for a scheduled timeout, used to cancel it.
+	 */
+	public static class Timeout<T> {
+		private final T item;
+		private final long deadlineTick;
+		private Timeout<T> prev;
+		private Timeout<T> next;
+		private boolean pending = true;
+		
+		private Timeout (T item, long deadlineTick) {
+			this.item = item;
+			this.deadlineTick = deadlineTick;
+		}
+		
+		public T getItem() {
+			return item;
+		}
+		
+		/**
+		 * @return	True if timeout has neither expired nor been cancelled
+		 */
+		public boolean isPending() {
+			return pending;
+		}
+	}
+	
+	private final ArrayList<Timeout<T>> slots;	// Head of each slot's list
+	private final long tickMs;					// Length of tick
+	private final long startMs;					// Time of tick 0
+	private long currentTick = 0;				// Last tick processed
+	private int size = 0;						// Pending timeouts
+	
+	/**
+	 * Create empty wheel.
+	 * 
+	 * @param slotCount	Number of slots
+	 * @param tickMs	Length of tick, in milliseconds
+	 * @param nowMs		Current time, in milliseconds
+	 */
+	public TimerWheel (int slotCount, long tickMs, long nowMs) {
+		this.slots = new ArrayList<Timeout<T>>(slotCount);
+		for (int i = 0; i < slotCount; i++) {
+			slots.add(null);
+		}
+		this.tickMs = tickMs;
+		this.startMs = nowMs;
+	}
+	
+	/**
+	 * @return	Length of tick, in milliseconds
+	 */
+	public long getTickMs() {
+		return tickMs;
+	}
+	
+	/**
+	 * @return	True if no timeouts are pending
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Schedule timeout for item.
+	 * 
+	 * @param item		Item to return when timeout expires
+	 * @param delayMs	Delay until expiry, in milliseconds
+	 * @param nowMs		Current time, in milliseconds
+	 * @return			Handle for cancelling timeout
+	 */
+	public Timeout<T> schedule (T item, long delayMs, long nowMs) {
+		long deadlineTick = Math.max((nowMs + delayMs - startMs + tickMs - 1) / tickMs, currentTick + 1);
+		Timeout<T> timeout = new Timeout<T>(item, deadlineTick);
+		int slot = slotOf(deadlineTick);
+		
+		timeout.next = slots.get(slot);
+		if (timeout.next != null) {
+			timeout.next.prev = timeout;
+		}
+		slots.set(slot, timeout);
+		size++;
+		return timeout;
+	}
+	
+	/**
+	 * Cancel a timeout.  Has no effect if it has already expired or been cancelled.
+	 * 
+	 * @param timeout	Handle of timeout
+	 */
+	public void cancel (Timeout<T> timeout) {
+		if (timeout.pending) {
+			unlink(timeout);
+		}
+	}
+	
+	/**
+	 * @param timeout	Handle of pending timeout
+	 * @param nowMs		Current time, in milliseconds
+	 * @return			Time left until timeout expires, in milliseconds (0 if it is due)
+	 */
+	public long remainingMs (Timeout<T> timeout, long nowMs) {
+		return Math.max(0, startMs + timeout.deadlineTick * tickMs - nowMs);
+	}
+	
+	/**
+	 * Advance wheel to the current time.
+	 * 
+	 * @param nowMs		Current time, in milliseconds
+	 * @return			Items whose timeouts expired, in no particular order
+	 */
+	public ArrayList<T> advance (long nowMs) {
+		ArrayList<T> expired = new ArrayList<T>();
+		long targetTick = (nowMs - startMs) / tickMs;
+		long steps = Math.min(targetTick - currentTick, slots.size());
+		
+		for (long tick = currentTick + 1; tick <= currentTick + steps; tick++) {
+			Timeout<T> timeout = slots.get(slotOf(tick));
+			while (timeout != null) {
+				Timeout<T> next = timeout.next;
+				if (timeout.deadlineTick <= targetTick) {
+					unlink(timeout);
+					expired.add(timeout.item);
+				}
+				timeout = next;
+			}
+		}
+		currentTick = Math.max(currentTick, targetTick);
+		return expired;
+	}
+	
+	private int slotOf (long tick) {
+		return (int) (tick % slots.size());
+	}
+	
+	private void unlink (Timeout<T> timeout) {
+		if (timeout.prev != null) {
+			timeout.prev.next = timeout.next;
+		}
+		else {
+			slots.set(slotOf(timeout.deadlineTick), timeout.next);
+		}
+		if (timeout.next != null) {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.pending = false;
+		size--;
+	}
+}
@@ -2,11 +2,14 @@ package cmsc433.mp3.util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 
 import cmsc433.mp3.enums.AccessRequestType;
 import cmsc433.mp3.enums.AccessType;
+import cmsc433.mp3.enums.RequestPriority;
 
 /**
  * Class of scripts run by user actors.
@@ -133,11 +136,38 @@ public class UserScript {
 	/**
 	 * 
 	 * @param script A string representation of the script, in the form:<br>
-	 * e = (Write/Read)-(Request-n/Request-b/Release) (Resource Name)<br>
+	 * e = (Write/Read)-(Request-n/Request-b) (Resource Name) (Option)*<br>
+	 *   = (Write/Read)-Release (Resource Name)<br>
+	 *   = Upgrade-(Request-n/Request-b) (Resource Name) (Option)*<br>
+	 *   = Downgrade (Resource Name)<br>
+	 *   = Read-Optimistic (Resource Name)<br>
+	 *   = Read-Validate (Resource Name)<br>
+	 *   = Write-Payload (Resource Name) data=(Text)<br>
+	 *   = (Write/Read)-Request-All (Resource Name),(Resource Name),... (Option)*<br>
 	 *   = (Enable/Disable) (Resource Name)<br>
+	 *   = Cancel (Resource Name)<br>
 	 *   = Sleep (Duration)<br>
 	 *   = e | e<br>
-	 * Where the entire script is a series of one or more e's on different lines    
+	 * Where the entire script is a series of one or more e's on different lines.
+	 * Options have the form key=value:  lease=(Duration) limits how long a grant is
+	 * held before the manager releases it, deadline=(Duration) how long a blocking
+	 * request waits before it is denied, and priority=(High/Normal/Low) sets the
+	 * priority class of a blocking request.  On a Request-All the lease and priority
+	 * apply to each resource, and the deadline to the request as a whole:  the user
+	 * is granted all of the resources at once, or none of them.
+	 * A resource name of the form Base_* requests any one of the resources Base_0,
+	 * Base_1, ...; releasing Base_* releases the instance granted earliest.
+	 * Upgrade turns read access the user holds into write access, and downgrade turns
+	 * write access into read access, each without releasing the resource in between;
+	 * the access is then released as the type it has become.
+	 * Read-Optimistic obtains a stamp for the resource without taking a lock (and
+	 * needs no release); Read-Validate then checks that nobody has written the
+	 * resource since the stamp was issued.
+	 * Write-Payload replaces the payload of a resource the user holds write access
+	 * to; readers see the new payload once the writer has released the resource.
+	 * Cancel withdraws the blocking request for the resource made earlier on the same
+	 * line, once the line's sleep is over:  the request is denied if it is still
+	 * waiting then, and granted as usual otherwise.
 	 * @return A UserScript object representing the script
 	 */
 	public static UserScript fromString (String script) {
@@ -153,33 +183,78 @@ public class UserScript {
 			String[] statements = line.trim().split("\\|");
 			for (String statement : statements) {				
 				
-				String[] parts = statement.trim().split("\\s");
+				String[] parts = statement.trim().split("\\s+");
 				
 				if (parts.length < 2) 
 					throw new IllegalArgumentException("Script statement: " + statement + " did not have enough arguments\n\ton line: " + line);
 				
 				String command = parts[0];
-				String resource_name = parts[parts.length - 1];
+				String resource_name = parts[1];
+				long leaseMs = 0;
+				long deadlineMs = 0;
+				RequestPriority priority = RequestPriority.NORMAL;
+				String data = null;
 				
-				for (int i = 1; i < parts.length - 1; i++)
-					if (!parts[i].isEmpty())
-						throw new IllegalArgumentException("Script statement: " + statement + " had too many arguments\n\ton line: " + line);
+				for (int i = 2; i < parts.length; i++) {
+					String[] option = parts[i].split("=", 2);
+					if (option.length == 2 && option[0].equalsIgnoreCase("lease") && command.matches("(?i)(write|read|upgrade)-request-([nb]|all)"))
+						leaseMs = Long.parseLong(option[1]);
+					else if (option.length == 2 && option[0].equalsIgnoreCase("deadline") && command.matches("(?i)(write|read|upgrade)-request-(b|all)"))
+						deadlineMs = Long.parseLong(option[1]);
+					else if (option.length == 2 && option[0].equalsIgnoreCase("priority") && command.matches("(?i)(write|read)-request-(b|all)"))
+						priority = RequestPriority.valueOf(option[1].toUpperCase());
+					else if (option.length == 2 && option[0].equalsIgnoreCase("data") && command.equalsIgnoreCase("write-payload"))
+						data = option[1];
+					else
+						throw new IllegalArgumentException("Script statement: " + statement + " had bad argument " + parts[i] + "\n\ton line: " + line);
+				}
 				
 				Object action;
 				if (command.equalsIgnoreCase("write-request-n")) {
-					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING); 
+					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_NONBLOCKING, leaseMs, deadlineMs, priority); 
 				} else if (command.equalsIgnoreCase("write-request-b")) {
-					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING);
+					action = new AccessRequest(resource_name, AccessRequestType.EXCLUSIVE_WRITE_BLOCKING, leaseMs, deadlineMs, priority);
 				} else if (command.equalsIgnoreCase("read-request-n")) {
-					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_NONBLOCKING);
+					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_NONBLOCKING, leaseMs, deadlineMs, priority);
 				} else if (command.equalsIgnoreCase("read-request-b")) {
-					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_BLOCKING);
+					action = new AccessRequest(resource_name, AccessRequestType.CONCURRENT_READ_BLOCKING, leaseMs, deadlineMs, priority);
+				} else if (command.equalsIgnoreCase("upgrade-request-n")) {
+					action = new AccessRequest(resource_name, AccessRequestType.UPGRADE_NONBLOCKING, leaseMs, deadlineMs, priority);
+				} else if (command.equalsIgnoreCase("upgrade-request-b")) {
+					action = new AccessRequest(resource_name, AccessRequestType.UPGRADE_BLOCKING, leaseMs, deadlineMs, priority);
+				} else if (command.equalsIgnoreCase("downgrade")) {
+					action = new AccessRequest(resource_name, AccessRequestType.DOWNGRADE);
+				} else if (command.equalsIgnoreCase("read-optimistic")) {
+					action = new AccessRequest(resource_name, AccessRequestType.OPTIMISTIC_READ);
+				} else if (command.equalsIgnoreCase("read-validate")) {
+					action = new ReadValidation(resource_name);
+				} else if (command.equalsIgnoreCase("write-payload")) {
+					if (data == null)
+						throw new IllegalArgumentException("Script statement: " + statement + " has no data\n\ton line: " + line);
+					action = new PayloadWrite(resource_name, data.getBytes(StandardCharsets.UTF_8));
+				} else if (command.equalsIgnoreCase("write-request-all")) {
+					action = new MultiAccessRequest(new ArrayList<String>(Arrays.asList(resource_name.split(","))), AccessType.EXCLUSIVE_WRITE, leaseMs, deadlineMs, priority);
+				} else if (command.equalsIgnoreCase("read-request-all")) {
+					action = new MultiAccessRequest(new ArrayList<String>(Arrays.asList(resource_name.split(","))), AccessType.CONCURRENT_READ, leaseMs, deadlineMs, priority);
 				} else if (command.equalsIgnoreCase("write-release")) {
 					action = new AccessRelease(resource_name, AccessType.EXCLUSIVE_WRITE);
 				} else if (command.equalsIgnoreCase("read-release")) {
 					action = new AccessRelease(resource_name, AccessType.CONCURRENT_READ);
 				} else if (command.equalsIgnoreCase("sleep")) { 
 					action = new SleepStep (Long.parseLong(resource_name));
+				} else if (command.equalsIgnoreCase("cancel")) {
+					action = null;
+					for (Object earlier : thisLine) {
+						if (earlier instanceof AccessRequest && ((AccessRequest) earlier).getResourceName().equals(resource_name)) {
+							AccessRequestType type = ((AccessRequest) earlier).getType();
+							if (type == AccessRequestType.EXCLUSIVE_WRITE_BLOCKING || type == AccessRequestType.CONCURRENT_READ_BLOCKING
+									|| type == AccessRequestType.UPGRADE_BLOCKING) {
+								action = new RequestCancellation((AccessRequest) earlier);
+							}
+						}
+					}
+					if (action == null)
+						throw new IllegalArgumentException("Script statement: " + statement + " follows no blocking request for " + resource_name + "\n\ton line: " + line);
 				} else {
 					throw new IllegalArgumentException("Illegal command: " + command + "\n\ton the line: " + line);
 				}
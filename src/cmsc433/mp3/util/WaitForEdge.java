@@ -0,0 +1,61 @@
+package cmsc433.mp3.util;
+
+import akka.actor.ActorRef;
+
+/**
+ * Edge of the wait-for graph:  a user with a blocking request queued for a
+ * resource, and the manager holding that queue.
+ * 
+ * An edge names the request itself, not just the resource, so that it stops
+ * matching anything once that request has left the queue, even if the user queues
+ * another request for the same resource.  Requests are compared by identity, as
+ * in WaitQueue.
+ * 
+ * Edges are immutable, so they may be sent between actors.
+ */
+public class WaitForEdge {
+	private final ActorRef waiter;			// User whose request is queued
+	private final AccessRequest request;	// Request queued
+	private final ActorRef manager;			// Manager of resource
+	
+	public WaitForEdge (ActorRef waiter, AccessRequest request, ActorRef manager) {
+		this.waiter = waiter;
+		this.request = request;
+		this.manager = manager;
+	}
+	
+	public ActorRef getWaiter() {
+		return waiter;
+	}
+	
+	public AccessRequest getRequest() {
+		return request;
+	}
+	
+	public String getResourceName() {
+		return request.getResourceName();
+	}
+	
+	public ActorRef getManager() {
+		return manager;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof WaitForEdge)) {
+			return false;
+		}
+		WaitForEdge edge = (WaitForEdge) o;
+		return edge.request == request && edge.waiter.equals(waiter) && edge.manager.equals(manager);
+	}
+	
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(request) * 31 + waiter.hashCode();
+	}
+	
+	@Override
+	public String toString () {
+		return waiter.toString() + " waits for " + request.getResourceName();
+	}
+}
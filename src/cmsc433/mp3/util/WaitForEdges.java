@@ -0,0 +1,60 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+
+/**
+ * A resource manager's share of the wait-for graph directory:  for each user
+ * assigned to the manager, the wait-for edges of the blocking requests the user has
+ * queued, wherever they are queued.  Managers queueing or dequeuing a request
+ * report the edge to the user's directory manager, so that a deadlock probe
+ * looking for the user can be sent to just the managers it waits at.
+ * 
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class WaitForEdges {
+	private final Map<ActorRef, List<WaitForEdge>> waits = new HashMap<ActorRef, List<WaitForEdge>>();
+	
+	/**
+	 * Record that user has queued a request.
+	 * 
+	 * @param edge	Edge of queued request
+	 */
+	public void add(WaitForEdge edge) {
+		List<WaitForEdge> edges = waits.get(edge.getWaiter());
+		if (edges == null) {
+			edges = new ArrayList<WaitForEdge>(2);
+			waits.put(edge.getWaiter(), edges);
+		}
+		edges.add(edge);
+	}
+	
+	/**
+	 * Record that a queued request has left its queue.
+	 * 
+	 * @param edge	Edge of request
+	 */
+	public void remove(WaitForEdge edge) {
+		List<WaitForEdge> edges = waits.get(edge.getWaiter());
+		if (edges != null) {
+			edges.remove(edge);
+			if (edges.isEmpty()) {
+				waits.remove(edge.getWaiter());
+			}
+		}
+	}
+	
+	/**
+	 * @param user	User
+	 * @return		Edges of requests user has queued (empty if none)
+	 */
+	public List<WaitForEdge> getWaits(ActorRef user) {
+		List<WaitForEdge> edges = waits.get(user);
+		return (edges == null) ? Collections.<WaitForEdge>emptyList() : edges;
+	}
+}
@@ -0,0 +1,246 @@
+package cmsc433.mp3.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+import cmsc433.mp3.enums.RequestPriority;
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Queue of blocking requests waiting for a resource, with one level per priority
+ * class.
+ * 
+ * Within a level, requests are kept in arrival order.  The head of the queue is
+ * the head of the level with the best effective priority, where a request's
+ * effective priority rises by one class for every aging interval it has waited,
+ * so that a steady stream of high-priority requests cannot starve low-priority
+ * ones; ties go to the earlier arrival.  Iteration visits the levels from highest
+ * to lowest priority, each in arrival order.
+ * 
+ * Besides the usual queue operations, a request can be removed from anywhere in
+ * the queue in constant time, given the user that made it and the request itself;
+ * this is what cancellation and timeouts need.  Requests are identified by the
+ * AccessRequest object the user sent, so a user cannot queue the same object
+ * twice at once:  adding it again is refused.
+ * 
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class WaitQueue implements Iterable<WaitingRequest> {
+	
+	public static final long DEFAULT_AGING_MS = 100;	// Wait that raises a request one class
+	
+	/**
+	 * Key identifying a queued request:  the user and the request object.
+	 */
+	private static class Key {
+		private final ActorRef user;
+		private final AccessRequest request;
+		
+		Key (ActorRef user, AccessRequest request) {
+			this.user = user;
+			this.request = request;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o).request == request && ((Key) o).user.equals(user);
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(request) * 31 + user.hashCode();
+		}
+	}
+	
+	private final ArrayList<LinkedHashMap<Key, WaitingRequest>> levels;	// Indexed by priority ordinal
+	private final long agingNanos;
+	private long nextSequence = 0;	// Arrival counter
+	private int size = 0;
+	private int queuedWrites = 0;	// Requests for exclusive-write access among entries
+	
+	public WaitQueue () {
+		this(DEFAULT_AGING_MS);
+	}
+	
+	/**
+	 * @param agingMs	Time a request must wait to rise by one priority class
+	 */
+	public WaitQueue (long agingMs) {
+		levels = new ArrayList<LinkedHashMap<Key, WaitingRequest>>();
+		for (int i = 0; i < RequestPriority.values().length; i++) {
+			levels.add(new LinkedHashMap<Key, WaitingRequest>());
+		}
+		agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMs);
+	}
+	
+	/**
+	 * Add request at end of its priority level, unless the same user already has
+	 * the same request queued.
+	 * 
+	 * @param waiting	Request to add
+	 * @return			True if request was added, false if it was already queued
+	 */
+	public boolean add(WaitingRequest waiting) {
+		LinkedHashMap<Key, WaitingRequest> level = levelOf(waiting.getMessage());
+		Key key = keyOf(waiting.getMessage());
+		
+		if (level.containsKey(key)) {
+			return false;
+		}
+		waiting.setSequence(nextSequence++);
+		level.put(key, waiting);
+		size++;
+		if (!ResourceState.isRead(waiting.getMessage())) {
+			queuedWrites++;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return	Request at head of queue, or null if queue is empty
+	 */
+	public WaitingRequest peek() {
+		WaitingRequest head = null;
+		long headPriority = 0;
+		long now = System.nanoTime();
+		
+		for (int level = 0; level < levels.size(); level++) {
+			if (levels.get(level).isEmpty()) {
+				continue;
+			}
+			WaitingRequest first = levels.get(level).values().iterator().next();
+			long effectivePriority = Math.max(0, level - (now - first.getEnqueuedNanos()) / agingNanos);
+			if (head == null || effectivePriority < headPriority
+					|| (effectivePriority == headPriority && first.getSequence() < head.getSequence())) {
+				head = first;
+				headPriority = effectivePriority;
+			}
+		}
+		return head;
+	}
+	
+	/**
+	 * Remove request at head of queue.
+	 * 
+	 * @return	Removed request, or null if queue is empty
+	 */
+	public WaitingRequest poll() {
+		WaitingRequest head = peek();
+		if (head != null) {
+			remove(head);
+		}
+		return head;
+	}
+	
+	/**
+	 * @param user		User that made request
+	 * @param request	Request
+	 * @return			Queued entry for request, or null if it is not queued
+	 */
+	public WaitingRequest get(ActorRef user, AccessRequest request) {
+		return levels.get(request.getPriority().ordinal()).get(new Key(user, request));
+	}
+	
+	/**
+	 * Remove a request from wherever it is in the queue.
+	 * 
+	 * @param user		User that made request
+	 * @param request	Request
+	 * @return			Removed request, or null if it was not queued
+	 */
+	public WaitingRequest remove(ActorRef user, AccessRequest request) {
+		WaitingRequest waiting = levels.get(request.getPriority().ordinal()).remove(new Key(user, request));
+		if (waiting != null) {
+			removed(waiting);
+		}
+		return waiting;
+	}
+	
+	/**
+	 * Remove a request from wherever it is in the queue.
+	 * 
+	 * @param waiting	Request
+	 * @return			True if request was queued
+	 */
+	public boolean remove(WaitingRequest waiting) {
+		return remove(waiting.getMessage().getReplyTo(), waiting.getMessage().getAccessRequest()) != null;
+	}
+	
+	/**
+	 * @param waiting	Request
+	 * @return			True if request is still queued
+	 */
+	public boolean contains(WaitingRequest waiting) {
+		return levelOf(waiting.getMessage()).get(keyOf(waiting.getMessage())) == waiting;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return	Number of queued requests for exclusive-write access
+	 */
+	public int getQueuedWrites() {
+		return queuedWrites;
+	}
+	
+	/**
+	 * @return	Iterator over queued requests, highest priority level first, supporting
+	 * 			removal
+	 */
+	@Override
+	public Iterator<WaitingRequest> iterator() {
+		return new Iterator<WaitingRequest>() {
+			private int level = 0;
+			private Iterator<WaitingRequest> values = levels.get(0).values().iterator();
+			private WaitingRequest last;
+			
+			@Override
+			public boolean hasNext() {
+				while (!values.hasNext() && level < levels.size() - 1) {
+					values = levels.get(++level).values().iterator();
+				}
+				return values.hasNext();
+			}
+			
+			@Override
+			public WaitingRequest next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = values.next();
+				return last;
+			}
+			
+			@Override
+			public void remove() {
+				values.remove();
+				removed(last);
+			}
+		};
+	}
+	
+	private void removed(WaitingRequest waiting) {
+		size--;
+		if (!ResourceState.isRead(waiting.getMessage())) {
+			queuedWrites--;
+		}
+	}
+	
+	private LinkedHashMap<Key, WaitingRequest> levelOf(AccessRequestMsg message) {
+		return levels.get(message.getAccessRequest().getPriority().ordinal());
+	}
+	
+	private static Key keyOf(AccessRequestMsg message) {
+		return new Key(message.getReplyTo(), message.getAccessRequest());
+	}
+}
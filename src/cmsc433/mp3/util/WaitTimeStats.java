@@ -0,0 +1,140 @@
+package cmsc433.mp3.util;
+
+import java.util.concurrent.TimeUnit;
+
+import cmsc433.mp3.enums.RequestPriority;
+
+/**
+ * Distribution of the time blocking requests waited before being granted, per
+ * priority class.
+ * 
+ * Wait times are counted in a log-linear histogram:  each power of two of
+ * microseconds is split into a fixed number of equal buckets, so recording takes
+ * constant time and space, and percentiles are accurate to within one bucket
+ * (about 12%).  Statistics from several managers are combined with merge().
+ * 
+ * A manager records into its own instance and sends copies made with copy(), so
+ * that no instance is ever shared between actors.
+ */
+public class WaitTimeStats {
+	private static final int SUB_BUCKET_BITS = 3;					// 8 buckets per power of two
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final long[][] counts;	// Bucket counts, by priority ordinal
+	private final long[] maxMicros;	// Longest wait, by priority ordinal
+	
+	public WaitTimeStats () {
+		counts = new long[RequestPriority.values().length][BUCKETS];
+		maxMicros = new long[RequestPriority.values().length];
+	}
+	
+	/**
+	 * Record the wait of one granted request.
+	 * 
+	 * @param priority		Priority class of request
+	 * @param waitNanos		Time waited, in nanoseconds
+	 */
+	public void record (RequestPriority priority, long waitNanos) {
+		long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(waitNanos));
+		counts[priority.ordinal()][bucketOf(micros)]++;
+		maxMicros[priority.ordinal()] = Math.max(maxMicros[priority.ordinal()], micros);
+	}
+	
+	/**
+	 * Add the counts of other statistics to these.
+	 * 
+	 * @param other	Statistics to add
+	 */
+	public void merge (WaitTimeStats other) {
+		for (int p = 0; p < counts.length; p++) {
+			for (int b = 0; b < BUCKETS; b++) {
+				counts[p][b] += other.counts[p][b];
+			}
+			maxMicros[p] = Math.max(maxMicros[p], other.maxMicros[p]);
+		}
+	}
+	
+	/**
+	 * @return	Independent copy of statistics, safe to send to another actor
+	 */
+	public WaitTimeStats copy () {
+		WaitTimeStats copy = new WaitTimeStats();
+		copy.merge(this);
+		return copy;
+	}
+	
+	/**
+	 * @param priority	Priority class
+	 * @return			Number of requests recorded
+	 */
+	public long getCount (RequestPriority priority) {
+		long count = 0;
+		for (long c : counts[priority.ordinal()]) {
+			count += c;
+		}
+		return count;
+	}
+	
+	/**
+	 * @param priority		Priority class
+	 * @param percentile	Percentile, from 0 to 100
+	 * @return				Wait time in microseconds that the given percentage of
+	 * 						requests did not exceed (upper edge of its bucket), or 0
+	 * 						if nothing was recorded
+	 */
+	public long getPercentileMicros (RequestPriority priority, double percentile) {
+		long[] c = counts[priority.ordinal()];
+		long rank = (long) Math.ceil(getCount(priority) * percentile / 100.0);
+		long seen = 0;
+		
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += c[b];
+			if (seen >= Math.max(rank, 1)) {
+				return Math.min(upperEdgeOf(b), maxMicros[priority.ordinal()]);
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * @param priority	Priority class
+	 * @return			Longest wait recorded, in microseconds
+	 */
+	public long getMaxMicros (RequestPriority priority) {
+		return maxMicros[priority.ordinal()];
+	}
+	
+	@Override
+	public String toString () {
+		StringBuilder str = new StringBuilder("Wait times (microseconds) by priority:");
+		for (RequestPriority priority : RequestPriority.values()) {
+			str.append("\n  ").append(priority).append(": count=").append(getCount(priority));
+			if (getCount(priority) > 0) {
+				str.append(" p50=").append(getPercentileMicros(priority, 50))
+				   .append(" p90=").append(getPercentileMicros(priority, 90))
+				   .append(" p99=").append(getPercentileMicros(priority, 99))
+				   .append(" max=").append(getMaxMicros(priority));
+			}
+		}
+		return str.toString();
+	}
+	
+	private static int bucketOf (long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);		// >= SUB_BUCKET_BITS
+		int shift = exponent - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+	}
+	
+	private static long upperEdgeOf (int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long base = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return base + (1L << shift) - 1;
+	}
+}
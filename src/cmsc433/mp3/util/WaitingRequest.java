@@ -0,0 +1,89 @@
+package cmsc433.mp3.util;
+
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Blocking request queued for a local resource or pool, with the time it was
+ * queued and the timeout that denies it if it is still waiting when its deadline
+ * passes.
+ * 
+ * Instances are owned by a single manager and must never be shared between actors.
+ */
+public class WaitingRequest {
+	private final ResourceState state;				// Lock-table entry of resource, or null for pool
+	private final ResourcePool pool;				// Pool requested, or null for resource
+	private final AccessRequestMsg message;			// Queued request
+	private final long enqueuedNanos;				// When request was queued (System.nanoTime)
+	private long sequence;							// Position in arrival order, set by queue
+	private TimerWheel.Timeout<Object> deadline;	// Expiry of wait, or null if unbounded
+	
+	public WaitingRequest (ResourceState state, AccessRequestMsg message) {
+		this(state, null, message);
+	}
+	
+	public WaitingRequest (ResourcePool pool, AccessRequestMsg message) {
+		this(pool, message, System.nanoTime());
+	}
+	
+	/**
+	 * Create pool request that has already been waiting elsewhere, such as in a
+	 * sibling shard, since the given time.
+	 * 
+	 * @param pool			Pool requested
+	 * @param message		Request
+	 * @param enqueuedNanos	When request was first queued (System.nanoTime)
+	 */
+	public WaitingRequest (ResourcePool pool, AccessRequestMsg message, long enqueuedNanos) {
+		this(null, pool, message, enqueuedNanos);
+	}
+	
+	private WaitingRequest (ResourceState state, ResourcePool pool, AccessRequestMsg message) {
+		this(state, pool, message, System.nanoTime());
+	}
+	
+	private WaitingRequest (ResourceState state, ResourcePool pool, AccessRequestMsg message, long enqueuedNanos) {
+		this.state = state;
+		this.pool = pool;
+		this.message = message;
+		this.enqueuedNanos = enqueuedNanos;
+	}
+	
+	public ResourceState getState() {
+		return state;
+	}
+	
+	public ResourcePool getPool() {
+		return pool;
+	}
+	
+	/**
+	 * @return	Queue request waits in:  its resource's or its pool's
+	 */
+	public WaitQueue getQueue() {
+		return (pool != null) ? pool.getWaitQueue() : state.getWaitQueue();
+	}
+	
+	public AccessRequestMsg getMessage() {
+		return message;
+	}
+	
+	public long getEnqueuedNanos() {
+		return enqueuedNanos;
+	}
+	
+	public long getSequence() {
+		return sequence;
+	}
+	
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+	
+	public TimerWheel.Timeout<Object> getDeadline() {
+		return deadline;
+	}
+	
+	public void setDeadline(TimerWheel.Timeout<Object> deadline) {
+		this.deadline = deadline;
+	}
+}
@@ -0,0 +1,41 @@
+package cmsc433.mp3.util;
+
+import cmsc433.mp3.messages.AccessRequestMsg;
+
+/**
+ * Scheduling policy granting waiting writers before readers.  Once a writer is
+ * queued, no further reader is granted until every queued writer has been;
+ * readers already holding the resource finish as usual.  Keeps writes timely, but
+ * readers can starve under a steady stream of writers.
+ */
+public class WriterPreferencePolicy implements SchedulingPolicy {
+	
+	@Override
+	public boolean admitNow(ResourceState state, AccessRequestMsg message) {
+		WaitQueue queue = state.getWaitQueue();
+		
+		return (queue.isEmpty() || (!ResourceState.isRead(message) && queue.getQueuedWrites() == 0))
+				&& state.canGrant(message);
+	}
+	
+	@Override
+	public WaitingRequest selectNext(ResourceState state) {
+		WaitQueue queue = state.getWaitQueue();
+		WaitingRequest next = queue.peek();
+		
+		if (queue.getQueuedWrites() > 0) {
+			for (WaitingRequest waiting : queue) {
+				if (!ResourceState.isRead(waiting.getMessage())) {
+					next = waiting;
+					break;
+				}
+			}
+		}
+		return (next != null && state.canGrant(next.getMessage())) ? next : null;
+	}
+	
+	@Override
+	public String toString() {
+		return "writer preference";
+	}
+}